@@ -35,6 +35,56 @@ public class DockerXConstants {
     public static final String TASK_GROUP                  = "dockerx";
     
     public static final String NAMED_CONFIG                = "config";
+    
+    public static final String SERVICE_REGISTRY            = "dockerXRegistryService";
+    public static final String SERVICE_BUILDER             = "dockerXBuilderService";
+    public static final String SERVICE_SCHEDULER           = "dockerXSchedulerService";
+    public static final String PROPERTY_MAX_CONCURRENCY    = "dockerx.maxConcurrency";
+    public static final String SCHEDULER_REGISTRY_GROUP    = "registry:";
+    public static final String AUTH_FAILURE_PATTERN        = "unauthorized|authentication required|access denied|denied: requested access|status: 401|no basic auth credentials";
+    public static final String DIGEST_CACHE_DIR            = "dockerx/digests";
+    public static final String DIGEST_CACHE_IMAGE          = "image";
+    public static final String DIGEST_CACHE_DIGEST         = "digest";
+    public static final String DIGEST_CACHE_MEDIA_TYPE     = "mediaType";
+    public static final String DIGEST_CACHE_LIST           = "listManifest";
+    public static final String DIGEST_CACHE_RESOLVED       = "resolved";
+    public static final String DIGEST_CACHE_PLATFORM       = "platform.";
+    public static final String BUILDER_STATE_DIR           = "dockerx/builders";
+    public static final String BUILDER_LAST_USE            = "lastUse";
+    public static final String BUILDER_IDLE_TIMEOUT        = "idleTimeout";
+    public static final String BUILDER_BUILT_IMAGES        = ".images";
+    public static final String DOCKERX_BUILD_DIR           = "dockerx";
+    public static final String BUILD_DIGESTS_DIR           = "dockerx/images";
+    public static final String RENDER_MANIFEST_DIR         = "dockerx/renders";
+    public static final String RENDER_SOURCE               = "source";
+    public static final String RENDER_REFERENCE            = "reference";
+    public static final String RENDER_OUTPUT_HASH          = "outputHash";
+    
+    public static final String OLM_PACKAGE                 = "olm.package";
+    public static final String OLM_CHANNEL                 = "olm.channel";
+    public static final String OLM_BUNDLE                  = "olm.bundle";
+    public static final String FBC_SCHEMA                  = "schema";
+    public static final String FBC_NAME                    = "name";
+    public static final String FBC_PACKAGE                 = "package";
+    public static final String FBC_DEFAULT_CHANNEL         = "defaultChannel";
+    public static final String FBC_DESCRIPTION             = "description";
+    public static final String FBC_ICON                    = "icon";
+    public static final String FBC_ICON_DATA               = "base64data";
+    public static final String FBC_ICON_MEDIATYPE          = "mediatype";
+    public static final String FBC_ENTRIES                 = "entries";
+    public static final String FBC_REPLACES                = "replaces";
+    public static final String FBC_SKIPS                   = "skips";
+    public static final String FBC_PROPERTIES              = "properties";
+    public static final String FBC_TYPE                    = "type";
+    public static final String FBC_VALUE                   = "value";
+    public static final String FBC_VERSION                 = "version";
+    public static final String FORMAT_JSON                 = "json";
+    public static final String MODE_SEMVER_SKIPPATCH       = "semver-skippatch";
+    public static final String DOCKER_IGNORE               = ".dockerignore";
+    public static final String CONTEXT_STAGING_DIR         = "dockerx/contexts";
+    public static final String SHA_256                     = "SHA-256";
+    public static final String METADATA_IMAGE_DIGEST       = "containerimage.digest";
+    public static final String DIGEST_SHA256               = "sha256:";
 
     public static final String EXTENSION_NAME              = "dockerXSpecs";
     public static final String TASK_BUILD                  = "dockerXBuild";
@@ -44,6 +94,7 @@ public class DockerXConstants {
     public static final String TASK_EXECUTE                = "dockerXExecute";
     public static final String TASK_GITHUB                 = "dockerXGitHub";
     public static final String TASK_OPM_BUNDLE             = "dockerXOPMBundle";
+    public static final String TASK_OPM_CATALOG            = "dockerXOPMCatalog";
     public static final String TASK_OPM_INIT               = "dockerXOPMInit";
     public static final String TASK_OPM_REGISTRY           = "dockerXOPMRegistry";
     public static final String TASK_OPM_RENDER             = "dockerXOPMRender";
@@ -57,6 +108,7 @@ public class DockerXConstants {
     public static final String DESC_EXECUTE                = "DockerX Execute Scripts and Tools";
     public static final String DESC_GITHUB                 = "DockerX GitHub Repository Commands";
     public static final String DESC_OPM_BUNDLE             = "DockerX OPM Bundle Command";
+    public static final String DESC_OPM_CATALOG            = "DockerX OPM File-Based Catalog Generator";
     public static final String DESC_OPM_INIT               = "DockerX OPM Init Command";
     public static final String DESC_OPM_REGISTRY           = "DockerX OPM Registry Command";
     public static final String DESC_OPM_RENDER             = "DockerX OPM Render Command";
@@ -73,20 +125,78 @@ public class DockerXConstants {
     public static final String LABEL_OPM                   = "OPM";
     public static final String LABEL_SKIP                  = "Skip";
     public static final String LABEL_SQLITE                = "SQLite";
+    public static final String LABEL_PRUNE                 = "Prune";
     
     public static final Boolean DEFAULT_TRUE               = Boolean.TRUE;
     public static final Boolean DEFAULT_FALSE              = Boolean.FALSE;
     
+    public static final Integer DEFAULT_PARALLELISM        = 1;
+    public static final Integer DEFAULT_OUTPUT_TAIL        = 64 * 1024;
+    public static final Integer DEFAULT_COMMAND_TIMEOUT    = 0;
+    public static final Integer DEFAULT_KILL_GRACE         = 10;
+    public static final Integer DEFAULT_BUILDER_IDLE       = 60;
+    public static final Integer DEFAULT_DIGEST_PARALLELISM = 16;
+    public static final Integer DEFAULT_RENDER_PARALLELISM = 4;
+    public static final Integer DEFAULT_REGISTRY_LIMIT     = 4;
+    public static final Integer DEFAULT_DIGEST_CACHE_TTL   = 60;
+    public static final Integer DEFAULT_MAX_CONCURRENCY    = 16;
+    public static final Integer CONTEXT_HASH_BATCH         = 256;
+    public static final Integer CONTEXT_HASH_BUFFER        = 64 * 1024;
+    public static final Integer SQLITE_BATCH_SIZE          = 1000;
+    public static final Integer SQLITE_LOG_LENGTH          = 120;
+    
+    public static final String DEFAULT_CACHE_MODE          = "max";
+    public static final String DEFAULT_PRUNE_POLICY        = "selective";
     public static final String DEFAULT_DOCKER              = "docker";
     public static final String DEFAULT_OLM_PACKAGE         = "olm.package";
     public static final String DEFAULT_REPLACES            = "replaces";
     public static final String DEFAULT_YAML                = "yaml";
+    public static final String DEFAULT_CATALOG             = "catalog";
+    public static final String DEFAULT_BUNDLE_VERSION      = "0.0.0";
     
     public static final String DOCKERX_DIGEST              = "Digest";
     public static final String DOCKERX_PLATFORM            = "Platform";
     public static final String DOCKERX_DESCRIPTOR          = "Descriptor";
+    public static final String DOCKER_INFO_DRIVER_STATUS   = "{{json .DriverStatus}}";
+    public static final String DOCKER_CONTAINERD_STORE     = "io.containerd.snapshotter";
+    
+    public static final String DOCKER_HUB_REGISTRY         = "registry-1.docker.io";
+    public static final int    REGISTRY_CONNECT_TIMEOUT    = 10;
+    public static final int    REGISTRY_REQUEST_TIMEOUT    = 30;
+    public static final int    DOWNLOAD_REQUEST_TIMEOUT    = 60;
+    public static final int    DOWNLOAD_TRANSFER_TIMEOUT   = 60;
+    
+    public static final String HEADER_ACCEPT               = "Accept";
+    public static final String HEADER_CONTENT_TYPE         = "Content-Type";
+    public static final String HEADER_CONTENT_DIGEST       = "Docker-Content-Digest";
+    public static final String HEADER_WWW_AUTHENTICATE     = "WWW-Authenticate";
+    
+    public static final String AUTH_REALM                  = "realm";
+    public static final String AUTH_SERVICE                = "service";
+    public static final String AUTH_TOKEN                  = "token";
+    public static final String AUTH_ACCESS_TOKEN           = "access_token";
+    
+    public static final String MEDIA_TYPE_OCI_INDEX        = "application/vnd.oci.image.index.v1+json";
+    public static final String MEDIA_TYPE_OCI_MANIFEST     = "application/vnd.oci.image.manifest.v1+json";
+    public static final String MEDIA_TYPE_DOCKER_LIST      = "application/vnd.docker.distribution.manifest.list.v2+json";
+    public static final String MEDIA_TYPE_DOCKER_MANIFEST  = "application/vnd.docker.distribution.manifest.v2+json";
+    public static final String MEDIA_TYPE_SVG              = "image/svg+xml";
+    public static final String MANIFEST_ACCEPT             = String.join(",", MEDIA_TYPE_OCI_INDEX, MEDIA_TYPE_DOCKER_LIST, MEDIA_TYPE_OCI_MANIFEST, MEDIA_TYPE_DOCKER_MANIFEST);
+    
+    public static final String MANIFEST_MANIFESTS          = "manifests";
+    public static final String MANIFEST_PLATFORM           = "platform";
+    public static final String MANIFEST_DIGEST             = "digest";
+    public static final String MANIFEST_MEDIA_TYPE         = "mediaType";
+    
+    public static final String IMAGETOOLS_NAME             = "Name";
+    public static final String IMAGETOOLS_MEDIA_TYPE       = "MediaType";
+    public static final String IMAGETOOLS_MANIFESTS        = "Manifests";
+    public static final String MANIFEST_OS                 = "os";
+    public static final String MANIFEST_ARCHITECTURE       = "architecture";
+    public static final String MANIFEST_VARIANT            = "variant";
     
     public static final String BUNDLES_DB                  = "bundles.db";
+    public static final String JDBC_SQLITE                 = "jdbc:sqlite:";
     
     public static final String CATALOG_ICON                = "icon.svg";
     public static final String CATALOG_README              = "README.md";
@@ -108,10 +218,11 @@ public class DockerXConstants {
     public static final String CMD_LINE_BUILDX             = "buildx";
     public static final String CMD_LINE_BUNDLE             = "bundle";
     public static final String CMD_LINE_CREATE             = "create";
+    public static final String CMD_LINE_IMAGE              = "image";
     public static final String CMD_LINE_DOCKER             = "docker";
     public static final String CMD_LINE_DOCKER_CONTAINER   = "docker-container";
     public static final String CMD_LINE_IMAGETOOLS         = "imagetools";
-    public static final String CMD_LINE_INIT               = "init";
+    public static final String CMD_LINE_INFO               = "info";
     public static final String CMD_LINE_INSPECT            = "inspect";
     public static final String CMD_LINE_LATEST             = "latest";
     public static final String CMD_LINE_LOGIN              = "login";
@@ -125,7 +236,6 @@ public class DockerXConstants {
     public static final String CMD_LINE_REGISTRY           = "registry";
     public static final String CMD_LINE_RENDER             = "render";
     public static final String CMD_LINE_RUN                = "run";
-    public static final String CMD_LINE_SQLITE             = "sqlite3";
     public static final String CMD_LINE_SYSTEM             = "system";
     public static final String CMD_LINE_USE                = "use";
     public static final String CMD_LINE_VALIDATE           = "validate";
@@ -140,20 +250,24 @@ public class DockerXConstants {
     public static final String CMD_LINE_OPT_ALL_TAGS       = "--all-tags";
     public static final String CMD_LINE_OPT_AMEND          = "--amend";
     public static final String CMD_LINE_OPT_BUILD_ARG      = "--build-arg";
+    public static final String CMD_LINE_OPT_CACHE_FROM     = "--cache-from";
+    public static final String CMD_LINE_OPT_CACHE_TO       = "--cache-to";
     public static final String CMD_LINE_OPT_BUNDLE_IMAGES  = "--bundle-images";
     public static final String CMD_LINE_OPT_CHANNELS       = "--channels";
     public static final String CMD_LINE_OPT_CONTAINER_TOOL = "--container-tool";
     public static final String CMD_LINE_OPT_DEFAULT        = "--default";
-    public static final String CMD_LINE_OPT_CHANNEL_DEF    = "--default-channel";
-    public static final String CMD_LINE_OPT_DESCRIPTION    = "--description";
     public static final String CMD_LINE_OPT_DIRECTORY      = "--directory";
+    public static final String CMD_LINE_OPT_BUILDER        = "--builder";
     public static final String CMD_LINE_OPT_FILE           = "--file";
+    public static final String CMD_LINE_OPT_FILTER         = "--filter";
     public static final String CMD_LINE_OPT_FORCE          = "--force";
-    public static final String CMD_LINE_OPT_ICON           = "--icon";
+    public static final String CMD_LINE_OPT_FORMAT         = "--format";
     public static final String CMD_LINE_OPT_IMAGE_BUILDER  = "--image-builder";
+    public static final String CMD_LINE_OPT_KEEP_STORAGE   = "--keep-storage";
     public static final String CMD_LINE_OPT_MODE           = "--mode";
     public static final String CMD_LINE_OPT_NAME           = "--name";
     public static final String CMD_LINE_OPT_LOAD           = "--load";
+    public static final String CMD_LINE_OPT_METADATA_FILE  = "--metadata-file";
     public static final String CMD_LINE_OPT_OUTPUT         = "--output";
     public static final String CMD_LINE_OPT_PACKAGE        = "--package";
     public static final String CMD_LINE_OPT_PERSISTENT     = "--persistent";
@@ -172,7 +286,6 @@ public class DockerXConstants {
 
     public static final String  VERIFY_MIN_DOCKER_VER      = "19.03";
     public static final String  VERIFY_MIN_OPM_VER         = "1.15";
-    public static final String  VERIFY_MIN_SQLITE_VER      = "3.26";
     public static final String  VERIFY_GITHUB_GIT          = "git@";
     public static final String  VERIFY_GITHUB_HTTP         = "http";
     
@@ -183,11 +296,13 @@ public class DockerXConstants {
     public static final String  VERIFY_GITHUB_REPO_URI     = "A valid GitHub URI is required.";
     public static final String  VERIFY_OPM_REQUIRED        = "Operator Package Manager is required.";
     public static final String  VERIFY_OPM_VERSION         = "Operator Package Manager must be greater than or equal to 1.15+.";
-    public static final String  VERIFY_SQLITE_VERSION      = "SQLite must be greater than or equal to 3.26+.";
     
     public static final String  MESSAGE_GITHUB_CLONE           = "GitHub Clone Exception" + NEW_LINE;
     public static final String  MESSAGE_ACTION_EXEC            = "Action Execute Exception" + NEW_LINE;
     public static final String  MESSAGE_ACTION_ITEM            = "Action Item" + NEW_LINE;
+    public static final String  MESSAGE_BUILDER_IDLE           = "Removing idle builder: {0}" + NEW_LINE;
+    public static final String  MESSAGE_BUILDER_IN_USE         = "Builder still in use, not removed: {0}" + NEW_LINE;
+    public static final String  MESSAGE_BUILDER_STATE          = "Builder State Exception" + NEW_LINE;
     public static final String  MESSAGE_CMD_ACTIVATE_MULTIARCH = "Activating Multi-Arch" + NEW_LINE;
     public static final String  MESSAGE_CMD_BUILD_IMAGE        = "Building image" + NEW_LINE;
     public static final String  MESSAGE_CMD_CREATE_BUILDER     = "Creating a builder" + NEW_LINE;
@@ -195,35 +310,66 @@ public class DockerXConstants {
     public static final String  MESSAGE_CMD_GET_BUILDERS       = "Getting list of builders" + NEW_LINE;
     public static final String  MESSAGE_CMD_INSPECT_IMAGE      = "Inspecting image" + NEW_LINE;
     public static final String  MESSAGE_CMD_INSPECT_MANIFEST   = "Inspecting list manifest" + NEW_LINE;
+    public static final String  MESSAGE_CMD_INSPECT_STORE      = "Inspecting image store" + NEW_LINE;
     public static final String  MESSAGE_CMD_LOGIN_DOCKER_XAUTH = "Logging into registry" + NEW_LINE;
     public static final String  MESSAGE_CMD_PRUNE_IMAGES       = "Pruning images" + NEW_LINE;
     public static final String  MESSAGE_CMD_PRUNE_SYS_IMAGES   = "Pruning system images" + NEW_LINE;
     public static final String  MESSAGE_CMD_PRUNE_VOLUMES      = "Pruning volumes" + NEW_LINE;
+    public static final String  MESSAGE_CMD_PRUNE_SKIPPED      = "Pruning skipped: {0}" + NEW_LINE;
     public static final String  MESSAGE_CMD_PUSH_IMAGE         = "Pushing image" + NEW_LINE;
     public static final String  MESSAGE_CMD_PUSH_MANIFEST      = "Pushing list manifest" + NEW_LINE;
     public static final String  MESSAGE_CMD_REMOVE_BUILDER     = "Removing a builder" + NEW_LINE;
+    public static final String  MESSAGE_CMD_REMOVE_IMAGES      = "Removing images built by DockerX" + NEW_LINE;
     public static final String  MESSAGE_CMD_REMOVE_MANIFEST    = "Removing list manifest" + NEW_LINE;
     public static final String  MESSAGE_CMD_USE_BUILDER        = "Using a builder" + NEW_LINE;
     public static final String  MESSAGE_DOCKER_LOGIN_REG       = "Docker login: Registry({0}), Username({1})" + NEW_LINE;
+    public static final String  MESSAGE_DOCKER_LOGIN_SWITCH    = "Docker login: Registry({0}) session of {1} replaced by {2}" + NEW_LINE;
+    public static final String  MESSAGE_DOCKER_RELOGIN         = "Docker login expired, logging in again: ";
     public static final String  MESSAGE_DOCKER_IMAGE_ID        = "Docker Client Image ID" + NEW_LINE;
     public static final String  MESSAGE_DOCKER_REGISTRY        = "Docker Registry not found" + NEW_LINE;
     public static final String  MESSAGE_DOCKER_BUILD           = "Docker Build" + NEW_LINE;
+    public static final String  MESSAGE_DOCKER_LOAD_PLATFORMS  = "Multi-platform --load needs the containerd image store, building each platform separately" + NEW_LINE;
     public static final String  MESSAGE_DOWNLOAD_URL           = "Download URL Exception" + NEW_LINE;
     public static final String  MESSAGE_DOWNLOAD_EXEC          = "Download Execute Exception" + NEW_LINE;
+    public static final String  MESSAGE_DOWNLOAD_SKIPPED       = "Download skipped, {0} already exists" + NEW_LINE;
+    public static final String  MESSAGE_DOWNLOAD_STATUS        = "Download Status Exception: ";
+    public static final String  MESSAGE_DOWNLOAD_TIMEOUT       = "Download timed out after {0} minute(s): {1}" + NEW_LINE;
     public static final String  MESSAGE_DIGEST                 = "Digest Exception" + NEW_LINE;
     public static final String  MESSAGE_DIGEST_SUBST           = "Digest Substitution: Digest({0}), File({1})" + NEW_LINE;
     public static final String  MESSAGE_DIGEST_EXEC            = "Digest Execute Exception" + NEW_LINE;
+    public static final String  MESSAGE_REGISTRY_FALLBACK      = "Registry client unavailable for {0}, falling back to docker: {1}";
+    public static final String  MESSAGE_DIGEST_CACHE_HIT       = "Digest cache hit: {0}";
+    public static final String  MESSAGE_DIGEST_CACHE           = "Digest Cache Exception" + NEW_LINE;
+    public static final String  MESSAGE_REGISTRY_STATUS        = "Registry Request Exception" + NEW_LINE;
     public static final String  MESSAGE_DOCKER_BUILD_EXEC      = "Docker Build Execute Exception" + NEW_LINE;
+    public static final String  MESSAGE_DOCKER_IGNORE          = "Docker Ignore Exception" + NEW_LINE;
+    public static final String  MESSAGE_CONTEXT_EXEC           = "Build Context Exception" + NEW_LINE;
+    public static final String  MESSAGE_CONTEXT_STAGED         = "Build context staged: {0} entries in {1} (hard links: {2})";
+    public static final String  MESSAGE_BUILD_DIGESTS          = "Docker Build Digests Exception" + NEW_LINE;
+    public static final String  MESSAGE_PRUNE_EXEC             = "Prune Execute Exception" + NEW_LINE;
+    public static final String  MESSAGE_PRUNE_POLICY           = "Prune Policy Exception: Unknown policy ''{0}'', valid values are {1}" + NEW_LINE;
+    public static final String  MESSAGE_CMD_TIMEOUT            = "Command timed out after {0} minute(s): {1}" + NEW_LINE;
+    public static final String  MESSAGE_CMD_INTERRUPTED        = "Command interrupted: {0}" + NEW_LINE;
+    public static final String  MESSAGE_PARALLEL_EXEC          = "Parallel Execute Exception" + NEW_LINE;
     public static final String  MESSAGE_OPM_BUNDLE_BUILD       = "Operator Package Manager Bundle Build" + NEW_LINE;
     public static final String  MESSAGE_OPM_EXEC               = "Operator Package Manager Execute Exception" + NEW_LINE;
     public static final String  MESSAGE_OPM_INIT               = "Operator Package Manager Init OLM" + NEW_LINE;
     public static final String  MESSAGE_OPM_REGISTRY_ADD       = "Operator Package Manager Registry Add" + NEW_LINE;
     public static final String  MESSAGE_OPM_RENDER_BUNDLE      = "Operator Package Manager Bundle Render" + NEW_LINE;
+    public static final String  MESSAGE_OPM_RENDER_CURRENT     = "Operator Package Manager render current, skipped: {0} ({1})";
+    public static final String  MESSAGE_OPM_RENDER_SUMMARY     = "Operator Package Manager rendering {0} of {1} bundle(s)";
+    public static final String  MESSAGE_OPM_RENDER_MANIFEST    = "Operator Package Manager Render Manifest Exception" + NEW_LINE;
+    public static final String  MESSAGE_FBC_CATALOG            = "File-based catalog generated: {0} bundle(s), {1} channel(s) in {2}";
+    public static final String  MESSAGE_FBC_EXEC               = "File-Based Catalog Exception" + NEW_LINE;
+    public static final String  MESSAGE_FBC_PACKAGE            = "File-Based Catalog package name is not set" + NEW_LINE;
     public static final String  MESSAGE_OPM_STORE_OUTPUT       = "Operator Package Manager Store Output" + NEW_LINE;
     public static final String  MESSAGE_OPM_VALIDATE           = "Operator Package Manager Validate" + NEW_LINE;
     public static final String  MESSAGE_OPM_VERSION_LIST       = "Operator Package Manager Version List Exception" + NEW_LINE;
-    public static final String  MESSAGE_SQLITE_EXEC            = "SQLite Execute Exception" + NEW_LINE;
     public static final String  MESSAGE_SQLITE_STMT_EXEC       = "SQLite Execute Statement Exception" + NEW_LINE;
+    public static final String  MESSAGE_SQLITE_PARAMETERS      = "SQLite statement expects {0} parameter(s): {1}";
+    public static final String  MESSAGE_SQLITE_PARAMETER_LINE  = "SQLite parameter file has a malformed quoted field: {0}";
+    public static final String  MESSAGE_SQLITE_STATEMENT       = "SQLite statement [{0}]: {1} row(s), {2} execution(s) in {3} ms: {4}";
+    public static final String  MESSAGE_SQLITE_SUMMARY         = "SQLite executed {0} statement(s), {1} row(s) in {2} ms against {3}";
     public static final String  MESSAGE_VERSION_COMPARISON     = "Version Comparison Exception" + NEW_LINE;
     
     ///
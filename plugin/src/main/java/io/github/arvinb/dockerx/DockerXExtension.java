@@ -21,6 +21,7 @@ package io.github.arvinb.dockerx;
 
 import java.util.*;
 import java.nio.file.*;
+import java.text.MessageFormat;
 import javax.inject.Inject;
 import org.gradle.api.*;
 import org.gradle.api.file.*;
@@ -29,9 +30,15 @@ import org.gradle.api.provider.*;
 import io.github.arvinb.dockerx.config.*;
 import io.github.arvinb.dockerx.config.DockerXCredentialConfig.*;
 import io.github.arvinb.dockerx.config.DockerXDigestConfig.DigestItem;
+import io.github.arvinb.dockerx.config.DockerXDigestConfig.ResolveItem;
+import io.github.arvinb.dockerx.config.DockerXDockerConfig.CacheItem;
+import io.github.arvinb.dockerx.config.DockerXDockerConfig.CacheType;
 import io.github.arvinb.dockerx.config.DockerXDockerConfig.PlatformItem;
 import io.github.arvinb.dockerx.config.DockerXDownloadConfig.DownloadItem;
 import io.github.arvinb.dockerx.config.DockerXExecuteConfig.*;
+import io.github.arvinb.dockerx.config.DockerXPruneConfig.*;
+import io.github.arvinb.dockerx.config.DockerXSQLiteConfig.PreparedItem;
+import io.github.arvinb.dockerx.util.DockerXOPMUtil;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
 public abstract class DockerXExtension {
@@ -42,6 +49,8 @@ public abstract class DockerXExtension {
     private final Property<String> workingDir;
     private final Property<Boolean> dryrun;
     private final Property<Boolean> skip;
+    private final Property<Integer> commandTimeout;
+    private final MapProperty<String, Integer> commandTimeouts;
 
     private final DockerXCredentialConfig dockerCredConfig, downloadCredConfig, gitHubCredConfig;
 
@@ -52,6 +61,7 @@ public abstract class DockerXExtension {
     private final DockerXExecuteConfig  execConfig;
     private final DockerXGitHubConfig   gitHubConfig;
     private final DockerXOPMConfig      opmConfig;
+    private final DockerXPruneConfig    pruneConfig;
     private final DockerXSQLiteConfig   sqliteConfig;
 
     @Inject
@@ -64,6 +74,9 @@ public abstract class DockerXExtension {
         this.dryrun     = objectFactory.property(Boolean.class);
         this.skip       = objectFactory.property(Boolean.class);
 
+        this.commandTimeout  = objectFactory.property(Integer.class);
+        this.commandTimeouts = objectFactory.mapProperty(String.class, Integer.class);
+
         this.dockerCredConfig   = objectFactory.newInstance(DockerXCredentialConfig.class);
         this.downloadCredConfig = objectFactory.newInstance(DockerXCredentialConfig.class);
         this.gitHubCredConfig   = objectFactory.newInstance(DockerXCredentialConfig.class);
@@ -75,6 +88,7 @@ public abstract class DockerXExtension {
         this.execConfig     = objectFactory.newInstance(DockerXExecuteConfig.class);
         this.gitHubConfig   = objectFactory.newInstance(DockerXGitHubConfig.class);
         this.opmConfig      = objectFactory.newInstance(DockerXOPMConfig.class);
+        this.pruneConfig    = objectFactory.newInstance(DockerXPruneConfig.class);
         this.sqliteConfig   = objectFactory.newInstance(DockerXSQLiteConfig.class);
 
         initDefaultValues();
@@ -86,6 +100,9 @@ public abstract class DockerXExtension {
     public Property<Boolean> getDryrun()    { return dryrun;     }
     public Property<Boolean> getSkip()      { return skip;       }
 
+    public Property<Integer> getCommandTimeout()              { return commandTimeout;  }
+    public MapProperty<String, Integer> getCommandTimeouts()  { return commandTimeouts; }
+
     ///
     
     public void dockerCreds(Action<? super DockerXCredentialConfig> action)   { action.execute(dockerCredConfig);   }
@@ -98,6 +115,7 @@ public abstract class DockerXExtension {
     public void execSpecs(Action<? super DockerXExecuteConfig> action)        { action.execute(execConfig);         }
     public void gitHubSpecs(Action<? super DockerXGitHubConfig> action)       { action.execute(gitHubConfig);       }
     public void opmSpecs(Action<? super DockerXOPMConfig> action)             { action.execute(opmConfig);          }
+    public void pruneSpecs(Action<? super DockerXPruneConfig> action)         { action.execute(pruneConfig);        }
     public void sqliteSpecs(Action<? super DockerXSQLiteConfig> action)       { action.execute(sqliteConfig);       }
 
     public DockerXCredentialConfig getDockerCredSpecs()   { return this.dockerCredConfig;   }
@@ -110,6 +128,7 @@ public abstract class DockerXExtension {
     public DockerXExecuteConfig getExecSpecs()            { return this.execConfig;         }
     public DockerXGitHubConfig getGitHubSpecs()           { return this.gitHubConfig;       }
     public DockerXOPMConfig getOpmSpecs()                 { return this.opmConfig;          }
+    public DockerXPruneConfig getPruneSpecs()             { return this.pruneConfig;        }
     public DockerXSQLiteConfig getSqliteSpecs()           { return this.sqliteConfig;       }
 
     ///
@@ -119,20 +138,37 @@ public abstract class DockerXExtension {
         getWorkingDir().convention(projectLayout.getBuildDirectory().getAsFile().get().getAbsolutePath());
         getDryrun().convention(DEFAULT_TRUE);
         getSkip().convention(DEFAULT_FALSE);
+        getCommandTimeout().convention(DEFAULT_COMMAND_TIMEOUT);
+        getCommandTimeouts().convention(new HashMap<String, Integer>());
 
         getDockerSpecs().getDevbuild().convention(DEFAULT_FALSE);
         getDockerSpecs().getMultiArchReset().convention(DEFAULT_FALSE);
         getDockerSpecs().getClean().convention(DEFAULT_TRUE);
         getDockerSpecs().getPush().convention(DEFAULT_FALSE);
+        getDockerSpecs().getPlatformTags().convention(DEFAULT_FALSE);
+        getDockerSpecs().getParallelism().convention(DEFAULT_PARALLELISM);
+        getDockerSpecs().getSlimContext().convention(DEFAULT_TRUE);
         getDockerSpecs().getBuilder().convention(EMPTY_STRING);
+        getDockerSpecs().getKeepBuilder().convention(DEFAULT_FALSE);
+        getDockerSpecs().getBuilderIdleTimeout().convention(DEFAULT_BUILDER_IDLE);
+        getDockerSpecs().getCacheMode().convention(DEFAULT_CACHE_MODE);
+
+        getDigestSpecs().getParallelism().convention(DEFAULT_DIGEST_PARALLELISM);
+        getDigestSpecs().getRegistryConcurrency().convention(DEFAULT_REGISTRY_LIMIT);
+        getDigestSpecs().getCacheRegistries().convention(new ArrayList<String>());
+        getDigestSpecs().getCacheTtl().convention(DEFAULT_DIGEST_CACHE_TTL);
+        getDigestSpecs().getImmutableTags().convention(new ArrayList<String>());
 
         getDownloadSpecs().getOverwrite().convention(DEFAULT_FALSE);
         getDownloadSpecs().getIdentityToken().convention(DEFAULT_FALSE);
+        getDownloadSpecs().getAcceptAnyCertificate().convention(DEFAULT_FALSE);
+        getDownloadSpecs().getParallelism().convention(DEFAULT_PARALLELISM);
 
         getExecSpecs().getHideArgs().convention(DEFAULT_TRUE);
 
         getOpmSpecs().getCatalogIcon().convention(CATALOG_ICON);
         getOpmSpecs().getCatalogReadme().convention(CATALOG_README);
+        getOpmSpecs().getCatalogFile().convention(getOpmSpecs().getOutputFormat().map( format -> DEFAULT_CATALOG + "." + format ));
         getOpmSpecs().getClean().convention(DEFAULT_TRUE);
         getOpmSpecs().getPush().convention(DEFAULT_FALSE);
         getOpmSpecs().getOverwriteMetadata().convention(DEFAULT_FALSE);
@@ -143,9 +179,17 @@ public abstract class DockerXExtension {
         getOpmSpecs().getChannels().convention(objectFactory.listProperty(String.class));
         getOpmSpecs().getBundleImages().convention(objectFactory.listProperty(String.class));
         getOpmSpecs().getBundleSources().convention(objectFactory.listProperty(String.class));
+        getOpmSpecs().getRenderParallelism().convention(DEFAULT_RENDER_PARALLELISM);
+
+        getPruneSpecs().getPolicy().convention(DEFAULT_PRUNE_POLICY);
+        getPruneSpecs().getKeepStorage().convention(EMPTY_STRING);
+        getPruneSpecs().getUntil().convention(EMPTY_STRING);
+        getPruneSpecs().getLabels().convention(objectFactory.listProperty(String.class));
+        getPruneSpecs().getOwnedOnly().convention(DEFAULT_TRUE);
 
         getSqliteSpecs().getDataSourceDb().convention(BUNDLES_DB);
         getSqliteSpecs().getStatements().convention(objectFactory.listProperty(String.class));
+        getSqliteSpecs().getScripts().convention(objectFactory.listProperty(String.class));
     }
 
     ///
@@ -200,6 +244,22 @@ public abstract class DockerXExtension {
         return catalogIcon;
     }
 
+    public RegularFileProperty getCatalogFile() {
+        RegularFileProperty catalogFile = objectFactory.fileProperty();
+        if ( getOpmSpecs().getCatalogFile().isPresent() )
+            catalogFile.set( getWorkingDirectory().file(getOpmSpecs().getCatalogFile().get()) );
+        return catalogFile;
+    }
+
+    public ListProperty<RegularFile> getRenderOutputFiles() {
+        ListProperty<RegularFile> renderOutputs = objectFactory.listProperty(RegularFile.class);
+        // The files written by dockerXOPMRender, one per bundle source tag
+        DockerXOPMUtil.getRenderOutputs(getOpmSpecs().getBundleSources().get(), getOpmSpecs().getOutputPrefix().get(), getOpmSpecs().getOutputFormat().get()).keySet().forEach( outputFile -> {
+            renderOutputs.add( getWorkingDirectory().file(outputFile) );
+        });
+        return renderOutputs;
+    }
+
     public RegularFileProperty getDataSourceDbFile() {
         RegularFileProperty dataSourceDb = objectFactory.fileProperty();
         if ( getSqliteSpecs().getDataSourceDb().isPresent() )
@@ -207,6 +267,30 @@ public abstract class DockerXExtension {
         return dataSourceDb;
     }
 
+    public ListProperty<RegularFile> getSqliteScriptFiles() {
+        ListProperty<RegularFile> scriptFiles = objectFactory.listProperty(RegularFile.class);
+        if ( getSqliteSpecs().getScripts().isPresent() )
+            getSqliteSpecs().getScripts().get().forEach( script -> scriptFiles.add( getWorkingDirectory().file(script) ) );
+        return scriptFiles;
+    }
+
+    public ListProperty<PreparedItem> getPreparedStatements() {
+        ListProperty<PreparedItem> preparedStatements = objectFactory.listProperty(PreparedItem.class);
+        // Key == Statement | Value == Parameter Sets
+        if ( getSqliteSpecs().getPreparedStatements().isPresent() ) {
+            getSqliteSpecs().getPreparedStatements().get().forEach( (statement, parameterSets) -> {
+                preparedStatements.add( new PreparedItem(statement, parameterSets, null) );
+            });
+        }
+        // Key == Statement | Value == Parameter File
+        if ( getSqliteSpecs().getParameterFiles().isPresent() ) {
+            getSqliteSpecs().getParameterFiles().get().forEach( (statement, parameterFile) -> {
+                preparedStatements.add( new PreparedItem(statement, null, getWorkingDirectory().file(parameterFile).get().getAsFile()) );
+            });
+        }
+        return preparedStatements;
+    }
+
     public RegularFileProperty getDockerfile() {
         RegularFileProperty dockerfile = objectFactory.fileProperty();
         if ( getDockerSpecs().getDockerfile().isPresent() )
@@ -220,13 +304,7 @@ public abstract class DockerXExtension {
         if ( credConfig.getRegistryCredentials().isPresent() ) {
             for ( Map.Entry<String, Map<String, String>> registryCred : credConfig.getRegistryCredentials().get().entrySet() ) {
                 for ( Map.Entry<String, String> credEntry : registryCred.getValue().entrySet() ) {
-                    Property<String> registry = objectFactory.property(String.class);
-                    Property<String> username = objectFactory.property(String.class);
-                    Property<String> password = objectFactory.property(String.class);
-                    registry.set(registryCred.getKey());
-                    username.set(credEntry.getKey());
-                    password.set(credEntry.getValue());
-                    registryCredentials.add(new RegistryCredential(username, password, registry));
+                    registryCredentials.add(new RegistryCredential(credEntry.getKey(), credEntry.getValue(), registryCred.getKey()));
                 }
             }
         }
@@ -239,12 +317,9 @@ public abstract class DockerXExtension {
         if ( getExecSpecs().getActions().isPresent() ) {
             for ( Map.Entry<String, String> actionItem : getExecSpecs().getActions().get().entrySet() ) {
                 if ( actionItem.getValue() != null ) {
-                    RegularFileProperty actionFile = objectFactory.fileProperty();
-                    ListProperty<String> actionArgs = objectFactory.listProperty(String.class);
-                    List<String> args = Arrays.asList( actionItem.getValue().split("\\s+") );
-                    actionFile.set(getWorkingDirectory().file(actionItem.getKey()));
-                    actionArgs.set(args);
-                    actions.add(new ActionItem(getWorkingDirectory(), actionFile, actionArgs));
+                    List<String> actionArgs = Arrays.asList( actionItem.getValue().split("\\s+") );
+                    java.io.File actionFile = getWorkingDirectory().file(actionItem.getKey()).get().getAsFile();
+                    actions.add(new ActionItem(getWorkingDirectory().get().getAsFile(), actionFile, actionArgs));
                 }
             }
         }
@@ -257,12 +332,8 @@ public abstract class DockerXExtension {
         if ( getDigestSpecs().getDigests().isPresent() ) {
             getDigestSpecs().getDigests().get().forEach( (image, targetFiles) -> {
                 if ((targetFiles == null) || (targetFiles.isEmpty())) return; // Skip this iteration
-                java.util.List<RegularFileProperty> files = new java.util.ArrayList<RegularFileProperty>();
-                targetFiles.forEach( targetFile -> {
-                    RegularFileProperty digestFile = objectFactory.fileProperty();
-                    digestFile.set(getWorkingDirectory().file(targetFile));
-                    files.add(digestFile);
-                } );
+                java.util.List<java.io.File> files = new java.util.ArrayList<java.io.File>();
+                targetFiles.forEach( targetFile -> files.add(getWorkingDirectory().file(targetFile).get().getAsFile()) );
                 digests.add( new DigestItem( image, files ) );
             } );
         }
@@ -275,9 +346,7 @@ public abstract class DockerXExtension {
         if ( getDownloadSpecs().getDownloads().isPresent() ) {
             getDownloadSpecs().getDownloads().get().forEach( (downloadFolder, downloadUrl) -> {
                 if ( downloadUrl != null ) {
-                    DirectoryProperty downloadDir = objectFactory.directoryProperty();
-                    downloadDir.set( getWorkingDirectory().dir(downloadFolder) );
-                    downloads.add( new DownloadItem(downloadDir, downloadUrl) );
+                    downloads.add( new DownloadItem(getWorkingDirectory().dir(downloadFolder).get().getAsFile(), downloadUrl) );
                 }
             });
         }
@@ -296,13 +365,47 @@ public abstract class DockerXExtension {
         return platforms;
     }
 
-    public MapProperty<String, RegularFileProperty> getSecrets() {
-        MapProperty<String, RegularFileProperty> secrets = objectFactory.mapProperty(String.class, RegularFileProperty.class);
+    public Property<CacheItem> getCacheItem() {
+        Property<CacheItem> cacheItem = objectFactory.property(CacheItem.class);
+        CacheType cacheType = CacheType.fromString(getDockerSpecs().getCacheType().getOrElse(EMPTY_STRING));
+        if ( cacheType != null ) {
+            String cacheRef = getDockerSpecs().getCacheRef().getOrElse(EMPTY_STRING);
+            if ( cacheType == CacheType.LOCAL )
+                cacheRef = getWorkingDirectory().dir(cacheRef).get().getAsFile().getPath();
+            if ( (cacheType == CacheType.INLINE) || (!cacheRef.isBlank()) )
+                cacheItem.set( new CacheItem(cacheType, cacheRef, getDockerSpecs().getCacheMode().get()) );
+        }
+        return cacheItem;
+    }
+
+    public Property<ResolveItem> getResolveItem() {
+        Property<ResolveItem> resolveItem = objectFactory.property(ResolveItem.class);
+        resolveItem.set( new ResolveItem( getDigestSpecs().getParallelism().get(),
+                                          getDigestSpecs().getRegistryConcurrency().get(),
+                                          getDigestSpecs().getCacheRegistries().get(),
+                                          getDigestSpecs().getCacheTtl().get(),
+                                          getDigestSpecs().getImmutableTags().get() ) );
+        return resolveItem;
+    }
+
+    public Property<PruneItem> getPruneItem() {
+        Property<PruneItem> pruneItem = objectFactory.property(PruneItem.class);
+        PrunePolicy prunePolicy = PrunePolicy.fromString(getPruneSpecs().getPolicy().get());
+        if ( prunePolicy == null )
+            throw new GradleException(MessageFormat.format(MESSAGE_PRUNE_POLICY, getPruneSpecs().getPolicy().get(), Arrays.toString(PrunePolicy.values())));
+        pruneItem.set( new PruneItem( prunePolicy,
+                                      getPruneSpecs().getKeepStorage().get(),
+                                      getPruneSpecs().getUntil().get(),
+                                      getPruneSpecs().getLabels().get(),
+                                      getPruneSpecs().getOwnedOnly().get() ) );
+        return pruneItem;
+    }
+
+    public MapProperty<String, java.io.File> getSecrets() {
+        MapProperty<String, java.io.File> secrets = objectFactory.mapProperty(String.class, java.io.File.class);
         if ( getDockerSpecs().getSecrets().isPresent() ) {
             getDockerSpecs().getSecrets().get().forEach( (secretId, secretFilename) -> {
-                RegularFileProperty secret = objectFactory.fileProperty();
-                secret.set( projectLayout.getProjectDirectory().file(secretFilename) );
-                secrets.put(secretId, secret);
+                secrets.put(secretId, projectLayout.getProjectDirectory().file(secretFilename).getAsFile());
             });
         }
         return secrets;
@@ -19,7 +19,10 @@
 
 package io.github.arvinb.dockerx;
 
+import java.io.*;
 import org.gradle.api.*;
+import org.gradle.api.provider.*;
+import io.github.arvinb.dockerx.service.*;
 import io.github.arvinb.dockerx.task.*;
 
 import static io.github.arvinb.dockerx.DockerXConstants.*;
@@ -29,6 +32,19 @@ public class DockerXPlugin implements Plugin<Project> {
     public void apply(Project project) {
         
         project.getExtensions().create(EXTENSION_NAME, DockerXExtension.class, project.getObjects(), project.getLayout());
+        
+        project.getGradle().getSharedServices().registerIfAbsent(SERVICE_BUILDER, DockerXBuilderService.class, spec -> {
+            spec.getParameters().getStateDir().set( new File(project.getGradle().getGradleUserHomeDir(), BUILDER_STATE_DIR) );
+        });
+        
+        Provider<DockerXSchedulerService> schedulerService = project.getGradle().getSharedServices().registerIfAbsent(SERVICE_SCHEDULER, DockerXSchedulerService.class, spec -> {
+            spec.getParameters().getMaxConcurrency().set( project.getProviders().gradleProperty(PROPERTY_MAX_CONCURRENCY).map(Integer::valueOf).orElse(DEFAULT_MAX_CONCURRENCY) );
+        });
+        
+        project.getGradle().getSharedServices().registerIfAbsent(SERVICE_REGISTRY, DockerXRegistryService.class, spec -> {
+            spec.getParameters().getCacheDir().set( new File(project.getGradle().getGradleUserHomeDir(), DIGEST_CACHE_DIR) );
+            spec.getParameters().getScheduler().set(schedulerService);
+        });
 
         project.getTasks().register(TASK_GITHUB,         DockerXGitHub.class       ).configure( publish -> { publish.setGroup(TASK_GROUP); publish.setDescription(DESC_GITHUB); });
         project.getTasks().register(TASK_DOWNLOAD,       DockerXDownload.class     ).configure( publish -> { publish.setGroup(TASK_GROUP); publish.setDescription(DESC_DOWNLOAD); });
@@ -37,10 +53,16 @@ public class DockerXPlugin implements Plugin<Project> {
         project.getTasks().register(TASK_DIGEST,         DockerXDigest.class       ).configure( publish -> { publish.setGroup(TASK_GROUP); publish.setDescription(DESC_DIGEST); });
         project.getTasks().register(TASK_EXECUTE,        DockerXExecute.class      ).configure( publish -> { publish.setGroup(TASK_GROUP); publish.setDescription(DESC_EXECUTE); });
         project.getTasks().register(TASK_OPM_BUNDLE,     DockerXOPMBundle.class    ).configure( publish -> { publish.setGroup(TASK_GROUP); publish.setDescription(DESC_OPM_BUNDLE); });
+        project.getTasks().register(TASK_OPM_CATALOG,    DockerXOPMCatalog.class   ).configure( publish -> { publish.setGroup(TASK_GROUP); publish.setDescription(DESC_OPM_CATALOG); });
         project.getTasks().register(TASK_OPM_INIT,       DockerXOPMInit.class      ).configure( publish -> { publish.setGroup(TASK_GROUP); publish.setDescription(DESC_OPM_INIT); });
         project.getTasks().register(TASK_OPM_REGISTRY,   DockerXOPMRegistry.class  ).configure( publish -> { publish.setGroup(TASK_GROUP); publish.setDescription(DESC_OPM_REGISTRY); });
         project.getTasks().register(TASK_OPM_RENDER,     DockerXOPMRender.class    ).configure( publish -> { publish.setGroup(TASK_GROUP); publish.setDescription(DESC_OPM_RENDER); });
         project.getTasks().register(TASK_OPM_VALIDATE,   DockerXOPMValidate.class  ).configure( publish -> { publish.setGroup(TASK_GROUP); publish.setDescription(DESC_OPM_VALIDATE); });
         project.getTasks().register(TASK_SQLITE_EXECUTE, DockerXSQLiteExecute.class).configure( publish -> { publish.setGroup(TASK_GROUP); publish.setDescription(DESC_SQLITE_EXECUTE); });
+        
+        // The catalog merges the rendered bundles, taking them from the render task carries the task dependency
+        project.getTasks().named(TASK_OPM_CATALOG, DockerXOPMCatalog.class).configure( catalog -> {
+            catalog.getBundleFiles().from( project.getTasks().named(TASK_OPM_RENDER, DockerXOPMRender.class).map( render -> render.getOutputFiles().values() ) );
+        });
     }
 }
@@ -48,23 +48,25 @@ public interface DockerXCredentialConfig {
     /**
      * Internal Class to hold a Registry Credential
      */
-    public class RegistryCredential {
+    public class RegistryCredential implements java.io.Serializable {
 
-        private final Property<String> username;
-        private final Property<String> password;
-        private final Property<String> registry;
+        private static final long serialVersionUID = 1L;
+
+        private final String username;
+        private final String password;
+        private final String registry;
 
         /// Constructor
 
-        public RegistryCredential(Property<String> username, Property<String> password, Property<String> registry) {
+        public RegistryCredential(String username, String password, String registry) {
             this.username = username;
             this.password = password;
             this.registry = registry;
         }
 
-        public Property<String> getUsername() { return username; }
-        public Property<String> getPassword() { return password; }
-        public Property<String> getRegistry() { return registry; }
+        public String getUsername() { return username; }
+        public String getPassword() { return password; }
+        public String getRegistry() { return registry; }
     }
 
 }
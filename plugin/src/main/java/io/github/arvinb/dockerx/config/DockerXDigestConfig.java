@@ -33,13 +33,45 @@ public interface DockerXDigestConfig {
      */
     @Input @Optional
     public MapProperty<String, java.util.List<String>> getDigests();
+    
+    /**
+     * Maximum number of images resolved concurrently, capped by dockerx.maxConcurrency (Default: 16)
+     */
+    @Input @Optional
+    public Property<Integer> getParallelism();
+    
+    /**
+     * Maximum number of concurrent requests per registry host (Default: 4)
+     */
+    @Input @Optional
+    public Property<Integer> getRegistryConcurrency();
+    
+    /**
+     * List of registry hosts whose tag digests are cached on disk across builds (opt-in)
+     */
+    @Input @Optional
+    public ListProperty<String> getCacheRegistries();
+    
+    /**
+     * Minutes a cached tag digest stays valid before it is revalidated (Default: 60)
+     */
+    @Input @Optional
+    public Property<Integer> getCacheTtl();
+    
+    /**
+     * List of tag patterns (regular expressions) that never move and never need revalidation
+     */
+    @Input @Optional
+    public ListProperty<String> getImmutableTags();
 
     ///
 
-    public class DigestItem {
+    public class DigestItem implements java.io.Serializable {
     
+        private static final long serialVersionUID = 1L;
+        
         private final String image;
-        private final java.util.List<RegularFileProperty> targetFiles;
+        private final java.util.List<java.io.File> targetFiles;
         
         private boolean listManifest = false;
         private String imageDigest = EMPTY_STRING;
@@ -49,10 +81,10 @@ public interface DockerXDigestConfig {
         
         public DigestItem(String image) throws GradleException {
             
-            this(image, new java.util.ArrayList<RegularFileProperty>());
+            this(image, new java.util.ArrayList<java.io.File>());
         }
         
-        public DigestItem(String image, java.util.List<RegularFileProperty>targetFiles) throws GradleException {
+        public DigestItem(String image, java.util.List<java.io.File> targetFiles) throws GradleException {
             
             this.image = image;
             this.targetFiles = targetFiles;
@@ -63,55 +95,32 @@ public interface DockerXDigestConfig {
         public void execute(String imageManifest) throws GradleException {
             
             setImageDigest(imageManifest);
-            if ( imageDigest.trim().isEmpty() ) return; // Nothing to do
+            updateTargetFiles();
+        }
+        
+        public void execute(ManifestItem manifestItem) throws GradleException {
             
-            targetFiles.forEach( targetFile -> {
-                
-                if (targetFile.get().getAsFile().isFile()) {
-                
-                    try ( java.util.stream.Stream<String> currentContent = java.nio.file.Files.lines(targetFile.get().getAsFile().toPath()) ) {
-                        java.util.List<String> newContent = currentContent.map( line -> updateStringImage(line ))
-                                                                          .collect(java.util.stream.Collectors.toList());
-                        java.nio.file.Files.write(targetFile.get().getAsFile().toPath(), newContent);
-                        
-                    } catch (Exception ex) {
-                        DockerXVerifyUtil.stopGradleException(MESSAGE_DIGEST_EXEC + ex.getMessage());
-                    }
-                }
-                
-            });
+            setImageDigest(manifestItem);
+            updateTargetFiles();
+        }
+        
+        protected void updateTargetFiles() throws GradleException {
+            
+            DockerXDigestUtil.rewriteTargetFiles(java.util.Arrays.asList(this));
         }
 
         ///
 
         public String updateStringImage( String line ) {
-
-            String updatedLine = line;
-            final int slashIndex = line.lastIndexOf('/');
-
-            if ( slashIndex != -1 && ( line.substring(0, slashIndex).contains(".") ) ) {
-
-                String inputImageFullName = line.substring(slashIndex + 1);
-                String inputImageName = "";
-
-                if (inputImageFullName.contains("@sha256:")) {
-                    inputImageName = inputImageFullName.split("@sha256:")[0];
-
-                } else if (inputImageFullName.contains(":")) {
-                    inputImageName = inputImageFullName.split(":")[0];
-                }
-
-                if ( inputImageName.equals(getImageName()) )
-                    updatedLine = line.replace(inputImageFullName, getImageNameDigest());
-            }
-
-            return updatedLine;
+            
+            return DockerXDigestUtil.rewriteImageLine(line, java.util.Collections.singletonMap(getImageName(), this));
         }
         
         ///
         
-        public java.util.List<RegularFileProperty>getTargetFiles()                       { return targetFiles;  }
+        public java.util.List<java.io.File> getTargetFiles()                             { return targetFiles;  }
         public String getImage()                                                         { return image;        }
+        public String getImageDigest()                                                   { return imageDigest;  }
         public boolean isListManifest()                                                  { return listManifest; }
         public java.util.Map<String, DockerXDockerConfig.PlatformItem> getImageDigests() { return imageDigests; }
         
@@ -161,47 +170,42 @@ public interface DockerXDigestConfig {
         
         ///
         
+        public void setImageDigest(ManifestItem manifestItem) {
+            
+            imageDigest = manifestItem.getDigest();
+            listManifest = manifestItem.isListManifest();
+            imageDigests = manifestItem.getImageDigests();
+        }
+        
+        public ManifestItem getManifestItem() {
+            
+            ManifestItem manifestItem = new ManifestItem(image);
+            manifestItem.setDigest(imageDigest);
+            manifestItem.setListManifest(listManifest);
+            manifestItem.getImageDigests().putAll(imageDigests);
+            return manifestItem;
+        }
+        
         public void setImageDigest(String imageManifest) throws GradleException {
             
             try {
                 
-                if (DockerXDigestUtil.isJsonValid(imageManifest)) {
+                com.fasterxml.jackson.databind.JsonNode manifestNode = DockerXManifestUtil.parseJson(imageManifest);
+                
+                if (manifestNode != null) {
                     
                     // Single image manifest
-                    imageDigest = (new com.fasterxml.jackson.databind.ObjectMapper()).readTree(imageManifest).get(DOCKERX_DESCRIPTOR).get((DOCKERX_DIGEST).toLowerCase()).asText();
+                    imageDigest = DockerXManifestUtil.parseManifest(getImage(), manifestNode).getDigest();
                     
                 } else {
                     
-                    // Attempt to parse for a List manifest
-                    java.util.stream.Stream<String> imageManifestStream = java.util.Arrays.asList( imageManifest.split("\\r?\\n") ).stream();
+                    // Attempt to parse for a List manifest in a single pass
+                    DockerXManifestUtil.ImagetoolsParser imagetoolsParser = new DockerXManifestUtil.ImagetoolsParser(getImage());
+                    imageManifest.lines().forEach(imagetoolsParser);
                     
-                    imageDigest = (imageManifestStream.filter( line -> line.startsWith((DOCKERX_DIGEST + ":")) ).findFirst().orElse(EMPTY_STRING)).replaceFirst("^(" + DOCKERX_DIGEST + ":" + ")\\s*", EMPTY_STRING);
-                    listManifest = (!imageDigest.trim().isEmpty());
+                    setImageDigest(imagetoolsParser.getManifestItem());
                     
-                    if (isListManifest()) {
-                        
-                        java.util.
-                        List<String> imageDigestKeys = java.util.Arrays.asList( imageManifest.split("\\r?\\n") ).stream()
-                                                                        .filter(line -> line.contains(getImage() + "@"))
-                                                                        .map(line -> { return new String( (line.split("@"))[1] ); })
-                                                                        .collect(java.util.stream.Collectors.toList());
-                        java.util.
-                        List<String> imageDigestValues = java.util.Arrays.asList( imageManifest.split("\\r?\\n") ).stream()
-                                                                        .filter(line -> line.contains((DOCKERX_PLATFORM + ":")))
-                                                                        .map(line -> { return line.replaceFirst("^\\s*(" + DOCKERX_PLATFORM + ":" + ")\\s*", ""); })
-                                                                        .collect(java.util.stream.Collectors.toList());
-                        java.util.
-                        List<DockerXDockerConfig.PlatformItem> imageDigestPlatforms = imageDigestValues.stream().map(value -> { 
-                        
-                            return DockerXDockerConfig.PlatformItem.fromString(value); 
-                        
-                        }).collect(java.util.stream.Collectors.toList());
-                        
-                        if (imageDigestKeys.size() == imageDigestPlatforms.size()) {
-                            imageDigests = java.util.stream.IntStream.range(0, imageDigestKeys.size()).boxed().collect(java.util.stream.Collectors.toMap( idx -> imageDigestKeys.get(idx), idx -> imageDigestPlatforms.get(idx)));
-                        }
-                        
-                    } else
+                    if (!isListManifest())
                         DockerXVerifyUtil.stopGradleException(MESSAGE_DIGEST + imageManifest); // Danger Mr. Robinson we should have a list manifest
                 
                 }
@@ -219,4 +223,95 @@ public interface DockerXDigestConfig {
         }
     }
     
+    /**
+     * Internal Class to hold the digest resolution settings
+     */
+    public class ResolveItem implements java.io.Serializable {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final int parallelism;
+        private final int registryConcurrency;
+        private final java.util.List<String> cacheRegistries;
+        private final int cacheTtl;
+        private final java.util.List<String> immutableTags;
+        
+        /// Constructor
+        
+        public ResolveItem(int parallelism, int registryConcurrency, java.util.List<String> cacheRegistries, int cacheTtl, java.util.List<String> immutableTags) {
+            this.parallelism = parallelism;
+            this.registryConcurrency = registryConcurrency;
+            this.cacheRegistries = cacheRegistries.stream().map(DockerXRegistryClient.ImageReference::normalizeRegistry).collect(java.util.stream.Collectors.toList());
+            this.cacheTtl = cacheTtl;
+            this.immutableTags = immutableTags;
+        }
+        
+        ///
+        
+        public boolean isCacheable(DockerXRegistryClient.ImageReference imageRef) {
+            
+            // Digest references are already pinned, only tags of opted in registries are cached
+            return cacheRegistries.contains(imageRef.getRegistry()) && !imageRef.getReference().contains(":");
+        }
+        
+        public boolean isImmutable(DockerXRegistryClient.ImageReference imageRef) {
+            return immutableTags.stream().anyMatch( pattern -> imageRef.getReference().matches(pattern) );
+        }
+        
+        public boolean isExpired(long resolvedMillis) {
+            return (System.currentTimeMillis() - resolvedMillis) > (cacheTtl * 60_000L);
+        }
+        
+        ///
+        
+        public int getParallelism()                        { return parallelism;         }
+        public int getRegistryConcurrency()                { return registryConcurrency; }
+        public java.util.List<String> getCacheRegistries() { return cacheRegistries;     }
+        public int getCacheTtl()                           { return cacheTtl;            }
+        public java.util.List<String> getImmutableTags()   { return immutableTags;       }
+        
+        @Override
+        public String toString() {
+            return parallelism + ", " + registryConcurrency + ", " + cacheRegistries + ", " + cacheTtl + ", " + immutableTags;
+        }
+    }
+    
+    /**
+     * Internal Class to hold an image manifest resolved from the registry
+     */
+    public class ManifestItem {
+        
+        private final String image;
+        
+        private String digest = EMPTY_STRING;
+        private String mediaType = EMPTY_STRING;
+        private boolean listManifest = false;
+        private java.util.Map<String, DockerXDockerConfig.PlatformItem> imageDigests = new java.util.HashMap<String, DockerXDockerConfig.PlatformItem>();
+        
+        /// Constructor
+        
+        public ManifestItem(String image) {
+            this.image = image;
+        }
+        
+        ///
+        
+        public String getImage()                                                         { return image;        }
+        public String getDigest()                                                        { return digest;       }
+        public String getMediaType()                                                     { return mediaType;    }
+        public boolean isListManifest()                                                  { return listManifest; }
+        public java.util.Map<String, DockerXDockerConfig.PlatformItem> getImageDigests() { return imageDigests; }
+        
+        public void setDigest(String digest)               { this.digest = digest;             }
+        public void setMediaType(String mediaType)         { this.mediaType = mediaType;       }
+        public void setListManifest(boolean listManifest)  { this.listManifest = listManifest; }
+        
+        ///
+        
+        @Override
+        public String toString() {
+            return getImage() + "@" + getDigest() + " | " + getMediaType();
+        }
+    }
+    
 }
\ No newline at end of file
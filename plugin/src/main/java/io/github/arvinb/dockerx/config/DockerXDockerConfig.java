@@ -21,6 +21,7 @@ package io.github.arvinb.dockerx.config;
 
 import org.gradle.api.provider.*;
 import org.gradle.api.tasks.*;
+import static io.github.arvinb.dockerx.DockerXConstants.*;
 
 public interface DockerXDockerConfig {
     
@@ -48,12 +49,48 @@ public interface DockerXDockerConfig {
     @Input @Optional
     public Property<Boolean> getPush();
     
+    /**
+     * A platformTags flag (Default: false)
+     * Build each platform separately, tagged as <image>-<platform>, and stitch them into a list manifest.
+     * Otherwise all platforms are built in a single invocation and BuildKit produces the image index,
+     * unless the image is only loaded locally and the daemon is not using the containerd image store.
+     */
+    @Input @Optional
+    public Property<Boolean> getPlatformTags();
+    
+    /**
+     * The number of platforms built concurrently when they are built separately, capped by dockerx.maxConcurrency (Default: 1)
+     */
+    @Input @Optional
+    public Property<Integer> getParallelism();
+    
+    /**
+     * A slimContext flag (Default: true)
+     * Stage only the files left by .dockerignore into a slim build context (hard links where possible)
+     */
+    @Input @Optional
+    public Property<Boolean> getSlimContext();
+    
     /**
      * A name for the docker builder
      */
     @Input @Optional
     public Property<String> getBuilder();
 
+    /**
+     * A keepBuilder flag (Default: false)
+     * Keep the builder warm across builds until it reaches its idle timeout
+     */
+    @Input @Optional
+    public Property<Boolean> getKeepBuilder();
+    
+    /**
+     * The idle timeout of a warm builder in minutes (Default: 60)
+     * Expired builders are removed when a later build using the plugin finishes, 0 removes it at the end of the build.
+     */
+    @Input @Optional
+    public Property<Integer> getBuilderIdleTimeout();
+    
     /**
      * A value for the docker provenance (min (default), max, false)
      */
@@ -98,6 +135,132 @@ public interface DockerXDockerConfig {
     @Input @Optional
     public ListProperty<String> getImages();
     
+    /**
+     * The BuildKit layer cache type (registry, local, inline)
+     * The registry and local types require a docker-container builder
+     */
+    @Input @Optional
+    public Property<String> getCacheType();
+    
+    /**
+     * The BuildKit layer cache reference (Overloaded property)
+     * registry: An image reference to store the cache (e.g. myRegistry.io/myImage:buildcache)
+     * local: A relative path to the derived working directory
+     * inline: Not used, the cache is embedded into the built images
+     */
+    @Input @Optional
+    public Property<String> getCacheRef();
+    
+    /**
+     * The BuildKit layer cache export mode (min, max (default))
+     */
+    @Input @Optional
+    public Property<String> getCacheMode();
+    
+    ///
+    
+    public enum CacheType {
+        
+        REGISTRY("registry"),
+        LOCAL("local"),
+        INLINE("inline");
+        
+        private String cacheType;
+        
+        CacheType(String cacheType) {
+            this.cacheType = cacheType;
+        }
+        
+        public static CacheType fromString(String cacheType) {
+            
+            for (CacheType dockerXCacheType : CacheType.values()) {
+                
+                if (dockerXCacheType.cacheType.equals(cacheType))
+                    return dockerXCacheType;
+            }
+            return null;
+        }
+        
+        @Override
+        public String toString() {
+            return this.cacheType;
+        }
+    }
+    
+    /**
+     * Internal Class to hold a BuildKit Cache Item
+     */
+    public class CacheItem implements java.io.Serializable {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private final CacheType cacheType;
+        private final String cacheRef;
+        private final String cacheMode;
+        
+        /// Constructor
+        
+        public CacheItem(CacheType cacheType, String cacheRef, String cacheMode) {
+            this.cacheType = cacheType;
+            this.cacheRef = cacheRef;
+            this.cacheMode = cacheMode;
+        }
+        
+        ///
+        
+        public java.util.List<String> getCacheArguments(String image, @javax.annotation.Nullable PlatformItem platform) {
+            
+            java.util.List<String> cacheArguments = new java.util.ArrayList<String>();
+            
+            switch (cacheType) {
+            case REGISTRY:
+                cacheArguments.add(CMD_LINE_OPT_CACHE_FROM);
+                cacheArguments.add("type=registry,ref=" + getPlatformRef(platform));
+                cacheArguments.add(CMD_LINE_OPT_CACHE_TO);
+                cacheArguments.add("type=registry,ref=" + getPlatformRef(platform) + ",mode=" + cacheMode);
+                break;
+            case LOCAL:
+                String cacheDir = (platform == null) ? cacheRef : cacheRef + "/" + platform.shortString();
+                cacheArguments.add(CMD_LINE_OPT_CACHE_FROM);
+                cacheArguments.add("type=local,src=" + cacheDir);
+                cacheArguments.add(CMD_LINE_OPT_CACHE_TO);
+                cacheArguments.add("type=local,dest=" + cacheDir + ",mode=" + cacheMode);
+                break;
+            case INLINE:
+                cacheArguments.add(CMD_LINE_OPT_CACHE_FROM);
+                cacheArguments.add("type=registry,ref=" + image);
+                cacheArguments.add(CMD_LINE_OPT_CACHE_TO);
+                cacheArguments.add("type=inline");
+                break;
+            }
+            
+            return cacheArguments;
+        }
+        
+        ///
+        
+        public CacheType getCacheType() { return cacheType; }
+        public String getCacheRef()     { return cacheRef;  }
+        public String getCacheMode()    { return cacheMode; }
+        
+        ///
+        
+        protected String getPlatformRef(@javax.annotation.Nullable PlatformItem platform) {
+            
+            if (platform == null) return cacheRef;
+            
+            // A per-platform tag (<ref>-<platform>) or (<ref>:<platform>) when untagged
+            if (cacheRef.substring(cacheRef.lastIndexOf('/') + 1).contains(":"))
+                return cacheRef + "-" + platform.shortString();
+            return cacheRef + ":" + platform.shortString();
+        }
+        
+        @Override
+        public String toString() {
+            return cacheType + ", " + cacheRef + ", " + cacheMode;
+        }
+    }
+    
     ///
     
     public enum PlatformItem {
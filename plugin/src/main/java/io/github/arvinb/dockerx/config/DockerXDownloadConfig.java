@@ -21,6 +21,7 @@ package io.github.arvinb.dockerx.config;
 
 import javax.annotation.*;
 import org.gradle.api.*;
+import org.gradle.api.logging.*;
 import org.gradle.api.file.*;
 import org.gradle.api.provider.*;
 import org.gradle.api.tasks.*;
@@ -41,6 +42,18 @@ public interface DockerXDownloadConfig {
     @Input @Optional
     public Property<Boolean> getIdentityToken();
 
+    /**
+     * Accept any server certificate, for download sites with self-signed certificates (Default: false)
+     */
+    @Input @Optional
+    public Property<Boolean> getAcceptAnyCertificate();
+
+    /**
+     * Number of artifacts downloaded concurrently, capped by dockerx.maxConcurrency (Default: 1)
+     */
+    @Input @Optional
+    public Property<Integer> getParallelism();
+
     /**
      * Map of downloads (relative directory, url)
      */
@@ -50,56 +63,58 @@ public interface DockerXDownloadConfig {
     /**
      * Internal Class to hold a Download Item
      */
-    public class DownloadItem {
+    public class DownloadItem implements java.io.Serializable {
+        
+        private static final long serialVersionUID = 1L;
         
-        private DirectoryProperty downloadDir;
+        private java.io.File downloadDir;
         private java.net.URL downloadURL;
         
-        public DownloadItem(DirectoryProperty downloadDir, String downloadURL) throws GradleException {
+        public DownloadItem(java.io.File downloadDir, String downloadURL) throws GradleException {
             
             try {
                 
                 this.downloadDir = downloadDir;
-                this.downloadURL = java.nio.file.Paths.get(downloadURL).toUri().toURL();
+                java.net.URI downloadURI = java.net.URI.create(downloadURL);
+                this.downloadURL = ((downloadURI.getScheme() != null) && (downloadURI.getScheme().length() > 1)) ? downloadURI.toURL() : java.nio.file.Paths.get(downloadURL).toUri().toURL();
                 
             } catch (Exception ex) {
                 DockerXVerifyUtil.stopGradleException(MESSAGE_DOWNLOAD_URL + ex.getMessage());
             }
         }
         
-        public void execute(Project project, @Nullable String username, @Nullable String password) {
-            execute(project, username, password, false, false);
+        public void execute(Logger logger, @Nullable String username, @Nullable String password) {
+            execute(logger, username, password, false, false, false);
         }
         
-        public void execute(Project project, @Nullable String username, @Nullable String password, boolean overwriteFlag, boolean useIdentityToken) throws GradleException {
+        public void execute(Logger logger, @Nullable String username, @Nullable String password, boolean overwriteFlag, boolean useIdentityToken, boolean acceptAnyCertificate) throws GradleException {
             
             try {
                 
-                java.io.File workingDir = (DownloadItem.isPathDirectory(downloadDir.get().getAsFile())) ? downloadDir.get().getAsFile() : downloadDir.get().getAsFile().getParentFile();
-                workingDir.mkdirs();
+                java.io.File downloadFile = downloadDir;
+                if (DownloadItem.isPathDirectory(downloadFile))
+                    downloadFile = new java.io.File(downloadFile, java.nio.file.Paths.get(downloadURL.getPath()).getFileName().toString());
                 
-                de.undercouch.gradle.tasks.download.DownloadAction downloadAction = 
-                new de.undercouch.gradle.tasks.download.DownloadAction( project );
+                // Existing artifacts are kept unless overwrite is requested
+                if (downloadFile.exists() && !overwriteFlag) {
+                    logger.lifecycle(java.text.MessageFormat.format(MESSAGE_DOWNLOAD_SKIPPED, downloadFile.getPath()));
+                    return;
+                }
+                
+                String authorization = null;
                 
-                downloadAction.src(downloadURL.toExternalForm());
-                downloadAction.dest(downloadDir.get().getAsFile().getPath());
-                downloadAction.acceptAnyCertificate(true);
-                downloadAction.overwrite(overwriteFlag);
-
                 if (useIdentityToken) {
-
+                    
                     if (password != null)
-                        downloadAction.header(AUTHORIZATION, BEARER + " " + password);
+                        authorization = BEARER + " " + password;
                 
                 } else {
-
-                    if ( (username != null) && (password != null) ) {
-                        if (!username.trim().isEmpty()) downloadAction.username(username);
-                        if (!password.trim().isEmpty()) downloadAction.password(password);
-                    }
+                    
+                    if ( (username != null) && (password != null) && (!username.trim().isEmpty()) )
+                        authorization = "Basic " + java.util.Base64.getEncoder().encodeToString((username + ":" + password).getBytes(java.nio.charset.StandardCharsets.UTF_8));
                 }
                 
-                downloadAction.execute();
+                DockerXDownloadUtil.downloadFile(downloadURL, downloadFile, authorization, acceptAnyCertificate);
                 
             } catch (Exception ex) {
                 DockerXVerifyUtil.stopGradleException(MESSAGE_DOWNLOAD_EXEC + ex.getMessage());
@@ -108,15 +123,13 @@ public interface DockerXDownloadConfig {
         
         ///
         
-        @Input
-        public DirectoryProperty getDownloadDir() { return downloadDir; }
+        public java.io.File getDownloadDir() { return downloadDir; }
         
-        @Input
         public java.net.URL getDownloadURL() { return downloadURL; }
         
         @Override
         public String toString() {
-            return this.downloadURL.toExternalForm() + ", " + this.downloadDir.get().getAsFile().getPath();
+            return this.downloadURL.toExternalForm() + ", " + this.downloadDir.getPath();
         }
         
         ///
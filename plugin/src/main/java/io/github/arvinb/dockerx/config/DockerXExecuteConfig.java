@@ -43,13 +43,15 @@ public interface DockerXExecuteConfig {
     /**
      * Internal Class to hold an Action Item
      */
-    public class ActionItem {
+    public class ActionItem implements java.io.Serializable {
         
-        private DirectoryProperty actionWorkDir;
-        private RegularFileProperty actionObj;
-        private ListProperty<String> actionArgs;
+        private static final long serialVersionUID = 1L;
         
-        public ActionItem(DirectoryProperty actionWorkDir, RegularFileProperty actionObj, ListProperty<String> actionArgs) throws GradleException {
+        private java.io.File actionWorkDir;
+        private java.io.File actionObj;
+        private java.util.List<String> actionArgs;
+        
+        public ActionItem(java.io.File actionWorkDir, java.io.File actionObj, java.util.List<String> actionArgs) throws GradleException {
             
             try {
                 
@@ -64,18 +66,15 @@ public interface DockerXExecuteConfig {
         
         ///
         
-        @Input
-        public DirectoryProperty getActionWorkDir() { return actionWorkDir; }
+        public java.io.File getActionWorkDir() { return actionWorkDir; }
         
-        @Input
-        public RegularFileProperty getActionObj() { return actionObj; }
+        public java.io.File getActionObj() { return actionObj; }
         
-        @Input
-        public ListProperty<String> getActionArgs() { return actionArgs; }
+        public java.util.List<String> getActionArgs() { return actionArgs; }
         
         @Override
         public String toString() {
-            return this.actionObj.getAsFile().get().getAbsolutePath() + ", " + this.actionArgs.get().toString();
+            return this.actionObj.getAbsolutePath() + ", " + this.actionArgs.toString();
         }
     }
 }
\ No newline at end of file
@@ -107,6 +107,12 @@ public interface DockerXOPMConfig {
      */
     @Input @Optional
     public ListProperty<String> getBundleSources();
+    
+    /**
+     * Number of bundle sources rendered concurrently, capped by dockerx.maxConcurrency (Default: 4)
+     */
+    @Input @Optional
+    public Property<Integer> getRenderParallelism();
 
     /**
      * Output format (Default: yaml)
@@ -129,6 +135,13 @@ public interface DockerXOPMConfig {
     @Input @Optional
     public Property<String> getCatalogReadme();
 
+    /**
+     * Consolidated file-based catalog (Default: catalog.<outputFormat>)
+     * A relative path to the derived working directory
+     */
+    @Input @Optional
+    public Property<String> getCatalogFile();
+
     /**
      * OPM output file prefix
      * Prefix of the file with the bundle image tag
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+package io.github.arvinb.dockerx.config;
+
+import org.gradle.api.provider.*;
+import org.gradle.api.tasks.*;
+import static io.github.arvinb.dockerx.DockerXConstants.*;
+
+public interface DockerXPruneConfig {
+
+    /**
+     * The cleanup policy (all, selective (default))
+     * all: Prune all build cache, images, volumes and remove the builder
+     * selective: Prune only what the budget, age and label filters select
+     */
+    @Input @Optional
+    public Property<String> getPolicy();
+
+    /**
+     * The build cache storage budget to keep (e.g. 10gb)
+     */
+    @Input @Optional
+    public Property<String> getKeepStorage();
+
+    /**
+     * Only prune resources older than the given duration (e.g. 24h)
+     */
+    @Input @Optional
+    public Property<String> getUntil();
+
+    /**
+     * List of label filters (key or key=value)
+     */
+    @Input @Optional
+    public ListProperty<String> getLabels();
+
+    /**
+     * An ownedOnly flag (Default: true)
+     * Only remove the images loaded by earlier builds of this plugin, as recorded by the builder service.
+     * The until and labels filters then only apply to the build cache and volumes.
+     */
+    @Input @Optional
+    public Property<Boolean> getOwnedOnly();
+
+    ///
+
+    public enum PrunePolicy {
+
+        ALL("all"),
+        SELECTIVE("selective");
+
+        private String policy;
+
+        PrunePolicy(String policy) {
+            this.policy = policy;
+        }
+
+        public static PrunePolicy fromString(String policy) {
+
+            for (PrunePolicy prunePolicy : PrunePolicy.values()) {
+
+                if (prunePolicy.policy.equals(policy))
+                    return prunePolicy;
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return this.policy;
+        }
+    }
+
+    /**
+     * Internal Class to hold a Prune Item
+     */
+    public class PruneItem implements java.io.Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final PrunePolicy policy;
+        private final String keepStorage;
+        private final String until;
+        private final java.util.List<String> labels;
+        private final boolean ownedOnly;
+
+        /// Constructor
+
+        public PruneItem(PrunePolicy policy, String keepStorage, String until, java.util.List<String> labels, boolean ownedOnly) {
+            this.policy = policy;
+            this.keepStorage = keepStorage;
+            this.until = until;
+            this.labels = labels;
+            this.ownedOnly = ownedOnly;
+        }
+
+        ///
+
+        public java.util.List<String> getCacheFilters() {
+
+            java.util.List<String> cacheFilters = new java.util.ArrayList<String>();
+            if (!keepStorage.isBlank()) { cacheFilters.add(CMD_LINE_OPT_KEEP_STORAGE); cacheFilters.add(keepStorage); }
+            if (!until.isBlank())       { cacheFilters.add(CMD_LINE_OPT_FILTER); cacheFilters.add("until=" + until); }
+            return cacheFilters;
+        }
+
+        public java.util.List<String> getImageFilters() {
+
+            java.util.List<String> imageFilters = new java.util.ArrayList<String>();
+            if (!until.isBlank()) { imageFilters.add(CMD_LINE_OPT_FILTER); imageFilters.add("until=" + until); }
+            labels.forEach( label -> { imageFilters.add(CMD_LINE_OPT_FILTER); imageFilters.add("label=" + label); });
+            return imageFilters;
+        }
+
+        public java.util.List<String> getVolumeFilters() {
+
+            java.util.List<String> volumeFilters = new java.util.ArrayList<String>();
+            labels.forEach( label -> { volumeFilters.add(CMD_LINE_OPT_FILTER); volumeFilters.add("label=" + label); });
+            return volumeFilters;
+        }
+
+        ///
+
+        public PrunePolicy getPolicy()            { return policy;      }
+        public String getKeepStorage()            { return keepStorage; }
+        public String getUntil()                  { return until;       }
+        public java.util.List<String> getLabels() { return labels;      }
+        public boolean isOwnedOnly()              { return ownedOnly;   }
+
+        @Override
+        public String toString() {
+            return policy + ", " + keepStorage + ", " + until + ", " + labels + ", " + ownedOnly;
+        }
+    }
+}
@@ -37,4 +37,90 @@ public interface DockerXSQLiteConfig {
     @Input @Optional
     public ListProperty<String> getStatements();
     
+    /**
+     * List of SQL script files run before the statements
+     * Relative paths to the derived working directory
+     */
+    @Input @Optional
+    public ListProperty<String> getScripts();
+    
+    /**
+     * Map of prepared statements (statement, parameter sets) run as one batch each
+     * A parameter set is a list of values, a single value binds the only parameter
+     */
+    @Input @Optional
+    public MapProperty<String, java.util.List<Object>> getPreparedStatements();
+    
+    /**
+     * Map of prepared statements (statement, parameter file) run as one batch each
+     * Each line of the file, relative to the derived working directory, is a comma separated parameter set (CSV quoting)
+     */
+    @Input @Optional
+    public MapProperty<String, String> getParameterFiles();
+    
+    /**
+     * Journal mode of the datasource db, e.g. wal (Default: unset, keep the db journal mode)
+     */
+    @Input @Optional
+    public Property<String> getJournalMode();
+    
+    /**
+     * Synchronous level of the connection: off|normal|full (Default: unset, SQLite default)
+     */
+    @Input @Optional
+    public Property<String> getSynchronous();
+    
+    /**
+     * Internal Class to hold a Prepared Statement Item
+     */
+    public class PreparedItem implements java.io.Serializable {
+        
+        private static final long serialVersionUID = 1L;
+        
+        private String statement;
+        private java.util.List<java.util.List<Object>> parameterSets;
+        private java.io.File parameterFile;
+        
+        public PreparedItem(String statement, java.util.List<?> parameterSets, java.io.File parameterFile) {
+            
+            this.statement = statement;
+            this.parameterFile = parameterFile;
+            this.parameterSets = new java.util.ArrayList<java.util.List<Object>>();
+            
+            if ( parameterSets != null )
+                parameterSets.forEach( parameterSet -> {
+                    
+                    java.util.List<Object> parameters = new java.util.ArrayList<Object>();
+                    if ( parameterSet instanceof java.util.Collection<?> )
+                        ((java.util.Collection<?>) parameterSet).forEach( parameter -> parameters.add(toParameter(parameter)) );
+                    else
+                        parameters.add(toParameter(parameterSet));
+                    
+                    this.parameterSets.add(parameters);
+                });
+        }
+        
+        ///
+        
+        public String getStatement() { return statement; }
+        
+        public java.util.List<java.util.List<Object>> getParameterSets() { return parameterSets; }
+        
+        public java.io.File getParameterFile() { return parameterFile; }
+        
+        @Override
+        public String toString() {
+            return this.statement + ", " + (this.parameterFile != null ? this.parameterFile.getPath() : this.parameterSets.size() + " parameter set(s)");
+        }
+        
+        ///
+        
+        protected static Object toParameter(Object parameter) {
+            
+            // Numbers bind natively, booleans as 0/1 and anything else (e.g. a GString) as text
+            if ( parameter == null || parameter instanceof Number ) return parameter;
+            if ( parameter instanceof Boolean ) return ((Boolean) parameter) ? 1 : 0;
+            return parameter.toString();
+        }
+    }
 }
@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+package io.github.arvinb.dockerx.service;
+
+import java.io.*;
+import java.text.*;
+import java.util.*;
+import org.gradle.api.file.*;
+import org.gradle.api.logging.*;
+import org.gradle.api.services.*;
+import io.github.arvinb.dockerx.util.*;
+import static io.github.arvinb.dockerx.DockerXConstants.*;
+
+/**
+ * Shared build service owning the lifecycle of the docker buildx builders.
+ * A builder is created once, reference counted across tasks and kept warm
+ * across builds until its idle timeout expires or it is removed explicitly.
+ * It also records the images loaded into the daemon, so a selective prune only removes those.
+ */
+public abstract class DockerXBuilderService implements BuildService<DockerXBuilderService.Params>, AutoCloseable {
+
+    private final Logger logger = Logging.getLogger(DockerXBuilderService.class);
+
+    private final Map<String, BuilderState> builders = new HashMap<String, BuilderState>();
+
+    ///
+
+    public interface Params extends BuildServiceParameters {
+
+        /**
+         * The directory holding the last use of every builder
+         */
+        DirectoryProperty getStateDir();
+    }
+
+    ///
+
+    public synchronized void acquire(String builderName, boolean multiArchReset, boolean keepWarm, int idleTimeout) {
+
+        BuilderState builderState = builders.get(builderName);
+
+        if (builderState == null) {
+
+            // A builder left warm by a previous build which has been idle for too long is recreated
+            if (isIdleExpired(builderName))
+                DockerXDockerUtil.removeBuilder(logger, builderName);
+
+            DockerXDockerUtil.createAndUseBuilder(logger, builderName, multiArchReset);
+
+            builderState = new BuilderState();
+            builders.put(builderName, builderState);
+        }
+
+        builderState.references++;
+        builderState.keepWarm = builderState.keepWarm || keepWarm;
+        builderState.idleTimeout = idleTimeout;
+    }
+
+    public synchronized void release(String builderName) {
+
+        BuilderState builderState = builders.get(builderName);
+        if (builderState == null) return; // Nothing to do...
+
+        builderState.references = Math.max(0, builderState.references - 1);
+        saveLastUse(builderName, builderState.idleTimeout);
+    }
+
+    public synchronized boolean removeBuilder(String builderName) {
+
+        BuilderState builderState = builders.get(builderName);
+
+        if ((builderState != null) && (builderState.references > 0)) {
+            logger.warn(MessageFormat.format(MESSAGE_BUILDER_IN_USE, builderName));
+            return false;
+        }
+
+        builders.remove(builderName);
+        getStateFile(builderName).delete();
+
+        return DockerXDockerUtil.removeBuilder(logger, builderName);
+    }
+
+    public synchronized void recordBuiltImages(Collection<String> images) {
+
+        File imagesFile = getStateFile(BUILDER_BUILT_IMAGES);
+        imagesFile.getParentFile().mkdirs();
+
+        // Appended across builds until the next selective prune takes them
+        try (Writer imagesOutput = new FileWriter(imagesFile, true)) {
+            for (String image : images) { imagesOutput.write(image + NEW_LINE); }
+
+        } catch (Exception ex) {
+            logger.warn(MESSAGE_BUILDER_STATE + ex.getMessage());
+        }
+    }
+
+    public synchronized List<String> takeBuiltImages() {
+
+        File imagesFile = getStateFile(BUILDER_BUILT_IMAGES);
+        if (!imagesFile.isFile()) return new ArrayList<String>();
+
+        try {
+            List<String> images = java.nio.file.Files.readAllLines(imagesFile.toPath()).stream().filter( image -> !image.isBlank() ).distinct().collect(java.util.stream.Collectors.toList());
+            imagesFile.delete();
+            return images;
+
+        } catch (Exception ex) {
+            logger.warn(MESSAGE_BUILDER_STATE + ex.getMessage());
+            return new ArrayList<String>();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+
+        // Builders not kept warm only live for the duration of the build, unused warm builders already past their idle timeout go too
+        builders.forEach( (builderName, builderState) -> {
+            if (!builderState.keepWarm || ((builderState.references == 0) && isIdleExpired(builderName))) {
+                getStateFile(builderName).delete();
+                DockerXDockerUtil.removeBuilder(logger, builderName);
+            }
+        });
+
+        // Tear down warm builders from previous builds that reached their idle timeout (there is no timer, a later build does it)
+        File[] stateFiles = getParameters().getStateDir().get().getAsFile().listFiles();
+        if (stateFiles != null) {
+            Arrays.stream(stateFiles).map(File::getName).filter( builderName -> !builderName.equals(BUILDER_BUILT_IMAGES) && !builders.containsKey(builderName) ).forEach( builderName -> {
+                if (isIdleExpired(builderName)) {
+                    logger.lifecycle(MessageFormat.format(MESSAGE_BUILDER_IDLE, builderName));
+                    getStateFile(builderName).delete();
+                    DockerXDockerUtil.removeBuilder(logger, builderName);
+                }
+            });
+        }
+
+        builders.clear();
+    }
+
+    ///
+
+    protected boolean isIdleExpired(String builderName) {
+
+        File stateFile = getStateFile(builderName);
+        if (!stateFile.isFile()) return false;
+
+        try (InputStream stateInput = new FileInputStream(stateFile)) {
+
+            Properties builderState = new Properties();
+            builderState.load(stateInput);
+
+            long lastUse = Long.parseLong(builderState.getProperty(BUILDER_LAST_USE, "0"));
+            long idleTimeout = Long.parseLong(builderState.getProperty(BUILDER_IDLE_TIMEOUT, "0"));
+
+            return (System.currentTimeMillis() - lastUse) > (idleTimeout * 60_000L);
+
+        } catch (Exception ex) {
+            return true;
+        }
+    }
+
+    protected void saveLastUse(String builderName, int idleTimeout) {
+
+        File stateFile = getStateFile(builderName);
+        stateFile.getParentFile().mkdirs();
+
+        try (OutputStream stateOutput = new FileOutputStream(stateFile)) {
+
+            Properties builderState = new Properties();
+            builderState.setProperty(BUILDER_LAST_USE, String.valueOf(System.currentTimeMillis()));
+            builderState.setProperty(BUILDER_IDLE_TIMEOUT, String.valueOf(idleTimeout));
+            builderState.store(stateOutput, null);
+
+        } catch (Exception ex) {
+            logger.warn(MESSAGE_BUILDER_STATE + ex.getMessage());
+        }
+    }
+
+    protected File getStateFile(String builderName) {
+        return getParameters().getStateDir().file(builderName).get().getAsFile();
+    }
+
+    ///
+
+    private static class BuilderState {
+
+        private int references = 0;
+        private int idleTimeout = 0;
+        private boolean keepWarm = false;
+    }
+}
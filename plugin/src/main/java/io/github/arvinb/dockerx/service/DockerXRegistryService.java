@@ -0,0 +1,305 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+package io.github.arvinb.dockerx.service;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.security.*;
+import java.text.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.*;
+import org.gradle.api.*;
+import org.gradle.api.file.*;
+import org.gradle.api.logging.*;
+import org.gradle.api.provider.*;
+import org.gradle.api.services.*;
+import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.util.*;
+import static io.github.arvinb.dockerx.DockerXConstants.*;
+
+/**
+ * Shared build service holding the registry client and the image manifests
+ * resolved during the build, so an image referenced by the digest, catalog
+ * and OPM registry tasks is only inspected once. Tags of opted in registries
+ * are also cached on disk across builds. Registry logins are build scoped too,
+ * docker keeps one session per registry, so each registry logs in once and
+ * again only on auth failures or when another user needs it.
+ */
+public abstract class DockerXRegistryService implements BuildService<DockerXRegistryService.Params> {
+
+    private static final Pattern AUTH_FAILURE = Pattern.compile(AUTH_FAILURE_PATTERN, Pattern.CASE_INSENSITIVE);
+
+    private final Logger logger = Logging.getLogger(DockerXRegistryService.class);
+
+    private final DockerXRegistryClient registryClient = new DockerXRegistryClient(new ArrayList<DockerXCredentialConfig.RegistryCredential>());
+
+    private final Map<String, CompletableFuture<DockerXDigestConfig.ManifestItem>> manifests = new ConcurrentHashMap<String, CompletableFuture<DockerXDigestConfig.ManifestItem>>();
+
+    private final Map<String, CompletableFuture<String>> logins = new ConcurrentHashMap<String, CompletableFuture<String>>();
+
+    ///
+
+    public interface Params extends BuildServiceParameters {
+
+        /**
+         * The directory holding the persistent tag to digest cache
+         */
+        DirectoryProperty getCacheDir();
+
+        /**
+         * The scheduler running the resolutions under the build wide limits
+         */
+        Property<DockerXSchedulerService> getScheduler();
+    }
+
+    ///
+
+    public DockerXRegistryClient getRegistryClient(List<DockerXCredentialConfig.RegistryCredential> registryCredentials) {
+
+        registryClient.addCredentials(registryCredentials);
+        return registryClient;
+    }
+
+    public DockerXSchedulerService getScheduler() {
+        return getParameters().getScheduler().get();
+    }
+
+    public void login(Logger logger, List<DockerXCredentialConfig.RegistryCredential> registryCredentials) {
+        registryCredentials.forEach( cred -> login(logger, cred) );
+    }
+
+    public <T> T withLogin(Logger logger, List<DockerXCredentialConfig.RegistryCredential> registryCredentials, Callable<T> registryWork) throws Exception {
+
+        Map<String, CompletableFuture<String>> usedLogins = new HashMap<String, CompletableFuture<String>>();
+        registryCredentials.forEach( cred -> usedLogins.put(getLoginKey(cred), login(logger, cred)) );
+
+        try {
+            return registryWork.call();
+
+        } catch (GradleException ex) {
+
+            if (registryCredentials.isEmpty() || !isAuthFailure(ex)) throw ex;
+
+            // The session expired or was replaced, forget the logins used and authenticate again
+            logger.lifecycle(MESSAGE_DOCKER_RELOGIN + ex.getMessage());
+            usedLogins.forEach(logins::remove);
+            login(logger, registryCredentials);
+
+            return registryWork.call();
+        }
+    }
+
+    public DockerXDigestConfig.ManifestItem resolve(String image, Callable<DockerXDigestConfig.ManifestItem> resolver) throws Exception {
+
+        String imageKey = DockerXRegistryClient.ImageReference.parse(image).toString();
+
+        // The first caller resolves the manifest, concurrent and later callers share its result
+        CompletableFuture<DockerXDigestConfig.ManifestItem> newManifest = new CompletableFuture<DockerXDigestConfig.ManifestItem>();
+        CompletableFuture<DockerXDigestConfig.ManifestItem> cachedManifest = manifests.putIfAbsent(imageKey, newManifest);
+
+        if (cachedManifest == null) {
+
+            try {
+
+                DockerXDigestConfig.ManifestItem manifestItem = resolver.call();
+                newManifest.complete(manifestItem);
+                return manifestItem;
+
+            } catch (Exception ex) {
+
+                // Failures are not cached so a later task may retry
+                manifests.remove(imageKey, newManifest);
+                newManifest.completeExceptionally(ex);
+                throw ex;
+            }
+        }
+
+        try {
+            return cachedManifest.get();
+
+        } catch (ExecutionException ex) {
+
+            if (ex.getCause() instanceof GradleException)
+                throw (GradleException) ex.getCause();
+            throw (Exception) ex.getCause();
+        }
+    }
+
+    public DockerXDigestConfig.ManifestItem resolve(String image, DockerXDigestConfig.ResolveItem resolveItem, Callable<DockerXDigestConfig.ManifestItem> resolver) throws Exception {
+
+        DockerXRegistryClient.ImageReference imageRef = DockerXRegistryClient.ImageReference.parse(image);
+        if (!resolveItem.isCacheable(imageRef)) return resolve(image, resolver);
+
+        return resolve(image, () -> {
+
+            // Immutable tags never move, other tags are revalidated once their time to live expires
+            DockerXDigestConfig.ManifestItem manifestItem = loadManifest(imageRef, resolveItem);
+            if (manifestItem != null) return manifestItem;
+
+            manifestItem = resolver.call();
+            storeManifest(imageRef, manifestItem);
+            return manifestItem;
+        });
+    }
+
+    public void evict(String image) {
+
+        // A tag pushed during the build has moved, later resolutions must not see its previous digest
+        DockerXRegistryClient.ImageReference imageRef = DockerXRegistryClient.ImageReference.parse(image);
+        manifests.remove(imageRef.toString());
+        getCacheFile(imageRef).delete();
+    }
+
+    ///
+
+    protected CompletableFuture<String> login(Logger logger, DockerXCredentialConfig.RegistryCredential cred) {
+
+        String loginKey = getLoginKey(cred);
+
+        // The first caller logs in, concurrent and later callers of the same user reuse its session
+        CompletableFuture<String> newLogin = new CompletableFuture<String>();
+        CompletableFuture<String> cachedLogin = logins.putIfAbsent(loginKey, newLogin);
+
+        while (cachedLogin != null) {
+
+            try {
+                if (cred.getUsername().equals(cachedLogin.join())) return cachedLogin;
+
+            } catch (CompletionException ex) {
+                throw (ex.getCause() instanceof RuntimeException) ? (RuntimeException) ex.getCause() : ex;
+            }
+
+            // Another user holds the registry session, logging in replaces it
+            logger.lifecycle(MessageFormat.format(MESSAGE_DOCKER_LOGIN_SWITCH, cred.getRegistry(), cachedLogin.join(), cred.getUsername()));
+            cachedLogin = logins.replace(loginKey, cachedLogin, newLogin) ? null : logins.putIfAbsent(loginKey, newLogin);
+        }
+
+        try {
+
+            logger.lifecycle(MessageFormat.format(MESSAGE_DOCKER_LOGIN_REG, cred.getRegistry(), cred.getUsername()));
+            DockerXDockerUtil.loginDockerXAuth(logger, cred.getUsername(), cred.getPassword(), cred.getRegistry());
+            newLogin.complete(cred.getUsername());
+            return newLogin;
+
+        } catch (RuntimeException ex) {
+
+            // Failed logins are not cached so a later task may retry
+            logins.remove(loginKey, newLogin);
+            newLogin.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    protected static String getLoginKey(DockerXCredentialConfig.RegistryCredential cred) {
+        return DockerXRegistryClient.ImageReference.normalizeRegistry(cred.getRegistry());
+    }
+
+    protected static boolean isAuthFailure(Throwable ex) {
+
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if ((cause.getMessage() != null) && AUTH_FAILURE.matcher(cause.getMessage()).find()) return true;
+        }
+        return false;
+    }
+
+    ///
+
+    protected DockerXDigestConfig.ManifestItem loadManifest(DockerXRegistryClient.ImageReference imageRef, DockerXDigestConfig.ResolveItem resolveItem) {
+
+        File cacheFile = getCacheFile(imageRef);
+        if (!cacheFile.isFile()) return null;
+
+        try (InputStream cacheInput = new FileInputStream(cacheFile)) {
+
+            Properties cacheEntry = new Properties();
+            cacheEntry.load(cacheInput);
+
+            // Guard against hash collisions and expired entries
+            if (!imageRef.toString().equals(cacheEntry.getProperty(DIGEST_CACHE_IMAGE))) return null;
+
+            long resolved = Long.parseLong(cacheEntry.getProperty(DIGEST_CACHE_RESOLVED, "0"));
+            if (!resolveItem.isImmutable(imageRef) && resolveItem.isExpired(resolved)) return null;
+
+            DockerXDigestConfig.ManifestItem manifestItem = new DockerXDigestConfig.ManifestItem(imageRef.toString());
+            manifestItem.setDigest(cacheEntry.getProperty(DIGEST_CACHE_DIGEST, EMPTY_STRING));
+            manifestItem.setMediaType(cacheEntry.getProperty(DIGEST_CACHE_MEDIA_TYPE, EMPTY_STRING));
+            manifestItem.setListManifest(Boolean.parseBoolean(cacheEntry.getProperty(DIGEST_CACHE_LIST)));
+
+            cacheEntry.stringPropertyNames().stream().filter( key -> key.startsWith(DIGEST_CACHE_PLATFORM) ).forEach( key -> {
+                DockerXDockerConfig.PlatformItem platformItem = DockerXDockerConfig.PlatformItem.fromString(cacheEntry.getProperty(key));
+                if (platformItem != null)
+                    manifestItem.getImageDigests().put(key.substring(DIGEST_CACHE_PLATFORM.length()), platformItem);
+            });
+
+            if (manifestItem.getDigest().isBlank()) return null;
+
+            logger.info(MessageFormat.format(MESSAGE_DIGEST_CACHE_HIT, imageRef));
+            return manifestItem;
+
+        } catch (Exception ex) {
+            logger.warn(MESSAGE_DIGEST_CACHE + ex.getMessage());
+            return null;
+        }
+    }
+
+    protected void storeManifest(DockerXRegistryClient.ImageReference imageRef, DockerXDigestConfig.ManifestItem manifestItem) {
+
+        if (manifestItem.getDigest().isBlank()) return; // Nothing to do...
+
+        File cacheFile = getCacheFile(imageRef);
+        cacheFile.getParentFile().mkdirs();
+
+        try {
+
+            Properties cacheEntry = new Properties();
+            cacheEntry.setProperty(DIGEST_CACHE_IMAGE, imageRef.toString());
+            cacheEntry.setProperty(DIGEST_CACHE_DIGEST, manifestItem.getDigest());
+            cacheEntry.setProperty(DIGEST_CACHE_MEDIA_TYPE, manifestItem.getMediaType());
+            cacheEntry.setProperty(DIGEST_CACHE_LIST, String.valueOf(manifestItem.isListManifest()));
+            cacheEntry.setProperty(DIGEST_CACHE_RESOLVED, String.valueOf(System.currentTimeMillis()));
+            manifestItem.getImageDigests().forEach( (digest, platformItem) -> cacheEntry.setProperty(DIGEST_CACHE_PLATFORM + digest, platformItem.toString()) );
+
+            // Write aside and move into place so concurrent builds never read a partial entry
+            File tempFile = File.createTempFile(cacheFile.getName(), null, cacheFile.getParentFile());
+            try (OutputStream cacheOutput = new FileOutputStream(tempFile)) {
+                cacheEntry.store(cacheOutput, null);
+            }
+            Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (Exception ex) {
+            logger.warn(MESSAGE_DIGEST_CACHE + ex.getMessage());
+        }
+    }
+
+    protected File getCacheFile(DockerXRegistryClient.ImageReference imageRef) {
+
+        try {
+
+            // Entries are addressed by the hash of the normalized image reference
+            byte[] imageHash = MessageDigest.getInstance("SHA-256").digest(imageRef.toString().getBytes(StandardCharsets.UTF_8));
+            return getParameters().getCacheDir().file(HexFormat.of().formatHex(imageHash)).get().getAsFile();
+
+        } catch (NoSuchAlgorithmException ex) {
+            throw new GradleException(MESSAGE_DIGEST_CACHE + ex.getMessage(), ex);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+package io.github.arvinb.dockerx.service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+import org.gradle.api.*;
+import org.gradle.api.provider.*;
+import org.gradle.api.services.*;
+import io.github.arvinb.dockerx.util.*;
+import static io.github.arvinb.dockerx.DockerXConstants.*;
+
+/**
+ * Shared build service scheduling the plugin's concurrent work (platform builds,
+ * digest resolution, bundle renders, downloads) on virtual threads, bounded by
+ * one global limit for the whole build and optional named or local limits.
+ */
+public abstract class DockerXSchedulerService implements BuildService<DockerXSchedulerService.Params>, AutoCloseable {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Semaphore> groupPermits = new ConcurrentHashMap<String, Semaphore>();
+    private final Semaphore globalPermits;
+
+    ///
+
+    public interface Params extends BuildServiceParameters {
+
+        /**
+         * Maximum number of units of work running at once across the build
+         */
+        Property<Integer> getMaxConcurrency();
+    }
+
+    /// Constructor
+
+    public DockerXSchedulerService() {
+        this.globalPermits = new Semaphore(Math.max(1, getParameters().getMaxConcurrency().getOrElse(DEFAULT_MAX_CONCURRENCY)));
+    }
+
+    ///
+
+    public Semaphore getPermits(String group, int limit) {
+
+        // Named limits are shared build wide, e.g. the requests per registry host
+        return groupPermits.computeIfAbsent(group, key -> new Semaphore(Math.max(1, limit)));
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> workItem, Semaphore... permits) {
+
+        CompletableFuture<T> result = new CompletableFuture<T>();
+
+        Future<?> execution = executor.submit( () -> {
+
+            List<Semaphore> acquired = new ArrayList<Semaphore>();
+
+            try {
+
+                // Local limits first so waiting work never holds a global permit
+                for (Semaphore permit : permits) { permit.acquire(); acquired.add(permit); }
+                globalPermits.acquire(); acquired.add(globalPermits);
+
+                result.complete(workItem.call());
+
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+
+            } finally {
+                acquired.forEach(Semaphore::release);
+            }
+        });
+
+        // Cancelling the result interrupts the work, which stops any running command
+        result.whenComplete( (value, ex) -> { if (result.isCancelled()) execution.cancel(true); });
+        return result;
+    }
+
+    public <T> CompletableFuture<List<T>> allOf(List<CompletableFuture<T>> futures) {
+
+        CompletableFuture<List<T>> results = new CompletableFuture<List<T>>();
+
+        // The first failure fails the whole group and cancels its siblings
+        futures.forEach( future -> future.whenComplete( (value, ex) -> {
+
+            if (ex != null) {
+                if (results.completeExceptionally(unwrap(ex)))
+                    futures.forEach( sibling -> sibling.cancel(true) );
+
+            } else if (futures.stream().allMatch( sibling -> sibling.isDone() && !sibling.isCompletedExceptionally() )) {
+                results.complete(futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+            }
+        }));
+
+        if (futures.isEmpty()) results.complete(new ArrayList<T>());
+        return results;
+    }
+
+    public <T> List<T> invokeAll(List<Callable<T>> workItems, Semaphore... permits) {
+
+        List<CompletableFuture<T>> futures = workItems.stream().map( workItem -> submit(workItem, permits) ).collect(Collectors.toList());
+        return await(allOf(futures));
+    }
+
+    public <T> T await(CompletableFuture<T> future) {
+
+        try {
+            return future.get();
+
+        } catch (InterruptedException ex) {
+
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new GradleException(MESSAGE_PARALLEL_EXEC + ex.getMessage(), ex);
+
+        } catch (ExecutionException ex) {
+
+            Throwable cause = unwrap(ex);
+            if (cause instanceof GradleException)
+                throw (GradleException) cause;
+            throw new GradleException(MESSAGE_PARALLEL_EXEC + cause.getMessage(), cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        DockerXCmdLineUtil.destroyRunningProcesses();
+    }
+
+    ///
+
+    protected static Throwable unwrap(Throwable ex) {
+
+        Throwable cause = ex;
+        while (((cause instanceof CompletionException) || (cause instanceof ExecutionException)) && (cause.getCause() != null)) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
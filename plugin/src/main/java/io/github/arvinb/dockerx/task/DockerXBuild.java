@@ -20,52 +20,193 @@
 package io.github.arvinb.dockerx.task;
 
 import java.util.concurrent.atomic.*;
-import org.gradle.api.*;
+import org.gradle.api.file.*;
+import org.gradle.api.provider.*;
+import org.gradle.api.services.*;
 import org.gradle.api.tasks.*;
 import io.github.arvinb.dockerx.*;
+import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.service.*;
 import io.github.arvinb.dockerx.util.*;
+import io.github.arvinb.dockerx.work.*;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
-public class DockerXBuild extends DefaultTask {
+public abstract class DockerXBuild extends DockerXTask {
     
-    @TaskAction
-    public void buildTaskAction() {
+    @ServiceReference(SERVICE_BUILDER)
+    public abstract Property<DockerXBuilderService> getBuilderService();
+    
+    @ServiceReference(SERVICE_REGISTRY)
+    public abstract Property<DockerXRegistryService> getRegistryService();
+    
+    @Input
+    public abstract ListProperty<String> getImages();
+    
+    @InputFile @Optional @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract RegularFileProperty getDockerfile();
+    
+    @Internal
+    public abstract DirectoryProperty getWorkingDirectory();
+    
+    @InputFiles @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getContextFiles();
+    
+    @Internal
+    public abstract Property<Boolean> getSlimContext();
+    
+    @Internal
+    public abstract DirectoryProperty getStagingDirectory();
+    
+    @Internal
+    public abstract DirectoryProperty getExcludedDirectory();
+    
+    @Input
+    public abstract ListProperty<String> getPlatforms();
+    
+    @Internal
+    public abstract ListProperty<DockerXDockerConfig.PlatformItem> getPlatformItems();
+    
+    @Input
+    public abstract MapProperty<String, String> getBuildArgs();
+    
+    @Input @Optional
+    public abstract Property<String> getTarget();
+    
+    @Input @Optional
+    public abstract Property<String> getProvenance();
+    
+    @Input
+    public abstract Property<Boolean> getPush();
+    
+    @Input
+    public abstract Property<Boolean> getPlatformTags();
+    
+    @Internal
+    public abstract MapProperty<String, java.io.File> getSecrets();
+    
+    @InputFiles @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getSecretFiles();
+    
+    @OutputFile
+    public abstract RegularFileProperty getDigestsFile();
+    
+    @Internal
+    public abstract Property<DockerXDockerConfig.CacheItem> getCacheItem();
+    
+    @Internal
+    public abstract Property<String> getBuilder();
+    
+    @Internal
+    public abstract Property<Integer> getParallelism();
+    
+    @Internal
+    public abstract Property<Boolean> getDevbuild();
+    
+    @Internal
+    public abstract Property<Boolean> getKeepBuilder();
+    
+    @Internal
+    public abstract Property<Integer> getBuilderIdleTimeout();
+    
+    @Internal
+    public abstract Property<Boolean> getMultiArchReset();
+    
+    @Internal
+    public abstract Property<Boolean> getClean();
+    
+    @Internal
+    public abstract Property<DockerXPruneConfig.PruneItem> getPruneItem();
+    
+    @Internal
+    public abstract ListProperty<DockerXCredentialConfig.RegistryCredential> getRegistryCredentials();
+    
+    /// Constructor
+    
+    public DockerXBuild() {
         
         final DockerXExtension ext = getPluginExtension();
-        getProject().getLogger().lifecycle(this.toString(ext));
         
-        if ( !ext.getDryrun().get() ) {
-            
-            if ( !ext.getSkip().get() ) {
+        getImages().convention(ext.getDockerSpecs().getImages());
+        getDockerfile().convention(fromExtension( extension -> extension.getDockerfile() ));
+        getWorkingDirectory().convention(fromExtension( extension -> extension.getWorkingDirectory() ));
+        getPlatforms().convention(ext.getDockerSpecs().getPlatforms());
+        getPlatformItems().convention(fromExtension( extension -> extension.getPlatformItems() ));
+        getBuildArgs().convention(ext.getDockerSpecs().getBuildArgs());
+        getTarget().convention(ext.getDockerSpecs().getTarget());
+        getProvenance().convention(ext.getDockerSpecs().getProvenance());
+        getPush().convention(ext.getDockerSpecs().getPush());
+        getPlatformTags().convention(ext.getDockerSpecs().getPlatformTags());
+        getSecrets().convention(fromExtension( extension -> extension.getSecrets() ));
+        getCacheItem().convention(fromExtension( extension -> extension.getCacheItem() ));
+        getBuilder().convention(ext.getDockerSpecs().getBuilder());
+        getParallelism().convention(ext.getDockerSpecs().getParallelism());
+        getSlimContext().convention(ext.getDockerSpecs().getSlimContext());
+        getExcludedDirectory().convention(getProject().getLayout().getBuildDirectory().dir(DOCKERX_BUILD_DIR));
+        getStagingDirectory().convention(getProject().getLayout().getBuildDirectory().dir(CONTEXT_STAGING_DIR + "/" + getName()));
+        getDevbuild().convention(ext.getDockerSpecs().getDevbuild());
+        getKeepBuilder().convention(ext.getDockerSpecs().getKeepBuilder());
+        getBuilderIdleTimeout().convention(ext.getDockerSpecs().getBuilderIdleTimeout());
+        getMultiArchReset().convention(ext.getDockerSpecs().getMultiArchReset());
+        getClean().convention(ext.getDockerSpecs().getClean());
+        getPruneItem().convention(fromExtension( extension -> extension.getPruneItem() ));
+        getRegistryCredentials().convention(fromExtension( extension -> extension.getRegistryCredentials(extension.getDockerCredSpecs()) ));
+        
+        // Fingerprint what BuildKit actually receives, the context filtered by .dockerignore and the secrets
+        getContextFiles().from(getProject().fileTree(getWorkingDirectory(), tree -> {
+            tree.include(new DockerXContextUtil.ContextSpec(getWorkingDirectory(), getDockerfile(), getExcludedDirectory(), false));
+            tree.exclude(new DockerXContextUtil.ContextSpec(getWorkingDirectory(), getDockerfile(), getExcludedDirectory(), true));
+        }));
+        getSecretFiles().from(getSecrets().map( secrets -> secrets.values() ));
+        getDigestsFile().convention(getProject().getLayout().getBuildDirectory().file(BUILD_DIGESTS_DIR + "/" + getName() + ".properties"));
+        
+        // Images only exist beyond this build once pushed, local (--load) images are always rebuilt
+        getOutputs().upToDateWhen( task -> getPush().get() );
+        getOutputs().cacheIf( task -> getPush().get() );
+    }
+    
+    @Override
+    protected void taskAction() {
+        
+        if ( !getDryrun().get() ) {
             
-                // Verify the environment
-                DockerXVerifyUtil.verifyDockerEnvironment();
-                
-                // Clean the environment
-                if ( ext.getDockerSpecs().getClean().get() )
-                    DockerXDockerUtil.pruneAndClearCache(getProject(), ext.getDockerSpecs().getBuilder().get());
+            if ( !getSkip().get() ) {
                 
                 // Build Docker Image
-                DockerXDockerUtil.buildDockerImage(getProject(),                                                // Gradle Project
-                                                   ext.getDockerSpecs().getImages().get(),                      // Docker Images
-                                                   ext.getDockerfile().getOrNull(),                             // Dockerfile
-                                                   ext.getWorkingDirectory(),                                   // Working Directory
-                                                   ext.getDockerSpecs().getBuilder().get(),                     // Builder Name
-                                                   ext.getDockerSpecs().getProvenance().getOrNull(),            // Provenance
-                                                   ext.getPlatformItems().get(),                                // Platforms
-                                                   ext.getDockerSpecs().getBuildArgs().get(),                   // Build Arguments
-                                                   ext.getSecrets().get(),                                      // Docker Secrets
-                                                   ext.getDockerSpecs().getTarget().getOrNull(),                // Docker Target
-                                                   ext.getDockerSpecs().getPush().get(),                        // Push Flag
-                                                   ext.getDockerSpecs().getDevbuild().get(),                    // Dev Build Flag
-                                                   ext.getDockerSpecs().getMultiArchReset().get(),              // Multi Arch Reset Flag
-                                                   ext.getRegistryCredentials(ext.getDockerCredSpecs()).get()); // Docker Registry Credentials
+                submitWork(DockerXBuildAction.class, params -> {
+                    params.getBuilderService().set(getBuilderService());
+                    params.getRegistryService().set(getRegistryService());
+                    params.getImages().set(getImages());
+                    params.getDockerfile().set(getDockerfile());
+                    params.getWorkingDirectory().set(getWorkingDirectory());
+                    params.getSlimContext().set(getSlimContext());
+                    params.getStagingDirectory().set(getStagingDirectory());
+                    params.getExcludedDirectory().set(getExcludedDirectory());
+                    params.getPlatformItems().set(getPlatformItems());
+                    params.getBuildArgs().set(getBuildArgs());
+                    params.getTarget().set(getTarget());
+                    params.getProvenance().set(getProvenance());
+                    params.getPush().set(getPush());
+                    params.getPlatformTags().set(getPlatformTags());
+                    params.getSecrets().set(getSecrets());
+                    params.getCacheItem().set(getCacheItem());
+                    params.getBuilder().set(getBuilder());
+                    params.getParallelism().set(getParallelism());
+                    params.getDevbuild().set(getDevbuild());
+                    params.getKeepBuilder().set(getKeepBuilder());
+                    params.getBuilderIdleTimeout().set(getBuilderIdleTimeout());
+                    params.getMultiArchReset().set(getMultiArchReset());
+                    params.getClean().set(getClean());
+                    params.getPruneItem().set(getPruneItem());
+                    params.getRegistryCredentials().set(getRegistryCredentials());
+                    params.getDigestsFile().set(getDigestsFile());
+                });
             }
         }
     }
-    
+
     ///
     
+    @Override
     public String toString(DockerXExtension ext) {
         
         if (ext == null )
@@ -78,13 +219,22 @@ public class DockerXBuild extends DefaultTask {
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_SKIP + ") SKIP: ").append(ext.getSkip().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_BASE + ") WORKING DIR: ").append(ext.getWorkingDirectory().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") CLEAN: ").append(ext.getDockerSpecs().getClean().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_PRUNE + ") POLICY: ").append(ext.getPruneItem().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") DEVBUILD: ").append(ext.getDockerSpecs().getDevbuild().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") MULTIARCH REFRESH: ").append(ext.getDockerSpecs().getMultiArchReset().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") PUSH: ").append(ext.getDockerSpecs().getPush().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") PLATFORM TAGS: ").append(ext.getDockerSpecs().getPlatformTags().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") PARALLELISM: ").append(ext.getDockerSpecs().getParallelism().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") SLIM CONTEXT: ").append(ext.getDockerSpecs().getSlimContext().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") BUILDER: ").append(ext.getDockerSpecs().getBuilder().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") KEEP BUILDER: ").append(ext.getDockerSpecs().getKeepBuilder().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") BUILDER IDLE TIMEOUT: ").append(ext.getDockerSpecs().getBuilderIdleTimeout().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") PROVENANCE: ").append(ext.getDockerSpecs().getProvenance().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") TARGET: ").append(ext.getDockerSpecs().getTarget().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") DOCKERFILE: ").append(ext.getDockerSpecs().getDockerfile().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") CACHE TYPE: ").append(ext.getDockerSpecs().getCacheType().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") CACHE REF: ").append(ext.getDockerSpecs().getCacheRef().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") CACHE MODE: ").append(ext.getDockerSpecs().getCacheMode().getOrNull()).append(NEW_LINE);
         
         counter.set(0);
         ext.getDockerSpecs().getBuildArgs().get().forEach( (argKey, argValue) -> {
@@ -96,7 +246,7 @@ public class DockerXBuild extends DefaultTask {
         counter.set(0);
         ext.getSecrets().get().forEach( (secretKey, secretValue) -> {
             taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") SECRET KEY[" + counter + "]: ").append(secretKey).append(NEW_LINE);
-            taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") SECRET VALUE[" + counter + "]: ").append(secretValue.get().getAsFile().getPath()).append(NEW_LINE);
+            taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") SECRET VALUE[" + counter + "]: ").append(secretValue.getPath()).append(NEW_LINE);
             counter.getAndIncrement();
         });
         
@@ -114,10 +264,4 @@ public class DockerXBuild extends DefaultTask {
         
         return taskSpecs.toString();
     }
-
-    ///
-    
-    private final DockerXExtension getPluginExtension() {
-        return getProject().getExtensions().findByType(DockerXExtension.class);
-    }
 }
@@ -19,59 +19,114 @@
 
 package io.github.arvinb.dockerx.task;
 
-import org.gradle.api.tasks.*;
-import org.gradle.api.*;
 import org.gradle.api.file.*;
+import org.gradle.api.provider.*;
+import org.gradle.api.services.*;
+import org.gradle.api.tasks.*;
 import io.github.arvinb.dockerx.*;
+import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.service.*;
 import io.github.arvinb.dockerx.util.*;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
-public class DockerXCatalog extends DefaultTask {
+public abstract class DockerXCatalog extends DockerXTask {
     
     private String catalogSource = EMPTY_STRING + NEW_LINE;
     
-    @Input @Optional
+    @Internal
     public String getCatalogSource() {
         return catalogSource;
     }
     
-    @TaskAction
-    public void catalogTaskAction() {
+    @ServiceReference(SERVICE_REGISTRY)
+    public abstract Property<DockerXRegistryService> getRegistryService();
+    
+    @Internal
+    public abstract Property<DockerXDigestConfig.ResolveItem> getResolveItem();
+    
+    @Input @Optional
+    public abstract Property<String> getMetadataName();
+    
+    @Input @Optional
+    public abstract Property<String> getDisplayName();
+    
+    @Input @Optional
+    public abstract Property<String> getImage();
+    
+    @Internal
+    public abstract ListProperty<DockerXCredentialConfig.RegistryCredential> getRegistryCredentials();
+    
+    @Input @Optional
+    public abstract Property<String> getCommitMessage();
+    
+    @Input @Optional
+    public abstract Property<String> getCommitFile();
+    
+    @Input @Optional
+    public abstract Property<String> getGitHubBranch();
+    
+    @Internal
+    public abstract Property<String> getGitHubUsername();
+    
+    @Internal
+    public abstract Property<String> getGitHubPassword();
+    
+    @Internal
+    public abstract DirectoryProperty getCloneDirectory();
+    
+    /// Constructor
+    
+    public DockerXCatalog() {
         
         final DockerXExtension ext = getPluginExtension();
-        getProject().getLogger().lifecycle(this.toString(ext));
+        
+        getResolveItem().convention(fromExtension( extension -> extension.getResolveItem() ));
+        getMetadataName().convention(ext.getCatalogSpecs().getMetadataName());
+        getDisplayName().convention(ext.getCatalogSpecs().getDisplayName());
+        getImage().convention(ext.getCatalogSpecs().getImage());
+        getRegistryCredentials().convention(fromExtension( extension -> extension.getRegistryCredentials(extension.getDockerCredSpecs()) ));
+        getCommitMessage().convention(ext.getCatalogSpecs().getCommitMessage());
+        getCommitFile().convention(ext.getCatalogSpecs().getCommitFile());
+        getGitHubBranch().convention(ext.getGitHubSpecs().getGitHubBranch());
+        getGitHubUsername().convention(ext.getGitHubCredSpecs().getUsername());
+        getGitHubPassword().convention(ext.getGitHubCredSpecs().getPassword());
+        getCloneDirectory().convention(getProject().getLayout().getBuildDirectory().dir( ext.getGitHubSpecs().getGitHubURI().map(DockerXGitHubUtil::getRepositoryNameFromURI) ));
+    }
+    
+    @Override
+    protected void taskAction() {
         
         catalogSource =
-        DockerXCatalogUtil.getCatalogSourceData(getProject(), 
-                                                ext.getDryrun().get(), 
-                                                ext.getCatalogSpecs().getMetadataName().getOrElse(EMPTY_STRING), 
-                                                ext.getCatalogSpecs().getDisplayName().getOrElse(EMPTY_STRING), 
-                                                ext.getCatalogSpecs().getImage().getOrElse(EMPTY_STRING), 
-                                                ext.getRegistryCredentials(ext.getDockerCredSpecs()).get());
+        DockerXCatalogUtil.getCatalogSourceData(getLogger(), 
+                                                getRegistryService().get(), 
+                                                getResolveItem().get(), 
+                                                getDryrun().get(), 
+                                                getMetadataName().getOrElse(EMPTY_STRING), 
+                                                getDisplayName().getOrElse(EMPTY_STRING), 
+                                                getImage().getOrElse(EMPTY_STRING), 
+                                                getRegistryCredentials().get());
         
-        getProject().getLogger().lifecycle(CATALOG_HEADER + catalogSource + CATALOG_FOOTER);
+        getLogger().lifecycle(CATALOG_HEADER + catalogSource + CATALOG_FOOTER);
 
-        if ((ext.getCatalogSpecs().getCommitMessage().getOrNull() != null) && 
-            (ext.getCatalogSpecs().getCommitFile().getOrNull()    != null) &&
-            (!ext.getDryrun().get())) {
+        if ((getCommitMessage().getOrNull() != null) && 
+            (getCommitFile().getOrNull()    != null) &&
+            (!getDryrun().get())) {
             
             org.ajoberstar.grgit.Credentials gitHubCredentials =
-            new org.ajoberstar.grgit.Credentials(ext.getGitHubCredSpecs().getUsername().getOrNull(), 
-                                                 ext.getGitHubCredSpecs().getPassword().getOrNull());
-
-             DirectoryProperty cloneDirectory = getProject().getObjects().directoryProperty();
-            cloneDirectory.set( getProject().getLayout().getBuildDirectory().dir( DockerXGitHubUtil.getRepositoryNameFromURI( ext.getGitHubSpecs().getGitHubURI().get() ) ) );
+            new org.ajoberstar.grgit.Credentials(getGitHubUsername().getOrNull(), 
+                                                 getGitHubPassword().getOrNull());
 
             DockerXGitHubUtil.addAndCommitFile( gitHubCredentials,
-                                                cloneDirectory,
-                                                ext.getGitHubSpecs().getGitHubBranch().getOrNull(),
-                                                ext.getCatalogSpecs().getCommitFile().get(),
-                                                ext.getCatalogSpecs().getCommitMessage().get());
+                                                getCloneDirectory(),
+                                                getGitHubBranch().getOrNull(),
+                                                getCommitFile().get(),
+                                                getCommitMessage().get());
         }
     }
-    
+
     ///
     
+    @Override
     public String toString(DockerXExtension ext) {
         
         if (ext == null )
@@ -91,10 +146,4 @@ public class DockerXCatalog extends DefaultTask {
         
         return taskSpecs.toString();
     }
-
-    ///
-    
-    private final DockerXExtension getPluginExtension() {
-        return getProject().getExtensions().findByType(DockerXExtension.class);
-    }
 }
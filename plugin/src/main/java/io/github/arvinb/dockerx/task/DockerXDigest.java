@@ -20,36 +20,62 @@
 package io.github.arvinb.dockerx.task;
 
 import java.util.concurrent.atomic.*;
-import org.gradle.api.*;
+import org.gradle.api.file.*;
+import org.gradle.api.provider.*;
+import org.gradle.api.services.*;
 import org.gradle.api.tasks.*;
 import io.github.arvinb.dockerx.*;
-import io.github.arvinb.dockerx.util.*;
+import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.service.*;
+import io.github.arvinb.dockerx.work.*;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
  
-public class DockerXDigest extends DefaultTask {
+public abstract class DockerXDigest extends DockerXTask {
     
-    @TaskAction
-    public void digestTaskAction() {
+    @ServiceReference(SERVICE_REGISTRY)
+    public abstract Property<DockerXRegistryService> getRegistryService();
+    
+    @Internal
+    public abstract ListProperty<DockerXDigestConfig.DigestItem> getDigests();
+    
+    @Internal
+    public abstract Property<DockerXDigestConfig.ResolveItem> getResolveItem();
+    
+    @Internal
+    public abstract ListProperty<DockerXCredentialConfig.RegistryCredential> getRegistryCredentials();
+    
+    /// Constructor
+    
+    public DockerXDigest() {
         
-        final DockerXExtension ext = getPluginExtension();
-        getProject().getLogger().lifecycle(this.toString(ext));
+        getDigests().convention(fromExtension( extension -> extension.getDigests() ));
+        getResolveItem().convention(fromExtension( extension -> extension.getResolveItem() ));
+        getRegistryCredentials().convention(fromExtension( extension -> extension.getRegistryCredentials(extension.getDockerCredSpecs()) ));
+    }
+    
+    @Override
+    protected void taskAction() {
         
-        if ( !ext.getDryrun().get() ) {
-            
-            if ( !ext.getSkip().get() ) {
+        if ( !getDryrun().get() ) {
             
-                // Verify the environment
-                DockerXVerifyUtil.verifyDockerEnvironment();
+            if ( !getSkip().get() ) {
+                
+                if ( getDigests().get().isEmpty() ) return; // Nothing to do...
                 
                 // Inject Digests into Target File(s)
-                if (!ext.getDigests().get().isEmpty())
-                    DockerXDigestUtil.injectImageDigests(getProject(), ext.getDigests().get(), ext.getRegistryCredentials(ext.getDockerCredSpecs()).get());
+                submitWork(DockerXDigestAction.class, params -> {
+                    params.getRegistryService().set(getRegistryService());
+                    params.getDigests().set(getDigests());
+                    params.getResolveItem().set(getResolveItem());
+                    params.getRegistryCredentials().set(getRegistryCredentials());
+                });
             }
         }
     }
-    
+
     ///
     
+    @Override
     public String toString(DockerXExtension ext) {
         
         if (ext == null )
@@ -71,12 +97,12 @@ public class DockerXDigest extends DefaultTask {
             counter.getAndIncrement();
         });
         
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") DIGEST PARALLELISM: ").append(ext.getDigestSpecs().getParallelism().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") REGISTRY CONCURRENCY: ").append(ext.getDigestSpecs().getRegistryConcurrency().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") CACHE REGISTRIES: ").append(ext.getDigestSpecs().getCacheRegistries().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") CACHE TTL: ").append(ext.getDigestSpecs().getCacheTtl().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOCKERX_BUILD + ") IMMUTABLE TAGS: ").append(ext.getDigestSpecs().getImmutableTags().getOrNull()).append(NEW_LINE);
+        
         return taskSpecs.toString();
     }
-
-    ///
-    
-    private final DockerXExtension getPluginExtension() {
-        return getProject().getExtensions().findByType(DockerXExtension.class);
-    }
-}
\ No newline at end of file
+}
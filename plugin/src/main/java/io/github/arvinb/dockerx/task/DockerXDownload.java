@@ -20,36 +20,81 @@
 package io.github.arvinb.dockerx.task;
 
 import java.util.concurrent.atomic.*;
-import org.gradle.api.*;
+import org.gradle.api.file.*;
+import org.gradle.api.provider.*;
+import org.gradle.api.services.*;
 import org.gradle.api.tasks.*;
-import io.github.arvinb.dockerx.DockerXExtension;
-import io.github.arvinb.dockerx.util.*;
+import io.github.arvinb.dockerx.*;
+import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.service.*;
+import io.github.arvinb.dockerx.work.*;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
-public class DockerXDownload extends DefaultTask {
+public abstract class DockerXDownload extends DockerXTask {
     
-    @TaskAction
-    public void downloadTaskAction() {
+    @ServiceReference(SERVICE_SCHEDULER)
+    public abstract Property<DockerXSchedulerService> getSchedulerService();
+    
+    @Internal
+    public abstract ListProperty<DockerXDownloadConfig.DownloadItem> getDownloads();
+    
+    @Internal
+    public abstract Property<String> getUsername();
+    
+    @Internal
+    public abstract Property<String> getPassword();
+    
+    @Input
+    public abstract Property<Boolean> getOverwrite();
+    
+    @Input
+    public abstract Property<Boolean> getIdentityToken();
+    
+    @Input
+    public abstract Property<Boolean> getAcceptAnyCertificate();
+    
+    @Internal
+    public abstract Property<Integer> getParallelism();
+    
+    /// Constructor
+    
+    public DockerXDownload() {
         
         final DockerXExtension ext = getPluginExtension();
-        getProject().getLogger().lifecycle(this.toString(ext));
         
-        if ( !ext.getDryrun().get() ) {
+        getDownloads().convention(fromExtension( extension -> extension.getDownloads() ));
+        getUsername().convention(ext.getDownloadCredSpecs().getUsername());
+        getPassword().convention(ext.getDownloadCredSpecs().getPassword());
+        getOverwrite().convention(ext.getDownloadSpecs().getOverwrite());
+        getIdentityToken().convention(ext.getDownloadSpecs().getIdentityToken());
+        getAcceptAnyCertificate().convention(ext.getDownloadSpecs().getAcceptAnyCertificate());
+        getParallelism().convention(ext.getDownloadSpecs().getParallelism());
+    }
+    
+    @Override
+    protected void taskAction() {
+        
+        if ( !getDryrun().get() ) {
             
-            if ( !ext.getSkip().get() ) {
+            if ( !getSkip().get() ) {
                 
-                DockerXDownloadUtil.downloadArtifacts(getProject(),
-                                                      ext.getDownloads().get(),
-                                                      ext.getDownloadCredSpecs().getUsername().getOrNull(), 
-                                                      ext.getDownloadCredSpecs().getPassword().getOrNull(), 
-                                                      ext.getDownloadSpecs().getOverwrite().get(),
-                                                      ext.getDownloadSpecs().getIdentityToken().get());
+                submitWork(DockerXDownloadAction.class, params -> {
+                    params.getSchedulerService().set(getSchedulerService());
+                    params.getDownloads().set(getDownloads());
+                    params.getUsername().set(getUsername());
+                    params.getPassword().set(getPassword());
+                    params.getOverwrite().set(getOverwrite());
+                    params.getIdentityToken().set(getIdentityToken());
+                    params.getAcceptAnyCertificate().set(getAcceptAnyCertificate());
+                    params.getParallelism().set(getParallelism());
+                });
             }
         }
     }
-    
+
     ///
     
+    @Override
     public String toString(DockerXExtension ext) {
         
         if (ext == null )
@@ -63,20 +108,16 @@ public class DockerXDownload extends DefaultTask {
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_BASE + ") WORKING DIR: ").append(ext.getWorkingDirectory().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOWNLOAD + ") OVERWRITE: ").append(ext.getDownloadSpecs().getOverwrite().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOWNLOAD + ") ID TOKEN: ").append(ext.getDownloadSpecs().getIdentityToken().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOWNLOAD + ") ANY CERTIFICATE: ").append(ext.getDownloadSpecs().getAcceptAnyCertificate().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOWNLOAD + ") PARALLELISM: ").append(ext.getDownloadSpecs().getParallelism().getOrNull()).append(NEW_LINE);
         
         ext.getDownloads().get().forEach( downloadItem -> {
             
             taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOWNLOAD + ") URL[" + counter + "]: ").append(downloadItem.getDownloadURL().toExternalForm()).append(NEW_LINE);
-            taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOWNLOAD + ") DIR[" + counter + "]: ").append(downloadItem.getDownloadDir().get().getAsFile().getPath()).append(NEW_LINE);
+            taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_DOWNLOAD + ") DIR[" + counter + "]: ").append(downloadItem.getDownloadDir().getPath()).append(NEW_LINE);
             counter.getAndIncrement();
         });
         
         return taskSpecs.toString();
     }
-
-    ///
-    
-    private final DockerXExtension getPluginExtension() {
-        return getProject().getExtensions().findByType(DockerXExtension.class);
-    }
 }
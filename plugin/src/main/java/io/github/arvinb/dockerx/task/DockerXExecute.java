@@ -20,31 +20,42 @@
 package io.github.arvinb.dockerx.task;
 
 import java.util.concurrent.atomic.*;
-import org.gradle.api.*;
+import org.gradle.api.file.*;
+import org.gradle.api.provider.*;
 import org.gradle.api.tasks.*;
 import io.github.arvinb.dockerx.*;
-import io.github.arvinb.dockerx.util.*;
+import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.work.*;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
-public class DockerXExecute extends DefaultTask {
+public abstract class DockerXExecute extends DockerXTask {
     
-    @TaskAction
-    public void executeTaskAction() {
-        
-        final DockerXExtension ext = getPluginExtension();
-        getProject().getLogger().lifecycle(this.toString(ext));
+    @Internal
+    public abstract ListProperty<DockerXExecuteConfig.ActionItem> getActionItems();
+    
+    /// Constructor
+    
+    public DockerXExecute() {
+        getActionItems().convention(fromExtension( extension -> extension.getActionItems() ));
+    }
+    
+    @Override
+    protected void taskAction() {
         
-        if ( !ext.getDryrun().get() ) {
+        if ( !getDryrun().get() ) {
             
-            if ( !ext.getSkip().get() ) {
-                DockerXExecuteUtil.executeActions(getProject(),                // Gradle Project
-                                                  ext.getActionItems().get()); // Action items
+            if ( !getSkip().get() ) {
+                
+                submitWork(DockerXExecuteAction.class, params -> {
+                    params.getActionItems().set(getActionItems());
+                });
             }
         }
     }
-    
+
     ///
     
+    @Override
     public String toString(DockerXExtension ext) {
         
         if (ext == null )
@@ -60,18 +71,12 @@ public class DockerXExecute extends DefaultTask {
         
         ext.getActionItems().get().forEach( actionItem -> {
             
-            taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_EXECUTE + ") ACTION[" + counter + "]: ").append(actionItem.getActionObj().get().getAsFile().getPath()).append(NEW_LINE);
+            taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_EXECUTE + ") ACTION[" + counter + "]: ").append(actionItem.getActionObj().getPath()).append(NEW_LINE);
             if (!ext.getExecSpecs().getHideArgs().get())
-                taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_EXECUTE + ") ARGS[" + counter + "]: ").append(actionItem.getActionArgs().get().toString()).append(NEW_LINE);
+                taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_EXECUTE + ") ARGS[" + counter + "]: ").append(actionItem.getActionArgs().toString()).append(NEW_LINE);
             counter.getAndIncrement();
         });
         
         return taskSpecs.toString();
     }
-
-    ///
-    
-    private final DockerXExtension getPluginExtension() {
-        return getProject().getExtensions().findByType(DockerXExtension.class);
-    }
 }
@@ -9,44 +9,67 @@
 
 package io.github.arvinb.dockerx.task;
 
-import org.gradle.api.*;
 import org.gradle.api.file.*;
+import org.gradle.api.provider.*;
 import org.gradle.api.tasks.*;
 import io.github.arvinb.dockerx.*;
 import io.github.arvinb.dockerx.util.*;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
-public class DockerXGitHub extends DefaultTask {
+public abstract class DockerXGitHub extends DockerXTask {
     
-    @TaskAction
-    public void gitHubTaskAction() {
+    @Input @Optional
+    public abstract Property<String> getGitHubURI();
+    
+    @Input @Optional
+    public abstract Property<String> getGitHubBranch();
+    
+    @Internal
+    public abstract Property<String> getUsername();
+    
+    @Internal
+    public abstract Property<String> getPassword();
+    
+    @Internal
+    public abstract DirectoryProperty getCloneDirectory();
+    
+    /// Constructor
+    
+    public DockerXGitHub() {
         
         final DockerXExtension ext = getPluginExtension();
-        getProject().getLogger().lifecycle(this.toString(ext));
         
-        if ( !ext.getDryrun().get() ) {
+        getGitHubURI().convention(ext.getGitHubSpecs().getGitHubURI());
+        getGitHubBranch().convention(ext.getGitHubSpecs().getGitHubBranch());
+        getUsername().convention(ext.getGitHubCredSpecs().getUsername());
+        getPassword().convention(ext.getGitHubCredSpecs().getPassword());
+        getCloneDirectory().convention(getProject().getLayout().getBuildDirectory().dir( getGitHubURI().map(DockerXGitHubUtil::getRepositoryNameFromURI) ));
+    }
+    
+    @Override
+    protected void taskAction() {
+        
+        if ( !getDryrun().get() ) {
             
-            if ( !ext.getSkip().get() ) {
+            if ( !getSkip().get() ) {
             
-                DockerXVerifyUtil.verifyGitHubRepo(ext.getGitHubSpecs().getGitHubURI().get());
-                
-                DirectoryProperty cloneDirectory = getProject().getObjects().directoryProperty();
-                cloneDirectory.set( getProject().getLayout().getBuildDirectory().dir( DockerXGitHubUtil.getRepositoryNameFromURI( ext.getGitHubSpecs().getGitHubURI().get() ) ) );
+                DockerXVerifyUtil.verifyGitHubRepo(getGitHubURI().get());
                 
                 org.ajoberstar.grgit.Credentials gitHubCredentials =
-                new org.ajoberstar.grgit.Credentials(ext.getGitHubCredSpecs().getUsername().getOrNull(), 
-                                                     ext.getGitHubCredSpecs().getPassword().getOrNull());
+                new org.ajoberstar.grgit.Credentials(getUsername().getOrNull(), 
+                                                     getPassword().getOrNull());
                 
                 DockerXGitHubUtil.cloneAndCheckoutRepository(gitHubCredentials, 
-                                                             ext.getGitHubSpecs().getGitHubURI().get(), 
-                                                             cloneDirectory, 
-                                                             ext.getGitHubSpecs().getGitHubBranch().getOrNull());
+                                                             getGitHubURI().get(), 
+                                                             getCloneDirectory(), 
+                                                             getGitHubBranch().getOrNull());
             }
         }
     }
-    
+
     ///
     
+    @Override
     public String toString(DockerXExtension ext) {
         
         if (ext == null )
@@ -62,10 +85,4 @@ public class DockerXGitHub extends DefaultTask {
         
         return taskSpecs.toString();
     }
-
-    ///
-    
-    private final DockerXExtension getPluginExtension() {
-        return getProject().getExtensions().findByType(DockerXExtension.class);
-    }
 }
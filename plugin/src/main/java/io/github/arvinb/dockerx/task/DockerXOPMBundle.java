@@ -20,49 +20,121 @@
 package io.github.arvinb.dockerx.task;
 
 import java.util.concurrent.atomic.*;
-import org.gradle.api.*;
+import org.gradle.api.file.*;
+import org.gradle.api.provider.*;
+import org.gradle.api.services.*;
 import org.gradle.api.tasks.*;
 import io.github.arvinb.dockerx.*;
+import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.service.*;
 import io.github.arvinb.dockerx.util.*;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
 @SuppressWarnings("incomplete-switch")
-public class DockerXOPMBundle extends DefaultTask {
-
-    @TaskAction
-    public void opmTaskAction() {
+public abstract class DockerXOPMBundle extends DockerXTask {
+    
+    @ServiceReference(SERVICE_BUILDER)
+    public abstract Property<DockerXBuilderService> getBuilderService();
+    
+    @ServiceReference(SERVICE_REGISTRY)
+    public abstract Property<DockerXRegistryService> getRegistryService();
+    
+    @Input @Optional
+    public abstract Property<String> getAction();
+    
+    @Input
+    public abstract ListProperty<String> getBundleImages();
+    
+    @Internal
+    public abstract DirectoryProperty getBundleDirectory();
+    
+    @Internal
+    public abstract DirectoryProperty getManifestsDirectory();
+    
+    @Input @Optional
+    public abstract Property<String> getPackageName();
+    
+    @Input
+    public abstract ListProperty<String> getChannels();
+    
+    @Input @Optional
+    public abstract Property<String> getDefaultChannel();
+    
+    @Input
+    public abstract Property<String> getTool();
+    
+    @Input
+    public abstract Property<Boolean> getOverwriteMetadata();
+    
+    @Input
+    public abstract Property<Boolean> getPush();
     
+    @Internal
+    public abstract Property<Boolean> getClean();
+    
+    @Internal
+    public abstract Property<String> getBuilder();
+    
+    @Internal
+    public abstract Property<DockerXPruneConfig.PruneItem> getPruneItem();
+    
+    @Internal
+    public abstract ListProperty<DockerXCredentialConfig.RegistryCredential> getRegistryCredentials();
+    
+    /// Constructor
+    
+    public DockerXOPMBundle() {
+        
         final DockerXExtension ext = getPluginExtension();
-        getProject().getLogger().lifecycle(this.toString(ext));
         
-        if ( !ext.getDryrun().get() ) {
+        getAction().convention(ext.getOpmSpecs().getAction());
+        getBundleImages().convention(ext.getOpmSpecs().getBundleImages());
+        getBundleDirectory().convention(fromExtension( extension -> extension.getBundleDirectory() ));
+        getManifestsDirectory().convention(fromExtension( extension -> extension.getManifestsDirectory() ));
+        getPackageName().convention(ext.getOpmSpecs().getPackageName());
+        getChannels().convention(ext.getOpmSpecs().getChannels());
+        getDefaultChannel().convention(ext.getOpmSpecs().getDefaultChannel());
+        getTool().convention(ext.getOpmSpecs().getTool());
+        getOverwriteMetadata().convention(ext.getOpmSpecs().getOverwriteMetadata());
+        getPush().convention(ext.getOpmSpecs().getPush());
+        getClean().convention(ext.getOpmSpecs().getClean());
+        getBuilder().convention(ext.getDockerSpecs().getBuilder());
+        getPruneItem().convention(fromExtension( extension -> extension.getPruneItem() ));
+        getRegistryCredentials().convention(fromExtension( extension -> extension.getRegistryCredentials(extension.getDockerCredSpecs()) ));
+    }
+    
+    @Override
+    protected void taskAction() {
+        
+        if ( !getDryrun().get() ) {
             
-            if ( !ext.getSkip().get() ) {
+            if ( !getSkip().get() ) {
             
                 // Verify the environment
-                DockerXVerifyUtil.verifyOperatorPackageManager(getProject());
+                DockerXVerifyUtil.verifyOperatorPackageManager(getLogger());
                 DockerXVerifyUtil.verifyDockerEnvironment();
                 
                 // Clean the environment
-                if ( ext.getOpmSpecs().getClean().get() )
-                    DockerXDockerUtil.pruneAndClearCache(getProject(), ext.getDockerSpecs().getBuilder().get());
+                if ( getClean().get() )
+                    DockerXDockerUtil.pruneAndClearCache(getLogger(), getBuilderService().get(), getBuilder().get(), getPruneItem().get());
                 
-                switch(DockerXOPMEnum.fromString(ext.getOpmSpecs().getAction().getOrElse(EMPTY_STRING))) {
+                switch(DockerXOPMEnum.fromString(getAction().getOrElse(EMPTY_STRING))) {
                 
                     case BUILD:
                         
                         // Build Bundle Image
-                        DockerXOPMUtil.buildBundleImage(getProject(),                                                  // Gradle Project
-                                                        ext.getOpmSpecs().getBundleImages().get(),                     // Bundle images
-                                                        ext.getBundleDirectory(),                                      // Bundle directory
-                                                        ext.getManifestsDirectory(),                                   // Manifests directory
-                                                        ext.getOpmSpecs().getPackageName().getOrElse(EMPTY_STRING),    // Package name
-                                                        ext.getOpmSpecs().getChannels().get(),                         // Channels
-                                                        ext.getOpmSpecs().getDefaultChannel().getOrElse(EMPTY_STRING), // Default channel
-                                                        ext.getOpmSpecs().getTool().get(),                             // Image builder tool (Default: docker)
-                                                        ext.getOpmSpecs().getOverwriteMetadata().get(),                // Overwrite metadata flag
-                                                        ext.getOpmSpecs().getPush().get(),                             // Push flag
-                                                        ext.getRegistryCredentials(ext.getDockerCredSpecs()).get());   // Docker Registry Credentials
+                        DockerXOPMUtil.buildBundleImage(getLogger(),                                                   // Gradle Logger
+                                                        getRegistryService().get(),                                    // Registry service
+                                                        getBundleImages().get(),                                       // Bundle images
+                                                        getBundleDirectory(),                                          // Bundle directory
+                                                        getManifestsDirectory(),                                       // Manifests directory
+                                                        getPackageName().getOrElse(EMPTY_STRING),                      // Package name
+                                                        getChannels().get(),                                           // Channels
+                                                        getDefaultChannel().getOrElse(EMPTY_STRING),                   // Default channel
+                                                        getTool().get(),                                               // Image builder tool (Default: docker)
+                                                        getOverwriteMetadata().get(),                                  // Overwrite metadata flag
+                                                        getPush().get(),                                               // Push flag
+                                                        getRegistryCredentials().get());                               // Docker Registry Credentials
                         break;
                 }
             }
@@ -71,6 +143,7 @@ public class DockerXOPMBundle extends DefaultTask {
 
     ///
 
+    @Override
     public String toString(DockerXExtension ext) {
         
         if (ext == null )
@@ -84,6 +157,7 @@ public class DockerXOPMBundle extends DefaultTask {
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_BASE + ") WORKING DIR: ").append(ext.getWorkingDir().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") ACTION: ").append(ext.getOpmSpecs().getAction().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") CLEAN: ").append(ext.getOpmSpecs().getClean().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_PRUNE + ") POLICY: ").append(ext.getPruneItem().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") BUNDLE DIR: ").append(ext.getOpmSpecs().getBundleDir().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") PACKAGE NAME: ").append(ext.getOpmSpecs().getPackageName().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") DEFAULT CHANNEL: ").append(ext.getOpmSpecs().getDefaultChannel().getOrNull()).append(NEW_LINE);
@@ -105,10 +179,4 @@ public class DockerXOPMBundle extends DefaultTask {
         
         return taskSpecs.toString();
     }
-
-    ///
-    
-    private final DockerXExtension getPluginExtension() {
-        return getProject().getExtensions().findByType(DockerXExtension.class);
-    }
 }
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+
+package io.github.arvinb.dockerx.task;
+
+import java.util.concurrent.atomic.*;
+import org.gradle.api.file.*;
+import org.gradle.api.provider.*;
+import org.gradle.api.tasks.*;
+import io.github.arvinb.dockerx.*;
+import io.github.arvinb.dockerx.util.*;
+import static io.github.arvinb.dockerx.DockerXConstants.*;
+
+@CacheableTask
+public abstract class DockerXOPMCatalog extends DockerXTask {
+    
+    @Input
+    public abstract Property<String> getOutputFormat();
+    
+    @Input @Optional
+    public abstract Property<String> getPackageName();
+    
+    @Input @Optional
+    public abstract Property<String> getDefaultChannel();
+    
+    @Input
+    public abstract ListProperty<String> getChannels();
+    
+    @Input
+    public abstract Property<String> getMode();
+    
+    @InputFile @Optional @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract RegularFileProperty getCatalogReadme();
+    
+    @InputFile @Optional @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract RegularFileProperty getCatalogIcon();
+    
+    /**
+     * Rendered bundles (and existing catalog blobs) merged into the catalog (Default: the dockerXOPMRender outputs)
+     */
+    @InputFiles @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getBundleFiles();
+    
+    @OutputFile
+    public abstract RegularFileProperty getCatalogFile();
+    
+    /// Constructor
+    
+    public DockerXOPMCatalog() {
+        
+        final DockerXExtension ext = getPluginExtension();
+        
+        getOutputFormat().convention(ext.getOpmSpecs().getOutputFormat());
+        getPackageName().convention(ext.getOpmSpecs().getPackageName());
+        getDefaultChannel().convention(ext.getOpmSpecs().getDefaultChannel());
+        getChannels().convention(ext.getOpmSpecs().getChannels());
+        getMode().convention(ext.getOpmSpecs().getMode());
+        getCatalogReadme().convention(fromExtension( extension -> extension.getCatalogReadme() ));
+        getCatalogIcon().convention(fromExtension( extension -> extension.getCatalogIcon() ));
+        getCatalogFile().convention(fromExtension( extension -> extension.getCatalogFile() ));
+    }
+    
+    @Override
+    protected void taskAction() {
+        
+        if ( !getDryrun().get() ) {
+            
+            try {
+                
+                DockerXFBCUtil.FBCPackage olmPackage = DockerXFBCUtil.FBCPackage.of(getPackageName().getOrElse(EMPTY_STRING),
+                                                                                    getDefaultChannel().getOrNull(),
+                                                                                    getCatalogReadme().isPresent() ? getCatalogReadme().get().getAsFile() : null,
+                                                                                    getCatalogIcon().isPresent() ? getCatalogIcon().get().getAsFile() : null);
+                
+                java.util.List<java.io.File> bundleFiles = new java.util.ArrayList<java.io.File>(getBundleFiles().getFiles());
+                
+                // Generate one consolidated file-based catalog
+                DockerXFBCUtil.generateCatalog(getLogger(),                                                  // Gradle Logger
+                                               getCatalogFile().get().getAsFile(),                           // Catalog file
+                                               getOutputFormat().get(),                                      // Output format (json|yaml) (default "yaml")
+                                               olmPackage,                                                   // olm.package blob
+                                               getChannels().get(),                                          // Channels of the bundles
+                                               getMode().get(),                                              // Channel update mode
+                                               bundleFiles);                                                 // Rendered bundles
+                
+            } catch (java.io.IOException ex) {
+                DockerXVerifyUtil.stopGradleException(MESSAGE_FBC_EXEC + ex.getMessage());
+            }
+        }
+    }
+
+    ///
+
+    @Override
+    public String toString(DockerXExtension ext) {
+        
+        if (ext == null )
+            return super.toString();
+        
+        StringBuilder taskSpecs = new StringBuilder(EMPTY_STRING);
+        AtomicInteger counter = new AtomicInteger(0);
+        
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_BASE + ") DRYRUN: ").append(ext.getDryrun().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_BASE + ") WORKING DIR: ").append(ext.getWorkingDirectory().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") PACKAGE NAME: ").append(ext.getOpmSpecs().getPackageName().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") DEFAULT CHANNEL: ").append(ext.getOpmSpecs().getDefaultChannel().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") MODE: ").append(ext.getOpmSpecs().getMode().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") FORMAT: ").append(ext.getOpmSpecs().getOutputFormat().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") CATALOG FILE: ").append(ext.getCatalogFile().getOrNull()).append(NEW_LINE);
+        
+        counter.set(0);
+        ext.getOpmSpecs().getChannels().get().forEach( channel -> {
+            taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") CHANNEL[" + counter + "]: ").append(channel).append(NEW_LINE);
+            counter.getAndIncrement();
+        });
+        
+        counter.set(0);
+        ext.getRenderOutputFiles().get().forEach( bundleFile -> {
+            taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") BUNDLE FILE[" + counter + "]: ").append(bundleFile).append(NEW_LINE);
+            counter.getAndIncrement();
+        });
+        
+        return taskSpecs.toString();
+    }
+}
@@ -20,39 +20,75 @@
 package io.github.arvinb.dockerx.task;
 
 import java.util.concurrent.atomic.*;
-import org.gradle.api.*;
+import org.gradle.api.file.*;
+import org.gradle.api.provider.*;
 import org.gradle.api.tasks.*;
 import io.github.arvinb.dockerx.*;
 import io.github.arvinb.dockerx.util.*;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
-public class DockerXOPMInit extends DefaultTask {
+public abstract class DockerXOPMInit extends DockerXTask {
     
-    @TaskAction
-    public void opmTaskAction() {
+    @Internal
+    public abstract DirectoryProperty getWorkingDirectory();
     
+    @Input
+    public abstract Property<String> getOutputPrefix();
+    
+    @Input
+    public abstract Property<String> getOutputFormat();
+    
+    @Input @Optional
+    public abstract Property<String> getPackageName();
+    
+    @Input @Optional
+    public abstract Property<String> getDefaultChannel();
+    
+    @InputFile @Optional @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract RegularFileProperty getCatalogReadme();
+    
+    @InputFile @Optional @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract RegularFileProperty getCatalogIcon();
+    
+    @OutputFile
+    public abstract RegularFileProperty getOutputFile();
+    
+    /// Constructor
+    
+    public DockerXOPMInit() {
+        
         final DockerXExtension ext = getPluginExtension();
-        getProject().getLogger().lifecycle(this.toString(ext));
-
-        if ( !ext.getDryrun().get() ) {
         
-            // Verify the environment
-            DockerXVerifyUtil.verifyOperatorPackageManager(getProject());
-
+        getWorkingDirectory().convention(fromExtension( extension -> extension.getWorkingDirectory() ));
+        getOutputPrefix().convention(ext.getOpmSpecs().getOutputPrefix());
+        getOutputFormat().convention(ext.getOpmSpecs().getOutputFormat());
+        getPackageName().convention(ext.getOpmSpecs().getPackageName());
+        getDefaultChannel().convention(ext.getOpmSpecs().getDefaultChannel());
+        getCatalogReadme().convention(fromExtension( extension -> extension.getCatalogReadme() ));
+        getCatalogIcon().convention(fromExtension( extension -> extension.getCatalogIcon() ));
+        getOutputFile().convention(getWorkingDirectory().file( getOutputPrefix().zip(getOutputFormat(), (prefix, format) -> prefix + "." + format) ));
+    }
+    
+    @Override
+    protected void taskAction() {
+        
+        if ( !getDryrun().get() ) {
+        
             // Generate an olm.package declarative config blob
-            DockerXOPMUtil.initOLMPackage(getProject(),                                            // Gradle Project
-                                                ext.getWorkingDirectory(),                         // Working directory 
-                                                ext.getOpmSpecs().getOutputPrefix().get(),         // Output file prefix
-                                                ext.getOpmSpecs().getOutputFormat().get(),         // Output format (json|yaml) (default "yaml")
-                                                ext.getOpmSpecs().getPackageName().get(),          // Package name
-                                                ext.getOpmSpecs().getDefaultChannel().getOrNull(), // Bundle default channel
-                                                ext.getCatalogReadme().getOrNull(),                // README.md
-                                                ext.getCatalogIcon().getOrNull());                 // Catalog icon (image.svg)
+            DockerXOPMUtil.initOLMPackage(getLogger(),                                             // Gradle Logger
+                                                getWorkingDirectory(),                             // Working directory 
+                                                getOutputPrefix().get(),                           // Output file prefix
+                                                getOutputFormat().get(),                           // Output format (json|yaml) (default "yaml")
+                                                getPackageName().get(),                            // Package name
+                                                getDefaultChannel().getOrNull(),                   // Bundle default channel
+                                                getCatalogReadme().getOrNull(),                    // README.md
+                                                getCatalogIcon().getOrNull());                     // Catalog icon (image.svg)
         }
     }
 
     ///
 
+    @Override
     public String toString(DockerXExtension ext) {
         
         if (ext == null )
@@ -78,10 +114,4 @@ public class DockerXOPMInit extends DefaultTask {
         
         return taskSpecs.toString();
     }
-
-    ///
-    
-    private final DockerXExtension getPluginExtension() {
-        return getProject().getExtensions().findByType(DockerXExtension.class);
-    }
 }
@@ -20,44 +20,101 @@
 package io.github.arvinb.dockerx.task;
 
 import java.util.concurrent.atomic.*;
-import org.gradle.api.*;
+import org.gradle.api.file.*;
+import org.gradle.api.provider.*;
+import org.gradle.api.services.*;
 import org.gradle.api.tasks.*;
 import io.github.arvinb.dockerx.*;
+import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.service.*;
 import io.github.arvinb.dockerx.util.*;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
 @SuppressWarnings("incomplete-switch")
-public class DockerXOPMRegistry extends DefaultTask {
+public abstract class DockerXOPMRegistry extends DockerXTask {
     
-    @TaskAction
-    public void opmTaskAction() {
+    @ServiceReference(SERVICE_BUILDER)
+    public abstract Property<DockerXBuilderService> getBuilderService();
     
+    @ServiceReference(SERVICE_REGISTRY)
+    public abstract Property<DockerXRegistryService> getRegistryService();
+    
+    @Input @Optional
+    public abstract Property<String> getAction();
+    
+    @Input
+    public abstract ListProperty<String> getBundleImages();
+    
+    @Internal
+    public abstract DirectoryProperty getBundleDirectory();
+    
+    @Input
+    public abstract Property<String> getTool();
+    
+    @Input
+    public abstract Property<String> getMode();
+    
+    @Internal
+    public abstract Property<DockerXDigestConfig.ResolveItem> getResolveItem();
+    
+    @Internal
+    public abstract Property<Boolean> getClean();
+    
+    @Internal
+    public abstract Property<String> getBuilder();
+    
+    @Internal
+    public abstract Property<DockerXPruneConfig.PruneItem> getPruneItem();
+    
+    @Internal
+    public abstract ListProperty<DockerXCredentialConfig.RegistryCredential> getRegistryCredentials();
+    
+    /// Constructor
+    
+    public DockerXOPMRegistry() {
+        
         final DockerXExtension ext = getPluginExtension();
-        getProject().getLogger().lifecycle(this.toString(ext));
         
-        if ( !ext.getDryrun().get() ) {
+        getAction().convention(ext.getOpmSpecs().getAction());
+        getBundleImages().convention(ext.getOpmSpecs().getBundleImages());
+        getBundleDirectory().convention(fromExtension( extension -> extension.getBundleDirectory() ));
+        getTool().convention(ext.getOpmSpecs().getTool());
+        getMode().convention(ext.getOpmSpecs().getMode());
+        getResolveItem().convention(fromExtension( extension -> extension.getResolveItem() ));
+        getClean().convention(ext.getOpmSpecs().getClean());
+        getBuilder().convention(ext.getDockerSpecs().getBuilder());
+        getPruneItem().convention(fromExtension( extension -> extension.getPruneItem() ));
+        getRegistryCredentials().convention(fromExtension( extension -> extension.getRegistryCredentials(extension.getDockerCredSpecs()) ));
+    }
+    
+    @Override
+    protected void taskAction() {
+        
+        if ( !getDryrun().get() ) {
             
-            if ( !ext.getSkip().get() ) {
+            if ( !getSkip().get() ) {
             
                 // Verify the environment
-                DockerXVerifyUtil.verifyOperatorPackageManager(getProject());
+                DockerXVerifyUtil.verifyOperatorPackageManager(getLogger());
                 DockerXVerifyUtil.verifyDockerEnvironment();
                 
                 // Clean the environment
-                if ( ext.getOpmSpecs().getClean().get() )
-                    DockerXDockerUtil.pruneAndClearCache(getProject(), ext.getDockerSpecs().getBuilder().get());
+                if ( getClean().get() )
+                    DockerXDockerUtil.pruneAndClearCache(getLogger(), getBuilderService().get(), getBuilder().get(), getPruneItem().get());
+                
+                switch(DockerXOPMEnum.fromString(getAction().getOrElse(EMPTY_STRING))) {
                 
-                switch(DockerXOPMEnum.fromString(ext.getOpmSpecs().getAction().getOrElse(EMPTY_STRING))) {
-                    
                     case ADD:
-                    
+                        
                         // Add Registry to create a bundles db
-                        DockerXOPMUtil.addRegistryBundlesDb(getProject(),                                                // Gradle Project
-                                                            ext.getOpmSpecs().getBundleImages().get(),                   // Bundle images
-                                                            ext.getBundleDirectory(),                                    // Bundle directory
-                                                            ext.getOpmSpecs().getTool().get(),                           // Container tool (Default: docker)
-                                                            ext.getOpmSpecs().getMode().get(),                           // Graph update mode (Default: replaces)
-                                                            ext.getRegistryCredentials(ext.getDockerCredSpecs()).get()); // Docker Registry Credentials
+                        DockerXOPMUtil.addRegistryBundlesDb(getLogger(),                                                 // Gradle Logger
+                                                            getRegistryService().get(),                                  // Registry service
+                                                            getBundleImages().get(),                                     // Bundle images
+                                                            getBundleDirectory(),                                        // Bundle directory
+                                                            getTool().get(),                                             // Container tool (Default: docker)
+                                                            getMode().get(),                                             // Graph update mode (Default: replaces)
+                                                            getRegistryCredentials().get(),                              // Docker Registry Credentials
+                                                            getResolveItem().get());                                     // Digest resolution settings
                         break;
                 }
             }
@@ -66,6 +123,7 @@ public class DockerXOPMRegistry extends DefaultTask {
 
     ///
 
+    @Override
     public String toString(DockerXExtension ext) {
         
         if (ext == null )
@@ -79,6 +137,7 @@ public class DockerXOPMRegistry extends DefaultTask {
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_BASE + ") WORKING DIR: ").append(ext.getWorkingDirectory().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") ACTION: ").append(ext.getOpmSpecs().getAction().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") CLEAN: ").append(ext.getOpmSpecs().getClean().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_PRUNE + ") POLICY: ").append(ext.getPruneItem().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") BUNDLE DIR: ").append(ext.getOpmSpecs().getBundleDir().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") PACKAGE NAME: ").append(ext.getOpmSpecs().getPackageName().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") DEFAULT CHANNEL: ").append(ext.getOpmSpecs().getDefaultChannel().getOrNull()).append(NEW_LINE);
@@ -100,10 +159,4 @@ public class DockerXOPMRegistry extends DefaultTask {
         
         return taskSpecs.toString();
     }
-
-    ///
-    
-    private final DockerXExtension getPluginExtension() {
-        return getProject().getExtensions().findByType(DockerXExtension.class);
-    }
 }
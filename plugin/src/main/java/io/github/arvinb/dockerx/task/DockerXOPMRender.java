@@ -20,42 +20,139 @@
 package io.github.arvinb.dockerx.task;
 
 import java.util.concurrent.atomic.*;
-import org.gradle.api.*;
+import org.gradle.api.file.*;
+import org.gradle.api.provider.*;
+import org.gradle.api.services.*;
 import org.gradle.api.tasks.*;
 import io.github.arvinb.dockerx.*;
+import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.service.*;
 import io.github.arvinb.dockerx.util.*;
+import io.github.arvinb.dockerx.work.*;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
-public class DockerXOPMRender extends DefaultTask {
+public abstract class DockerXOPMRender extends DockerXTask {
     
-    @TaskAction
-    public void opmTaskAction() {
+    @ServiceReference(SERVICE_BUILDER)
+    public abstract Property<DockerXBuilderService> getBuilderService();
     
+    @ServiceReference(SERVICE_REGISTRY)
+    public abstract Property<DockerXRegistryService> getRegistryService();
+    
+    @Internal
+    public abstract DirectoryProperty getWorkingDirectory();
+    
+    @Input
+    public abstract ListProperty<String> getBundleSources();
+    
+    @Input
+    public abstract Property<String> getOutputPrefix();
+    
+    @Input
+    public abstract Property<String> getOutputFormat();
+    
+    @Internal
+    public abstract Property<Integer> getRenderParallelism();
+    
+    @Internal
+    public abstract Property<Boolean> getClean();
+    
+    @Internal
+    public abstract Property<String> getBuilder();
+    
+    @Internal
+    public abstract Property<DockerXPruneConfig.PruneItem> getPruneItem();
+    
+    @Internal
+    public abstract ListProperty<DockerXCredentialConfig.RegistryCredential> getRegistryCredentials();
+    
+    @Internal
+    public abstract Property<DockerXDigestConfig.ResolveItem> getResolveItem();
+    
+    @OutputFile
+    public abstract RegularFileProperty getRenderManifest();
+    
+    /**
+     * Bundle sources found in the working directory (files, directories or a db)
+     */
+    @InputFiles @PathSensitive(PathSensitivity.RELATIVE)
+    public java.util.List<java.io.File> getLocalBundleSources() {
+        
+        java.util.List<java.io.File> localSources = new java.util.ArrayList<java.io.File>();
+        getBundleSources().get().forEach( bundleSource -> {
+            java.io.File localSource = DockerXOPMUtil.getLocalBundleSource(getWorkingDirectory().get().getAsFile(), bundleSource);
+            if ( localSource != null ) localSources.add(localSource);
+        });
+        return localSources;
+    }
+    
+    /**
+     * The rendered files, one per bundle source tag
+     */
+    @OutputFiles
+    public java.util.Map<String, java.io.File> getOutputFiles() {
+        
+        java.util.Map<String, java.io.File> outputFiles = new java.util.TreeMap<String, java.io.File>();
+        DockerXOPMUtil.getRenderOutputs(getBundleSources().get(), getOutputPrefix().get(), getOutputFormat().get()).keySet().forEach( outputFile -> {
+            outputFiles.put(outputFile, getWorkingDirectory().file(outputFile).get().getAsFile());
+        });
+        return outputFiles;
+    }
+    
+    /// Constructor
+    
+    public DockerXOPMRender() {
+        
         final DockerXExtension ext = getPluginExtension();
-        getProject().getLogger().lifecycle(this.toString(ext));
-
-        if ( !ext.getDryrun().get() ) {
+        
+        getWorkingDirectory().convention(fromExtension( extension -> extension.getWorkingDirectory() ));
+        getBundleSources().convention(ext.getOpmSpecs().getBundleSources());
+        getOutputPrefix().convention(ext.getOpmSpecs().getOutputPrefix());
+        getOutputFormat().convention(ext.getOpmSpecs().getOutputFormat());
+        getRenderParallelism().convention(ext.getOpmSpecs().getRenderParallelism());
+        getClean().convention(ext.getOpmSpecs().getClean());
+        getBuilder().convention(ext.getDockerSpecs().getBuilder());
+        getPruneItem().convention(fromExtension( extension -> extension.getPruneItem() ));
+        getRegistryCredentials().convention(fromExtension( extension -> extension.getRegistryCredentials(extension.getDockerCredSpecs()) ));
+        getResolveItem().convention(fromExtension( extension -> extension.getResolveItem() ));
+        getRenderManifest().convention(getProject().getLayout().getBuildDirectory().file(RENDER_MANIFEST_DIR + "/" + getName() + ".json"));
+        
+        // Tags may move in a registry, only digest pinned or local bundle sources can be trusted as inputs
+        getOutputs().upToDateWhen( task -> hasImmutableBundleSources() );
+        getOutputs().cacheIf( task -> hasImmutableBundleSources() );
+    }
+    
+    @Override
+    protected void taskAction() {
+        
+        if ( !getDryrun().get() ) {
             
-            // Verify the environment
-            DockerXVerifyUtil.verifyOperatorPackageManager(getProject());
-            DockerXVerifyUtil.verifyDockerEnvironment();
-
-            // Clean the environment
-            if ( ext.getOpmSpecs().getClean().get() )
-                DockerXDockerUtil.pruneAndClearCache(getProject(), ext.getDockerSpecs().getBuilder().get());
-                    
             // Render bundle image to create operator.yaml
-            DockerXOPMUtil.renderBundleImage(getProject(),                                                   // Gradle Project
-                                                ext.getWorkingDirectory(),                                   // Working directory 
-                                                ext.getOpmSpecs().getBundleSources().get(),                  // List of Bundle Sources
-                                                ext.getOpmSpecs().getOutputPrefix().get(),                   // Output file prefix
-                                                ext.getOpmSpecs().getOutputFormat().get(),                   // Output format (json|yaml) (default "yaml")
-                                                ext.getRegistryCredentials(ext.getDockerCredSpecs()).get()); // Docker Registry Credentials
+            submitWork(DockerXOPMRenderAction.class, params -> {
+                params.getBuilderService().set(getBuilderService());
+                params.getRegistryService().set(getRegistryService());
+                params.getWorkingDirectory().set(getWorkingDirectory());
+                params.getBundleSources().set(getBundleSources());
+                params.getOutputPrefix().set(getOutputPrefix());
+                params.getOutputFormat().set(getOutputFormat());
+                params.getRenderParallelism().set(getRenderParallelism());
+                params.getClean().set(getClean());
+                params.getBuilder().set(getBuilder());
+                params.getPruneItem().set(getPruneItem());
+                params.getRegistryCredentials().set(getRegistryCredentials());
+                params.getResolveItem().set(getResolveItem());
+                params.getRenderManifest().set(getRenderManifest());
+            });
         }
     }
 
+    protected boolean hasImmutableBundleSources() {
+        return getBundleSources().get().stream().allMatch( bundleSource -> DockerXOPMUtil.isImmutableBundleSource(getWorkingDirectory().get().getAsFile(), bundleSource) );
+    }
+
     ///
 
+    @Override
     public String toString(DockerXExtension ext) {
         
         if (ext == null )
@@ -67,8 +164,10 @@ public class DockerXOPMRender extends DefaultTask {
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_BASE + ") DRYRUN: ").append(ext.getDryrun().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_BASE + ") WORKING DIR: ").append(ext.getWorkingDirectory().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") CLEAN: ").append(ext.getOpmSpecs().getClean().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_PRUNE + ") POLICY: ").append(ext.getPruneItem().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") OUTPUT PREFIX: ").append(ext.getOpmSpecs().getOutputPrefix().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") FORMAT: ").append(ext.getOpmSpecs().getOutputFormat().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") RENDER PARALLELISM: ").append(ext.getOpmSpecs().getRenderParallelism().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") BUNDLE SOURCES: ").append(ext.getOpmSpecs().getBundleSources().getOrNull()).append(NEW_LINE);
         
         counter.set(0);
@@ -79,10 +178,4 @@ public class DockerXOPMRender extends DefaultTask {
         
         return taskSpecs.toString();
     }
-
-    ///
-    
-    private final DockerXExtension getPluginExtension() {
-        return getProject().getExtensions().findByType(DockerXExtension.class);
-    }
 }
@@ -20,42 +20,79 @@
 package io.github.arvinb.dockerx.task;
 
 import java.util.concurrent.atomic.*;
-import org.gradle.api.*;
+import org.gradle.api.file.*;
+import org.gradle.api.provider.*;
+import org.gradle.api.services.*;
 import org.gradle.api.tasks.*;
 import io.github.arvinb.dockerx.*;
+import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.service.*;
 import io.github.arvinb.dockerx.util.*;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
-public class DockerXOPMValidate extends DefaultTask {
+public abstract class DockerXOPMValidate extends DockerXTask {
     
-    @TaskAction
-    public void opmTaskAction() {
+    @ServiceReference(SERVICE_BUILDER)
+    public abstract Property<DockerXBuilderService> getBuilderService();
     
+    @ServiceReference(SERVICE_REGISTRY)
+    public abstract Property<DockerXRegistryService> getRegistryService();
+    
+    @Input
+    public abstract ListProperty<String> getBundleImages();
+    
+    @Internal
+    public abstract Property<Boolean> getClean();
+    
+    @Internal
+    public abstract Property<String> getBuilder();
+    
+    @Internal
+    public abstract Property<DockerXPruneConfig.PruneItem> getPruneItem();
+    
+    @Internal
+    public abstract ListProperty<DockerXCredentialConfig.RegistryCredential> getRegistryCredentials();
+    
+    /// Constructor
+    
+    public DockerXOPMValidate() {
+        
         final DockerXExtension ext = getPluginExtension();
-        getProject().getLogger().lifecycle(this.toString(ext));
         
-        if ( !ext.getDryrun().get() ) {
+        getBundleImages().convention(ext.getOpmSpecs().getBundleImages());
+        getClean().convention(ext.getOpmSpecs().getClean());
+        getBuilder().convention(ext.getDockerSpecs().getBuilder());
+        getPruneItem().convention(fromExtension( extension -> extension.getPruneItem() ));
+        getRegistryCredentials().convention(fromExtension( extension -> extension.getRegistryCredentials(extension.getDockerCredSpecs()) ));
+    }
+    
+    @Override
+    protected void taskAction() {
+        
+        if ( !getDryrun().get() ) {
             
-            if ( !ext.getSkip().get() ) {
+            if ( !getSkip().get() ) {
             
                 // Verify the environment
-                DockerXVerifyUtil.verifyOperatorPackageManager(getProject());
+                DockerXVerifyUtil.verifyOperatorPackageManager(getLogger());
                 DockerXVerifyUtil.verifyDockerEnvironment();
                 
                 // Clean the environment
-                if ( ext.getOpmSpecs().getClean().get() )
-                    DockerXDockerUtil.pruneAndClearCache(getProject(), ext.getDockerSpecs().getBuilder().get());
+                if ( getClean().get() )
+                    DockerXDockerUtil.pruneAndClearCache(getLogger(), getBuilderService().get(), getBuilder().get(), getPruneItem().get());
                 
                 // Build Bundle Image
-                DockerXOPMUtil.validateBundleImage(getProject(),                                                // Gradle Project
-                                                   ext.getOpmSpecs().getBundleImages().get(),                   // Bundle image
-                                                   ext.getRegistryCredentials(ext.getDockerCredSpecs()).get()); // Docker Registry Credentials
+                DockerXOPMUtil.validateBundleImage(getLogger(),                                                 // Gradle Logger
+                                                   getRegistryService().get(),                                  // Registry service
+                                                   getBundleImages().get(),                                     // Bundle image
+                                                   getRegistryCredentials().get());                             // Docker Registry Credentials
             }
         }
     }
 
     ///
 
+    @Override
     public String toString(DockerXExtension ext) {
         
         if (ext == null )
@@ -69,6 +106,7 @@ public class DockerXOPMValidate extends DefaultTask {
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_BASE + ") WORKING DIR: ").append(ext.getWorkingDirectory().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") ACTION: ").append(ext.getOpmSpecs().getAction().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") CLEAN: ").append(ext.getOpmSpecs().getClean().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_PRUNE + ") POLICY: ").append(ext.getPruneItem().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") BUNDLE DIR: ").append(ext.getOpmSpecs().getBundleDir().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") PACKAGE NAME: ").append(ext.getOpmSpecs().getPackageName().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_OPM + ") DEFAULT CHANNEL: ").append(ext.getOpmSpecs().getDefaultChannel().getOrNull()).append(NEW_LINE);
@@ -90,10 +128,4 @@ public class DockerXOPMValidate extends DefaultTask {
         
         return taskSpecs.toString();
     }
-
-    ///
-    
-    private final DockerXExtension getPluginExtension() {
-        return getProject().getExtensions().findByType(DockerXExtension.class);
-    }
 }
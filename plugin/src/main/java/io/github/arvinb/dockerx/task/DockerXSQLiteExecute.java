@@ -19,38 +19,73 @@
 
 package io.github.arvinb.dockerx.task;
 
-import io.github.arvinb.dockerx.*;
-import io.github.arvinb.dockerx.util.*;
+import java.io.*;
+import java.util.ArrayList;
 import java.util.concurrent.atomic.*;
-import org.gradle.api.*;
+import org.gradle.api.file.*;
+import org.gradle.api.provider.*;
 import org.gradle.api.tasks.*;
+import io.github.arvinb.dockerx.*;
+import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.util.*;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
-public class DockerXSQLiteExecute extends DefaultTask {
+public abstract class DockerXSQLiteExecute extends DockerXTask {
     
-    @TaskAction
-    public void sqliteTaskAction() {
-
+    @Internal
+    public abstract RegularFileProperty getDataSourceDb();
+    
+    @Input
+    public abstract ListProperty<String> getStatements();
+    
+    @InputFiles @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getScripts();
+    
+    @Input
+    public abstract ListProperty<DockerXSQLiteConfig.PreparedItem> getPreparedStatements();
+    
+    @Input @Optional
+    public abstract Property<String> getJournalMode();
+    
+    @Input @Optional
+    public abstract Property<String> getSynchronous();
+    
+    /// Constructor
+    
+    public DockerXSQLiteExecute() {
+        
         final DockerXExtension ext = getPluginExtension();
-        getProject().getLogger().lifecycle(this.toString(ext));
         
-        if ( !ext.getDryrun().get() ) {
+        getDataSourceDb().convention(fromExtension( extension -> extension.getDataSourceDbFile() ));
+        getStatements().convention(ext.getSqliteSpecs().getStatements());
+        getScripts().from(fromExtension( extension -> extension.getSqliteScriptFiles() ));
+        getPreparedStatements().convention(fromExtension( extension -> extension.getPreparedStatements() ));
+        getJournalMode().convention(ext.getSqliteSpecs().getJournalMode());
+        getSynchronous().convention(ext.getSqliteSpecs().getSynchronous());
+    }
+    
+    @Override
+    protected void taskAction() {
+        
+        if ( !getDryrun().get() ) {
             
-            if ( !ext.getSkip().get() ) {
+            if ( !getSkip().get() ) {
             
-                // Verify the environment
-                DockerXVerifyUtil.verifySQLite(getProject());
-                
                 // Execute SQLite statements
-                DockerXSQLiteUtil.executeSQLiteStatements(getProject(),                                // Gradle Project
-                                                          ext.getDataSourceDbFile().getOrNull(),       // SQLite datasource db
-                                                          ext.getSqliteSpecs().getStatements().get()); // SQLite statements
+                DockerXSQLiteUtil.executeSQLiteStatements(getLogger(),                                  // Gradle Logger
+                                                          getDataSourceDb().getOrNull(),                // SQLite datasource db
+                                                          new ArrayList<File>(getScripts().getFiles()), // SQLite scripts
+                                                          getStatements().get(),                        // SQLite statements
+                                                          getPreparedStatements().get(),                // SQLite prepared statements
+                                                          getJournalMode().getOrNull(),                 // SQLite journal mode
+                                                          getSynchronous().getOrNull());                // SQLite synchronous level
             }
         }
     }
-    
+
     ///
     
+    @Override
     public String toString(DockerXExtension ext) {
 
         if (ext == null )
@@ -63,19 +98,29 @@ public class DockerXSQLiteExecute extends DefaultTask {
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_SKIP + ") SKIP: ").append(  ext.getSkip().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_BASE + ") WORKING DIR: ").append(ext.getWorkingDirectory().getOrNull()).append(NEW_LINE);
         taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_SQLITE + ") DATASOURCE DB: ").append(ext.getSqliteSpecs().getDataSourceDb().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_SQLITE + ") JOURNAL MODE: ").append(ext.getSqliteSpecs().getJournalMode().getOrNull()).append(NEW_LINE);
+        taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_SQLITE + ") SYNCHRONOUS: ").append(ext.getSqliteSpecs().getSynchronous().getOrNull()).append(NEW_LINE);
+        
+        ext.getSqliteSpecs().getScripts().get().forEach( script -> {
+            
+            taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_SQLITE + ") SCRIPT[" + counter + "]: ").append(script).append(NEW_LINE);
+            counter.getAndIncrement();
+        });
         
+        counter.set(0);
         ext.getSqliteSpecs().getStatements().get().forEach( statement -> {
             
             taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_SQLITE + ") STATEMENT[" + counter + "]: ").append(statement).append(NEW_LINE);
             counter.getAndIncrement();
         });
         
+        counter.set(0);
+        ext.getPreparedStatements().get().forEach( preparedItem -> {
+            
+            taskSpecs.append(LABEL_DOCKERX).append("(" + LABEL_SQLITE + ") PREPARED[" + counter + "]: ").append(preparedItem).append(NEW_LINE);
+            counter.getAndIncrement();
+        });
+        
         return taskSpecs.toString();
     }
-
-    ///
-    
-    private final DockerXExtension getPluginExtension() {
-        return getProject().getExtensions().findByType(DockerXExtension.class);
-    }
 }
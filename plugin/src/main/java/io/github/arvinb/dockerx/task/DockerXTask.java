@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+package io.github.arvinb.dockerx.task;
+
+import java.util.function.*;
+import javax.inject.Inject;
+import org.gradle.api.*;
+import org.gradle.api.provider.*;
+import org.gradle.api.tasks.*;
+import org.gradle.workers.*;
+import io.github.arvinb.dockerx.*;
+import io.github.arvinb.dockerx.util.*;
+import io.github.arvinb.dockerx.work.*;
+
+/**
+ * Base class of the dockerX tasks. Every value a task needs is a property wired from the
+ * extension at configuration time, the task action never touches the project so the tasks
+ * are compatible with the configuration cache.
+ */
+public abstract class DockerXTask extends DefaultTask {
+    
+    /**
+     * A dryrun flag (Default: true)
+     */
+    @Input
+    public abstract Property<Boolean> getDryrun();
+    
+    /**
+     * A skip flag (Default: false)
+     */
+    @Input
+    public abstract Property<Boolean> getSkip();
+    
+    /**
+     * Default command timeout in minutes (Default: 0, no timeout)
+     */
+    @Internal
+    public abstract Property<Integer> getCommandTimeout();
+    
+    /**
+     * Command timeouts in minutes by command prefix
+     */
+    @Internal
+    public abstract MapProperty<String, Integer> getCommandTimeouts();
+    
+    /**
+     * The task specs logged before the task runs
+     */
+    @Internal
+    public abstract Property<String> getTaskSpecs();
+    
+    /// Constructor
+    
+    public DockerXTask() {
+        
+        final DockerXExtension ext = getPluginExtension();
+        
+        getDryrun().convention(ext.getDryrun());
+        getSkip().convention(ext.getSkip());
+        getCommandTimeout().convention(ext.getCommandTimeout());
+        getCommandTimeouts().convention(ext.getCommandTimeouts());
+        getTaskSpecs().convention(getProject().provider( () -> this.toString(ext) ));
+    }
+    
+    @TaskAction
+    public void dockerXTaskAction() {
+        
+        getLogger().lifecycle(getTaskSpecs().get());
+        DockerXCmdLineUtil.withCommandTimeouts(getCommandTimeout().get(), getCommandTimeouts().get(), this::taskAction);
+    }
+    
+    protected abstract void taskAction();
+    
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+    
+    protected final <P extends DockerXWorkAction.Params> void submitWork(Class<? extends DockerXWorkAction<P>> workAction, Action<? super P> parameters) {
+        
+        // Work runs off the task thread, so other dockerX tasks of the same project can overlap with it
+        getWorkerExecutor().noIsolation().submit(workAction, workParameters -> {
+            workParameters.getCommandTimeout().set(getCommandTimeout());
+            workParameters.getCommandTimeouts().set(getCommandTimeouts());
+            parameters.execute(workParameters);
+        });
+    }
+    
+    public abstract String toString(DockerXExtension ext);
+    
+    ///
+    
+    protected final <T> Provider<T> fromExtension(Function<DockerXExtension, Provider<T>> extensionValue) {
+        
+        // Derived extension values are computed from the final configuration, not when the task is created
+        final DockerXExtension ext = getPluginExtension();
+        return getProject().provider( () -> extensionValue.apply(ext).getOrNull() );
+    }
+    
+    protected final DockerXExtension getPluginExtension() {
+        return getProject().getExtensions().findByType(DockerXExtension.class);
+    }
+}
@@ -23,12 +23,16 @@ import java.text.*;
 import java.util.*;
 import java.util.regex.*;
 import org.gradle.api.*;
+import org.gradle.api.logging.*;
 import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.service.*;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
 public class DockerXCatalogUtil extends DockerXDockerUtil {
     
-    public static String getCatalogSourceData(Project project, 
+    public static String getCatalogSourceData(Logger logger, 
+                                              DockerXRegistryService registryService, 
+                                              DockerXDigestConfig.ResolveItem resolveItem, 
                                               Boolean dryRun, 
                                               String metadataName, 
                                               String displayName, 
@@ -41,22 +45,7 @@ public class DockerXCatalogUtil extends DockerXDockerUtil {
             
             DockerXVerifyUtil.verifyDockerEnvironment();
             
-            // Log into registries
-            registryCredentials.forEach( cred -> {
-                project.getLogger().lifecycle(MessageFormat.format(MESSAGE_DOCKER_LOGIN_REG, cred.getRegistry(), cred.getUsername()));
-                loginDockerXAuth(project, cred.getUsername().get(), cred.getPassword().get(), cred.getRegistry().get());
-            });
-            
-            String inspectedImage = DockerXCatalogUtil.inspectDockerXImage( project, catalogDigestItem.getImage() );
-            
-            if ( DockerXDigestUtil.isJsonValid(inspectedImage) ) {
-                
-                if ( DockerXDigestUtil.isJsonObject(inspectedImage) )
-                    catalogDigestItem.execute( DockerXCatalogUtil.inspectDockerXImage( project, catalogDigestItem.getImage() ) );
-                
-                else if (DockerXDigestUtil.isJsonArray( inspectedImage ) )
-                    catalogDigestItem.execute( DockerXCatalogUtil.inspectDockerXListManifest( project, catalogDigestItem.getImage() ) );
-            }
+            DockerXDigestUtil.resolveImageDigests(logger, registryService, Arrays.asList(catalogDigestItem), registryCredentials, true, resolveItem);
         }
         
         String catalogSource = MessageFormat.format(CATALOG_SOURCE, metadataName, displayName, catalogDigestItem.getImageManifest() );
@@ -20,39 +20,153 @@
 package io.github.arvinb.dockerx.util;
 
 import java.io.*;
+import java.text.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+import java.util.stream.*;
 import javax.annotation.*;
 import org.gradle.api.*;
+import org.gradle.api.logging.*;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
 public abstract class DockerXCmdLineUtil {
     
+    // Commands still running when the build ends or the JVM goes down (e.g. a cancelled build stopping the daemon) are killed
+    // The shutdown hook only exists while commands run, so an idle daemon never holds on to the plugin class loader
+    private static final Set<Process> RUNNING_PROCESSES = new HashSet<Process>();
+    private static Thread shutdownHook = null;
+    
+    // Command timeouts of the running task (command prefix, minutes), inherited by the threads it schedules
+    private static final InheritableThreadLocal<Map<String, Integer>> COMMAND_TIMEOUTS = new InheritableThreadLocal<Map<String, Integer>>();
+    
     private final List<String> args = new ArrayList<String>();
-    private final Project project ;
+    private final Logger logger;
+    private final int timeout;
+    private boolean mergeErrorStream = true;
     
     /// Constructors
     
-    public DockerXCmdLineUtil(Project project, String... args) {
-        this.project = project;
+    public DockerXCmdLineUtil(Logger logger, String... args) {
+        this.logger = logger;
         this.args.addAll( Arrays.asList(args) );
+        this.timeout = getCommandTimeout(String.join(" ", args));
     }
     
     ///
     
+    public void setMergeErrorStream(boolean mergeErrorStream) {
+        
+        // stderr is captured along with stdout unless the caller parses or stores stdout on its own
+        this.mergeErrorStream = mergeErrorStream;
+    }
+    
+    public static void destroyRunningProcesses() {
+        
+        List<Process> processes;
+        synchronized (RUNNING_PROCESSES) { processes = new ArrayList<Process>(RUNNING_PROCESSES); }
+        processes.forEach( process -> destroyProcessTree(process, 0) );
+    }
+    
+    public static void withCommandTimeouts(int defaultTimeout, Map<String, Integer> commandTimeouts, Runnable action) {
+        
+        // The empty prefix matches every command and holds the default timeout
+        Map<String, Integer> timeouts = new HashMap<String, Integer>(commandTimeouts);
+        timeouts.putIfAbsent(EMPTY_STRING, defaultTimeout);
+        
+        Map<String, Integer> previousTimeouts = COMMAND_TIMEOUTS.get();
+        COMMAND_TIMEOUTS.set(timeouts);
+        
+        try {
+            action.run();
+            
+        } finally {
+            COMMAND_TIMEOUTS.set(previousTimeouts);
+        }
+    }
+    
+    protected static int getCommandTimeout(String command) {
+        
+        Map<String, Integer> timeouts = COMMAND_TIMEOUTS.get();
+        if (timeouts == null) return DEFAULT_COMMAND_TIMEOUT;
+        
+        // The longest matching command prefix wins over the default timeout (minutes, 0 = none)
+        return timeouts.entrySet().stream()
+                       .filter( entry -> command.startsWith(entry.getKey()) )
+                       .max( Comparator.comparingInt(entry -> entry.getKey().length()) )
+                       .map( Map.Entry::getValue )
+                       .orElse( DEFAULT_COMMAND_TIMEOUT );
+    }
+    
     public ProcessResult execute(@Nullable File workingDir, boolean captureOutput) throws Exception {
+        return execute(workingDir, defaultSinks(captureOutput));
+    }
+    
+    protected OutputSink[] defaultSinks(boolean captureOutput) {
+        
+        // Without capture only a bounded tail of the output is kept for error messages, every line is logged
+        OutputSink outputSink = captureOutput ? new CaptureSink() : new TailSink(DEFAULT_OUTPUT_TAIL);
+        return new OutputSink[] { outputSink, new LogSink(logger, LogLevel.LIFECYCLE) };
+    }
+    
+    public ProcessResult execute(@Nullable File workingDir, OutputSink... outputSinks) throws Exception {
         
         ProcessBuilder processBuilder = new ProcessBuilder();
         processBuilder.command(this.args);
-        processBuilder.redirectErrorStream(true);
+        processBuilder.redirectErrorStream(mergeErrorStream);
         processBuilder.directory(workingDir);
         processBuilder.environment().putAll(System.getenv());
         
+        List<OutputSink> sinks = new ArrayList<OutputSink>(Arrays.asList(outputSinks));
+        if (sinks.stream().noneMatch( sink -> sink.getOutput() != null ))
+            sinks.add(new TailSink(DEFAULT_OUTPUT_TAIL));
+        
+        // A separate stderr is kept for error messages, and only logged when stdout is
+        TailSink errorSink = new TailSink(DEFAULT_OUTPUT_TAIL);
+        List<OutputSink> errorSinks = new ArrayList<OutputSink>(Arrays.asList(errorSink));
+        sinks.stream().filter( sink -> sink instanceof LogSink ).forEach(errorSinks::add);
+        AtomicReference<Exception> readFailure = new AtomicReference<Exception>();
+        
         Process process = processBuilder.start();
+        addRunningProcess(process);
         
-        String streamOutput = processOutput(process.getInputStream(), captureOutput);
-        int exitCode = process.waitFor();
+        // A separate stderr is drained on its own thread so a full pipe never blocks the child
+        Thread outputReader = startReader(process.getInputStream(), sinks, readFailure);
+        Thread errorReader = mergeErrorStream ? null : startReader(process.getErrorStream(), errorSinks, readFailure);
         
-        return new ProcessResult(exitCode, streamOutput);
+        try {
+            
+            if (timeout <= 0)
+                process.waitFor();
+            
+            else if (!process.waitFor(timeout, TimeUnit.MINUTES)) {
+                destroyProcessTree(process, DEFAULT_KILL_GRACE);
+                throw new TimeoutException(MessageFormat.format(MESSAGE_CMD_TIMEOUT, timeout, getCommandName()));
+            }
+            
+            outputReader.join();
+            if (errorReader != null) errorReader.join();
+            
+        } catch (InterruptedException ex) {
+            
+            // Task timeouts and build cancellation interrupt the worker, the child process tree goes with it
+            destroyProcessTree(process, DEFAULT_KILL_GRACE);
+            Thread.currentThread().interrupt();
+            throw new InterruptedException(MessageFormat.format(MESSAGE_CMD_INTERRUPTED, getCommandName()));
+            
+        } finally {
+            
+            removeRunningProcess(process);
+            joinReader(outputReader);
+            if (errorReader != null) joinReader(errorReader);
+            for (OutputSink sink : sinks) { sink.close(); }
+        }
+        
+        if (readFailure.get() != null) throw readFailure.get();
+        
+        String streamOutput = sinks.stream().map(OutputSink::getOutput).filter(Objects::nonNull).findFirst().orElse(EMPTY_STRING);
+        return new ProcessResult(process.exitValue(), streamOutput, errorSink.getOutput());
     }
     
     @Override
@@ -62,21 +176,205 @@ public abstract class DockerXCmdLineUtil {
     
     ///
     
-    private String processOutput(InputStream inputStream, boolean captureOutput) throws Exception {
+    private String getCommandName() {
         
-        StringBuilder stringBuilder = new StringBuilder(EMPTY_STRING);
-        BufferedReader bufferReader = new BufferedReader( new InputStreamReader(inputStream) );
+        // Only the command itself, arguments may carry credentials
+        return String.join(" ", this.args.subList(0, Math.min(2, this.args.size())));
+    }
+    
+    private static void addRunningProcess(Process process) {
         
-        bufferReader.lines().forEach( line -> {
+        synchronized (RUNNING_PROCESSES) {
             
-            project.getLogger().lifecycle(line);
+            RUNNING_PROCESSES.add(process);
+            if (shutdownHook == null) {
+                shutdownHook = new Thread(DockerXCmdLineUtil::destroyRunningProcesses);
+                Runtime.getRuntime().addShutdownHook(shutdownHook);
+            }
+        }
+    }
+    
+    private static void removeRunningProcess(Process process) {
+        
+        synchronized (RUNNING_PROCESSES) {
             
-            if (captureOutput)
-                stringBuilder.append(line + NEW_LINE);
+            RUNNING_PROCESSES.remove(process);
+            if (RUNNING_PROCESSES.isEmpty() && (shutdownHook != null)) {
+                try {
+                    Runtime.getRuntime().removeShutdownHook(shutdownHook);
+                } catch (IllegalStateException ex) {
+                    // Already shutting down, the hook runs anyway
+                }
+                shutdownHook = null;
+            }
+        }
+    }
+    
+    private Thread startReader(InputStream inputStream, List<OutputSink> sinks, AtomicReference<Exception> readFailure) {
+        
+        return Thread.ofVirtual().start( () -> {
+            
+            try {
+                processOutput(inputStream, sinks);
+            } catch (Exception ex) {
+                readFailure.compareAndSet(null, ex);
+            }
         });
+    }
+    
+    private static void joinReader(Thread reader) {
         
-        bufferReader.close();
-        return stringBuilder.toString();
+        try {
+            reader.join(DEFAULT_KILL_GRACE * 1000L);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static void processOutput(InputStream inputStream, List<OutputSink> sinks) throws Exception {
+        
+        try ( BufferedReader bufferReader = new BufferedReader( new InputStreamReader(inputStream) ) ) {
+            
+            String line;
+            while ((line = bufferReader.readLine()) != null) {
+                
+                // Lines are handed over as they are read, without materializing the whole output
+                for (OutputSink sink : sinks) { sink.accept(line); }
+            }
+        }
+    }
+    
+    protected static void destroyProcessTree(Process process, int graceSeconds) {
+        
+        List<ProcessHandle> descendants = process.descendants().collect(Collectors.toList());
+        
+        // Ask politely first, then force whatever is still alive after the grace period
+        process.destroy();
+        descendants.forEach(ProcessHandle::destroy);
+        
+        try {
+            if (graceSeconds > 0) process.waitFor(graceSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        
+        descendants.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly);
+        if (process.isAlive()) process.destroyForcibly();
+    }
+    
+    ///
+    
+    /**
+     * Receives the command output line by line
+     */
+    public interface OutputSink {
+        
+        public void accept(String line) throws IOException;
+        
+        // The captured output, or null when the sink does not keep any
+        public default String getOutput() { return null; }
+        
+        public default void close() throws IOException {}
+    }
+    
+    /**
+     * Captures the complete output
+     */
+    public static class CaptureSink implements OutputSink {
+        
+        private final StringBuilder output = new StringBuilder();
+        
+        @Override
+        public void accept(String line) { output.append(line).append(NEW_LINE); }
+        
+        @Override
+        public String getOutput() { return output.toString(); }
+    }
+    
+    /**
+     * Keeps only the last characters of the output in a bounded ring buffer
+     */
+    public static class TailSink implements OutputSink {
+        
+        private final char[] buffer;
+        private int position = 0;
+        private boolean wrapped = false;
+        
+        public TailSink(int maxChars) {
+            this.buffer = new char[Math.max(1, maxChars)];
+        }
+        
+        @Override
+        public void accept(String line) {
+            append(line);
+            append(NEW_LINE);
+        }
+        
+        @Override
+        public String getOutput() {
+            if (!wrapped) return new String(buffer, 0, position);
+            return new String(buffer, position, buffer.length - position) + new String(buffer, 0, position);
+        }
+        
+        private void append(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                buffer[position++] = text.charAt(i);
+                if (position == buffer.length) { position = 0; wrapped = true; }
+            }
+        }
+    }
+    
+    /**
+     * Streams the output into a file
+     */
+    public static class FileSink implements OutputSink {
+        
+        private final BufferedWriter writer;
+        
+        public FileSink(File file) throws IOException {
+            this.writer = new BufferedWriter(new FileWriter(file));
+        }
+        
+        @Override
+        public void accept(String line) throws IOException {
+            writer.write(line);
+            writer.newLine();
+        }
+        
+        @Override
+        public void close() throws IOException { writer.close(); }
+    }
+    
+    /**
+     * Logs every line at the given level
+     */
+    public static class LogSink implements OutputSink {
+        
+        private final Logger logger;
+        private final LogLevel logLevel;
+        
+        public LogSink(Logger logger, LogLevel logLevel) {
+            this.logger = logger;
+            this.logLevel = logLevel;
+        }
+        
+        @Override
+        public void accept(String line) { logger.log(logLevel, line); }
+    }
+    
+    /**
+     * Hands every line to a callback, e.g. a streaming parser
+     */
+    public static class LineSink implements OutputSink {
+        
+        private final Consumer<String> lineConsumer;
+        
+        public LineSink(Consumer<String> lineConsumer) {
+            this.lineConsumer = lineConsumer;
+        }
+        
+        @Override
+        public void accept(String line) { lineConsumer.accept(line); }
     }
     
     ///
@@ -85,14 +383,24 @@ public abstract class DockerXCmdLineUtil {
         
         public final int exitCode;
         public final String cmdOutput;
+        public final String errOutput;
         
         public ProcessResult(int exitCode, String cmdOutput) {
+            this(exitCode, cmdOutput, EMPTY_STRING);
+        }
+        
+        public ProcessResult(int exitCode, String cmdOutput, String errOutput) {
             this.exitCode = exitCode;
             this.cmdOutput = cmdOutput;
+            this.errOutput = errOutput;
+        }
+        
+        public String getFailureOutput() {
+            return (errOutput.isBlank()) ? cmdOutput : cmdOutput + errOutput;
         }
         
         public List<String> getOutputLines() {
-            return Arrays.asList( this.cmdOutput.split(NEW_LINE) );
+            return this.cmdOutput.lines().collect(Collectors.toList());
         }
     }
 
@@ -0,0 +1,459 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+package io.github.arvinb.dockerx.util;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.security.*;
+import java.text.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.*;
+import java.util.stream.*;
+import javax.annotation.*;
+import org.gradle.api.*;
+import org.gradle.api.file.*;
+import org.gradle.api.logging.*;
+import org.gradle.api.specs.*;
+import io.github.arvinb.dockerx.service.*;
+import static io.github.arvinb.dockerx.DockerXConstants.*;
+
+/**
+ * Computes the effective docker build context, the files BuildKit receives once .dockerignore is applied.
+ * The context can be staged into a slim copy (hard links where possible) and hashed in parallel.
+ */
+public class DockerXContextUtil {
+
+    public static List<ContextEntry> collectContext(File contextDir, @Nullable File dockerfile, @Nullable File excludedDir) {
+
+        final Path contextPath = contextDir.toPath();
+        final Path excludedPath = (excludedDir == null) ? null : excludedDir.toPath();
+        final DockerIgnore dockerIgnore = new DockerIgnore(contextDir, dockerfile);
+        final boolean hasExceptions = dockerIgnore.hasExceptions();
+        final List<ContextEntry> entries = new ArrayList<ContextEntry>();
+
+        if (!contextDir.isDirectory()) return entries; // Nothing to do...
+
+        try {
+
+            Files.walkFileTree(contextPath, new SimpleFileVisitor<Path>() {
+
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+
+                    String relativePath = getRelativePath(contextPath, dir);
+                    if (relativePath.isEmpty()) return FileVisitResult.CONTINUE;
+
+                    // The plugin's own state (staged contexts, recorded digests) is never part of the context
+                    if (dir.equals(excludedPath)) return FileVisitResult.SKIP_SUBTREE;
+
+                    // Excluded directories are only walked when an exception rule could bring back one of their children
+                    if (dockerIgnore.isIgnored(relativePath))
+                        return hasExceptions ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+
+                    entries.add(new ContextEntry(relativePath, dir, EntryType.DIRECTORY));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+
+                    String relativePath = getRelativePath(contextPath, file);
+
+                    if (!dockerIgnore.isIgnored(relativePath))
+                        entries.add(new ContextEntry(relativePath, file, attrs.isSymbolicLink() ? EntryType.SYMLINK : EntryType.FILE));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+
+        } catch (IOException ex) {
+            DockerXVerifyUtil.stopGradleException(MESSAGE_CONTEXT_EXEC + ex.getMessage());
+        }
+
+        entries.sort(Comparator.comparing(ContextEntry::getRelativePath));
+        return entries;
+    }
+
+    ///
+
+    public static String hashContext(DockerXSchedulerService scheduler, File contextDir, @Nullable File dockerfile, @Nullable File excludedDir) {
+
+        List<ContextEntry> entries = collectContext(contextDir, dockerfile, excludedDir);
+
+        // Files are hashed in batches on the shared scheduler, small files would not pay for a task each
+        List<Callable<List<String>>> batches = new ArrayList<Callable<List<String>>>();
+        for (int index = 0; index < entries.size(); index += CONTEXT_HASH_BATCH) {
+
+            List<ContextEntry> batch = entries.subList(index, Math.min(entries.size(), index + CONTEXT_HASH_BATCH));
+            batches.add( () -> {
+                List<String> entryHashes = new ArrayList<String>();
+                for (ContextEntry entry : batch) entryHashes.add(hashEntry(entry));
+                return entryHashes;
+            });
+        }
+
+        try {
+
+            // Entries are sorted so the combined hash does not depend on the walk or completion order
+            MessageDigest contextDigest = MessageDigest.getInstance(SHA_256);
+            for (List<String> entryHashes : scheduler.invokeAll(batches))
+                for (String entryHash : entryHashes)
+                    contextDigest.update(entryHash.getBytes(StandardCharsets.UTF_8));
+
+            return DIGEST_SHA256 + HexFormat.of().formatHex(contextDigest.digest());
+
+        } catch (NoSuchAlgorithmException ex) {
+            throw new GradleException(MESSAGE_CONTEXT_EXEC + ex.getMessage(), ex);
+        }
+    }
+
+    public static File stageContext(Logger logger, File contextDir, @Nullable File dockerfile, @Nullable File excludedDir, File stagingDir) {
+
+        List<ContextEntry> entries = collectContext(contextDir, dockerfile, excludedDir);
+        Path stagingPath = stagingDir.toPath();
+        boolean hardLinks = true;
+
+        try {
+
+            deleteDirectory(stagingPath);
+            Files.createDirectories(stagingPath);
+
+            for (ContextEntry entry : entries) {
+
+                Path target = stagingPath.resolve(entry.getRelativePath());
+
+                switch (entry.getType()) {
+
+                    case DIRECTORY:
+                        Files.createDirectories(target);
+                        break;
+
+                    case SYMLINK:
+                        Files.createDirectories(target.getParent());
+                        Files.createSymbolicLink(target, Files.readSymbolicLink(entry.getPath()));
+                        break;
+
+                    case FILE:
+                        Files.createDirectories(target.getParent());
+
+                        // Hard links cost nothing, fall back to copies across file systems or where links are unsupported
+                        if (hardLinks) {
+                            try {
+                                Files.createLink(target, entry.getPath());
+                                break;
+                            } catch (IOException | UnsupportedOperationException ex) {
+                                hardLinks = false;
+                            }
+                        }
+                        Files.copy(entry.getPath(), target, StandardCopyOption.COPY_ATTRIBUTES);
+                        break;
+                }
+            }
+
+        } catch (IOException ex) {
+            DockerXVerifyUtil.stopGradleException(MESSAGE_CONTEXT_EXEC + ex.getMessage());
+        }
+
+        logger.lifecycle(MessageFormat.format(MESSAGE_CONTEXT_STAGED, entries.size(), stagingDir, hardLinks));
+        return stagingDir;
+    }
+
+    ///
+
+    protected static String hashEntry(ContextEntry entry) throws IOException, NoSuchAlgorithmException {
+
+        StringBuilder entryHash = new StringBuilder(entry.getRelativePath()).append('\0').append(entry.getType()).append('\0');
+
+        switch (entry.getType()) {
+
+            case DIRECTORY:
+                break;
+
+            case SYMLINK:
+                entryHash.append(Files.readSymbolicLink(entry.getPath()));
+                break;
+
+            case FILE:
+                // The executable bit ends up in the image, so it is part of the fingerprint
+                entryHash.append(Files.isExecutable(entry.getPath())).append('\0').append(hashFile(entry.getPath()));
+                break;
+        }
+        return entryHash.append('\n').toString();
+    }
+
+    protected static String hashFile(Path file) throws IOException, NoSuchAlgorithmException {
+
+        MessageDigest fileDigest = MessageDigest.getInstance(SHA_256);
+        ByteBuffer buffer = ByteBuffer.allocate(CONTEXT_HASH_BUFFER);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                fileDigest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(fileDigest.digest());
+    }
+
+    protected static String getRelativePath(Path contextPath, Path path) {
+        return contextPath.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    protected static void deleteDirectory(Path directory) throws IOException {
+
+        if (!Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) return; // Nothing to do...
+
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+                Files.delete(path);
+        }
+    }
+
+    ///
+
+    /**
+     * Gradle file tree filter of the build context, the included files are the task input BuildKit receives
+     * Gradle fingerprints them when the task executes, the .dockerignore rules are loaded on first use
+     */
+    public static class ContextSpec implements Spec<FileTreeElement> {
+
+        private final DirectoryProperty contextDirectory;
+        private final RegularFileProperty dockerfile;
+        private final DirectoryProperty excludedDirectory;
+        private final boolean prune;
+        private transient DockerIgnore dockerIgnore;
+
+        /// Constructor
+
+        public ContextSpec(DirectoryProperty contextDirectory, RegularFileProperty dockerfile, DirectoryProperty excludedDirectory, boolean prune) {
+            this.contextDirectory = contextDirectory;
+            this.dockerfile = dockerfile;
+            this.excludedDirectory = excludedDirectory;
+            this.prune = prune;
+        }
+
+        ///
+
+        @Override
+        public boolean isSatisfiedBy(FileTreeElement element) {
+
+            // As an include filter it keeps the files that are not ignored, Gradle only walks the directories it includes
+            if (!prune) return element.isDirectory() || !getDockerIgnore().isIgnored(element.getRelativePath().getPathString());
+
+            // As an exclude filter it prunes the directories collectContext skips
+            if (!element.isDirectory()) return false;
+            if (excludedDirectory.isPresent() && element.getFile().equals(excludedDirectory.get().getAsFile())) return true;
+            return getDockerIgnore().isIgnored(element.getRelativePath().getPathString()) && !getDockerIgnore().hasExceptions();
+        }
+
+        protected synchronized DockerIgnore getDockerIgnore() {
+
+            if (dockerIgnore == null)
+                dockerIgnore = new DockerIgnore(contextDirectory.get().getAsFile(), dockerfile.isPresent() ? dockerfile.get().getAsFile() : null);
+            return dockerIgnore;
+        }
+    }
+
+    /**
+     * Internal Class to hold a single entry of the build context
+     */
+    public static class ContextEntry {
+
+        private final String relativePath;
+        private final Path path;
+        private final EntryType type;
+
+        /// Constructor
+
+        public ContextEntry(String relativePath, Path path, EntryType type) {
+            this.relativePath = relativePath;
+            this.path = path;
+            this.type = type;
+        }
+
+        ///
+
+        public String getRelativePath() { return relativePath; }
+        public Path getPath()           { return path;         }
+        public EntryType getType()      { return type;         }
+    }
+
+    public enum EntryType {
+        DIRECTORY,
+        FILE,
+        SYMLINK
+    }
+
+    /**
+     * Internal Class to hold the .dockerignore rules of a build context
+     */
+    public static class DockerIgnore {
+
+        private final List<Rule> rules;
+
+        /// Constructor
+
+        public DockerIgnore(File contextDir, @Nullable File dockerfile) {
+            this.rules = loadRules(getIgnoreFile(contextDir, dockerfile));
+        }
+
+        ///
+
+        public boolean isIgnored(String relativePath) {
+
+            List<String> parentPaths = new ArrayList<String>();
+            for (int index = relativePath.indexOf('/'); index != -1; index = relativePath.indexOf('/', index + 1))
+                parentPaths.add(relativePath.substring(0, index));
+
+            // The last matching rule wins, a rule matching a parent directory matches all of its children
+            boolean ignored = false;
+            for (Rule rule : rules) {
+
+                boolean match = rule.pattern.matcher(relativePath).matches();
+                for (int index = 0; !match && index < parentPaths.size(); index++)
+                    match = rule.pattern.matcher(parentPaths.get(index)).matches();
+
+                if (match) ignored = !rule.exception;
+            }
+            return ignored;
+        }
+
+        public boolean hasExceptions() {
+            return rules.stream().anyMatch( rule -> rule.exception );
+        }
+
+        ///
+
+        protected static File getIgnoreFile(File contextDir, @Nullable File dockerfile) {
+
+            // BuildKit prefers a Dockerfile specific ignore file (Dockerfile.dockerignore) next to the Dockerfile
+            if (dockerfile != null) {
+                File dockerfileIgnore = new File(dockerfile.getParentFile(), dockerfile.getName() + DOCKER_IGNORE);
+                if (dockerfileIgnore.isFile()) return dockerfileIgnore;
+            }
+            return new File(contextDir, DOCKER_IGNORE);
+        }
+
+        protected static List<Rule> loadRules(File ignoreFile) {
+
+            List<Rule> rules = new ArrayList<Rule>();
+            if (!ignoreFile.isFile()) return rules; // Nothing to do...
+
+            try {
+
+                for (String line : Files.readAllLines(ignoreFile.toPath(), StandardCharsets.UTF_8)) {
+
+                    String pattern = line.trim();
+                    if (pattern.isEmpty() || pattern.startsWith("#")) continue;
+
+                    boolean exception = pattern.startsWith("!");
+                    if (exception) pattern = pattern.substring(1).trim();
+
+                    pattern = cleanPattern(pattern);
+                    if (!pattern.isEmpty()) rules.add(new Rule(compilePattern(pattern), exception));
+                }
+
+            } catch (IOException ex) {
+                DockerXVerifyUtil.stopGradleException(MESSAGE_DOCKER_IGNORE + ex.getMessage());
+            }
+
+            return rules;
+        }
+
+        protected static String cleanPattern(String pattern) {
+
+            // Same normalization as filepath.Clean, patterns are always relative to the context root
+            // A backslash is only a path separator on Windows, elsewhere it escapes the next character
+            Deque<String> segments = new ArrayDeque<String>();
+            for (String segment : pattern.replace(File.separatorChar, '/').split("/")) {
+
+                if (segment.isEmpty() || segment.equals(".")) continue;
+                if (segment.equals("..")) { if (!segments.isEmpty()) segments.removeLast(); continue; }
+                segments.addLast(segment);
+            }
+            return String.join("/", segments);
+        }
+
+        protected static Pattern compilePattern(String pattern) {
+
+            StringBuilder regex = new StringBuilder("^");
+
+            for (int index = 0; index < pattern.length(); index++) {
+
+                char ch = pattern.charAt(index);
+
+                if (ch == '*') {
+
+                    if ((index + 1 < pattern.length()) && (pattern.charAt(index + 1) == '*')) {
+
+                        index++;
+                        if (index + 1 == pattern.length()) { regex.append(".*"); }
+                        else if (pattern.charAt(index + 1) == '/') { regex.append("(.*/)?"); index++; }
+                        else { regex.append(".*"); }
+
+                    } else {
+                        regex.append("[^/]*");
+                    }
+
+                } else if (ch == '?') {
+                    regex.append("[^/]");
+
+                } else if (ch == '[') {
+
+                    int end = pattern.indexOf(']', index + 1);
+                    if (end == -1) { regex.append("\\["); continue; }
+                    String range = pattern.substring(index + 1, end);
+                    regex.append('[').append(range.startsWith("!") ? "^" + range.substring(1) : range).append(']');
+                    index = end;
+
+                } else if ((ch == '\\') && (index + 1 < pattern.length())) {
+                    regex.append(Pattern.quote(String.valueOf(pattern.charAt(++index))));
+
+                } else {
+                    regex.append(Pattern.quote(String.valueOf(ch)));
+                }
+            }
+
+            return Pattern.compile(regex.append("$").toString());
+        }
+    }
+
+    /**
+     * Internal Class to hold a single .dockerignore rule
+     */
+    protected static class Rule {
+
+        private final Pattern pattern;
+        private final boolean exception;
+
+        /// Constructor
+
+        public Rule(Pattern pattern, boolean exception) {
+            this.pattern = pattern;
+            this.exception = exception;
+        }
+    }
+}
@@ -19,12 +19,18 @@
 
 package io.github.arvinb.dockerx.util;
 
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFileAttributeView;
 import java.text.*;
 import java.util.*;
+import java.util.concurrent.*;
 import org.gradle.api.*;
+import org.gradle.api.logging.*;
 import com.fasterxml.jackson.core.*;
 import com.fasterxml.jackson.databind.*;
 import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.service.*;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
 public class DockerXDigestUtil extends DockerXDockerUtil {
@@ -33,7 +39,7 @@ public class DockerXDigestUtil extends DockerXDockerUtil {
         
         try {
             
-            final JsonParser jsonParser = (new ObjectMapper()).getFactory().createParser(jsonString);
+            final JsonParser jsonParser = DockerXManifestUtil.getObjectMapper().getFactory().createParser(jsonString);
             while ( jsonParser.nextToken() != null ) {}
             return true;
             
@@ -44,89 +50,222 @@ public class DockerXDigestUtil extends DockerXDockerUtil {
     
     public static boolean isJsonObject(final String jsonString) {
         
-        try {
-            
-            final JsonNode jsonNode = (new ObjectMapper()).readTree(jsonString);
-            return jsonNode.isObject();
-            
-        } catch (Exception ex) { }
-        
-        return false;
+        final JsonNode jsonNode = DockerXManifestUtil.parseJson(jsonString);
+        return (jsonNode != null) && jsonNode.isObject();
     }
     
     public static boolean isJsonArray(final String jsonString) {
         
-        try {
-            
-            final JsonNode jsonNode = (new ObjectMapper()).readTree(jsonString);
-            return jsonNode.isArray();
-            
-        } catch (Exception ex) { }
-        
-        return false;
+        final JsonNode jsonNode = DockerXManifestUtil.parseJson(jsonString);
+        return (jsonNode != null) && jsonNode.isArray();
     }
 
-    public static List<String> convertImageTagsToDigests(Project project, List<String> images, List<DockerXCredentialConfig.RegistryCredential> registryCredentials) {
+    public static List<String> convertImageTagsToDigests(Logger logger, DockerXRegistryService registryService, List<String> images, List<DockerXCredentialConfig.RegistryCredential> registryCredentials, DockerXDigestConfig.ResolveItem resolveItem) {
         
         if (images.isEmpty()) return images; // Nothing to do...
         
-        // Log into registries
-        registryCredentials.forEach( cred -> {
-            project.getLogger().lifecycle(MessageFormat.format(MESSAGE_DOCKER_LOGIN_REG, cred.getRegistry(), cred.getUsername()));
-            loginDockerXAuth(project, cred.getUsername().get(), cred.getPassword().get(), cred.getRegistry().get());
-        });
-
+        List<DockerXDigestConfig.DigestItem> digestItems = new ArrayList<DockerXDigestConfig.DigestItem>();
+        images.forEach( image -> digestItems.add(new DockerXDigestConfig.DigestItem(image)) );
+        
+        resolveImageDigests(logger, registryService, digestItems, registryCredentials, false, resolveItem);
+        
         List<String> digestImages = new ArrayList<String>();
+        digestItems.forEach( digestItem -> digestImages.add(digestItem.getImageManifest()) );
         
-        images.stream().forEach( image -> {
-            
-            DockerXDigestConfig.DigestItem digestItem = new DockerXDigestConfig.DigestItem(image);
-            String imageInspect = inspectDockerXImage(project, digestItem.getImage());
+        return digestImages;
+    }
+    
+    public static void injectImageDigests(Logger logger, DockerXRegistryService registryService, List<DockerXDigestConfig.DigestItem> digestItems, List<DockerXCredentialConfig.RegistryCredential> registryCredentials, DockerXDigestConfig.ResolveItem resolveItem) {
+        
+        if (digestItems.isEmpty()) return; // Nothing to do...
+        
+        resolveImageDigests(logger, registryService, digestItems, registryCredentials, true, resolveItem);
+        
+        digestItems.forEach( digestItem -> {
             
-            if ( DockerXDigestUtil.isJsonValid(imageInspect) ) {
+            digestItem.getTargetFiles().forEach( targetFile -> {
                 
-                if (DockerXDigestUtil.isJsonObject(imageInspect))
-                    digestItem.setImageDigest(inspectDockerXImage(project, digestItem.getImage()));
+                logger.lifecycle(MessageFormat.format(MESSAGE_DIGEST_SUBST, digestItem.getImageNameDigest(), targetFile.getName()));
                 
-                else if (DockerXDigestUtil.isJsonArray(imageInspect))
-                    digestItem.setImageDigest(inspectDockerXListManifest(project, digestItem.getImage()));
-            }
+            });
+        });
+    }
+    
+    ///
+    
+    protected static void resolveImageDigests(Logger logger, 
+                                              DockerXRegistryService registryService, 
+                                              List<DockerXDigestConfig.DigestItem> digestItems, 
+                                              List<DockerXCredentialConfig.RegistryCredential> registryCredentials, 
+                                              boolean execute, 
+                                              DockerXDigestConfig.ResolveItem resolveItem) {
+        
+        DockerXRegistryClient registryClient = registryService.getRegistryClient(registryCredentials);
+        
+        // Resolution fans out, bounded per task and per registry host across the build so rate limits are respected
+        DockerXSchedulerService scheduler = registryService.getScheduler();
+        Semaphore taskPermits = new Semaphore(Math.max(1, resolveItem.getParallelism()));
+        List<CompletableFuture<DockerXDigestConfig.ManifestItem>> resolutions = new ArrayList<CompletableFuture<DockerXDigestConfig.ManifestItem>>();
+        
+        digestItems.forEach( digestItem -> {
             
-            digestImages.add( digestItem.getImageManifest() );
+            String registry = DockerXRegistryClient.ImageReference.parse(digestItem.getImage()).getRegistry();
+            Semaphore hostPermits = scheduler.getPermits(SCHEDULER_REGISTRY_GROUP + registry, resolveItem.getRegistryConcurrency());
             
+            resolutions.add(scheduler.submit( () -> {
+                
+                try {
+                    
+                    // Every image is resolved once per build and shared across tasks
+                    return registryService.resolve(digestItem.getImage(), resolveItem, () -> {
+                        
+                        try {
+                            return registryClient.resolveManifest(digestItem.getImage());
+                            
+                        } catch (Exception ex) {
+                            
+                            // Fall back to the docker cli for registries the client could not reach
+                            logger.info(MessageFormat.format(MESSAGE_REGISTRY_FALLBACK, digestItem.getImage(), ex.getMessage()));
+                            
+                            registryService.login(logger, registryCredentials);
+                            
+                            return inspectImageManifest(logger, digestItem.getImage());
+                        }
+                    });
+                    
+                } catch (GradleException ex) {
+                    throw ex;
+                    
+                } catch (Exception ex) {
+                    throw new GradleException(MESSAGE_DIGEST_EXEC + ex.getMessage(), ex);
+                }
+                
+            }, taskPermits, hostPermits));
         });
         
-        return digestImages;
+        List<DockerXDigestConfig.ManifestItem> manifestItems = scheduler.await(scheduler.allOf(resolutions));
+        
+        for (int i = 0; i < digestItems.size(); i++) {
+            digestItems.get(i).setImageDigest(manifestItems.get(i));
+        }
+        
+        // Target files are rewritten afterwards, each one in a single pass
+        if (execute) rewriteTargetFiles(digestItems);
     }
     
-    public static void injectImageDigests(Project project, List<DockerXDigestConfig.DigestItem> digestItems, List<DockerXCredentialConfig.RegistryCredential> registryCredentials) {
+    protected static Path resolveTargetPath(File targetFile) {
         
-        if (digestItems.isEmpty()) return; // Nothing to do...
+        // Follow symlinks so the link target is rewritten and the link itself is kept
+        Path targetPath = targetFile.toPath().toAbsolutePath().normalize();
+        
+        try {
+            return targetPath.toRealPath();
+        } catch (IOException ex) {
+            return targetPath; // Missing file, skipped later
+        }
+    }
+    
+    public static void rewriteTargetFiles(List<DockerXDigestConfig.DigestItem> digestItems) {
+        
+        // Group the resolved digests by target file, keyed on image name
+        Map<Path, Map<String, DockerXDigestConfig.DigestItem>> targetFiles = new LinkedHashMap<Path, Map<String, DockerXDigestConfig.DigestItem>>();
         
-        // Log into registries
-        registryCredentials.forEach( cred -> {
-            project.getLogger().lifecycle(MessageFormat.format(MESSAGE_DOCKER_LOGIN_REG, cred.getRegistry(), cred.getUsername()));
-            loginDockerXAuth(project, cred.getUsername().get(), cred.getPassword().get(), cred.getRegistry().get());
+        digestItems.stream().filter( digestItem -> !digestItem.getImageDigest().isBlank() ).forEach( digestItem -> {
+            
+            digestItem.getTargetFiles().forEach( targetFile -> {
+                
+                Path targetPath = resolveTargetPath(targetFile);
+                targetFiles.computeIfAbsent(targetPath, path -> new HashMap<String, DockerXDigestConfig.DigestItem>()).put(digestItem.getImageName(), digestItem);
+            });
         });
+        
+        targetFiles.forEach( (targetPath, imageDigests) -> {
             
-        digestItems.stream().forEach( digestItem -> {
+            if (!Files.isRegularFile(targetPath)) return; // Nothing to do...
             
-            String imageInspect = inspectDockerXImage(project, digestItem.getImage());
+            Path tempPath = null;
             
-            if ( DockerXDigestUtil.isJsonValid(imageInspect) ) {
+            try {
                 
-                if (DockerXDigestUtil.isJsonObject(imageInspect))
-                    digestItem.execute(inspectDockerXImage(project, digestItem.getImage()));
+                // Stream the file once through a temp file, only replacing it when a line changed
+                tempPath = Files.createTempFile(targetPath.getParent(), targetPath.getFileName().toString(), null);
+                boolean updated = false;
                 
-                else if (DockerXDigestUtil.isJsonArray(imageInspect))
-                    digestItem.execute(inspectDockerXListManifest(project, digestItem.getImage()));
+                try ( BufferedReader reader = Files.newBufferedReader(targetPath);
+                      BufferedWriter writer = Files.newBufferedWriter(tempPath) ) {
+                    
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        
+                        String updatedLine = rewriteImageLine(line, imageDigests);
+                        updated = updated || !updatedLine.equals(line);
+                        
+                        writer.write(updatedLine);
+                        writer.newLine();
+                    }
+                }
                 
-                digestItem.getTargetFiles().forEach( targetFile -> {
+                if (updated) {
                     
-                    project.getLogger().lifecycle(MessageFormat.format(MESSAGE_DIGEST_SUBST, digestItem.getImageNameDigest(), targetFile.get().getAsFile().getName()));
+                    // Keep the mode of the original file, the temp file is created owner-only
+                    PosixFileAttributeView attributeView = Files.getFileAttributeView(targetPath, PosixFileAttributeView.class);
+                    if (attributeView != null) Files.setPosixFilePermissions(tempPath, attributeView.readAttributes().permissions());
                     
-                });
+                    Files.move(tempPath, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                
+            } catch (Exception ex) {
+                DockerXVerifyUtil.stopGradleException(MESSAGE_DIGEST_EXEC + ex.getMessage());
+                
+            } finally {
+                
+                try {
+                    if (tempPath != null) Files.deleteIfExists(tempPath);
+                } catch (IOException ex) { }
             }
         });
     }
+    
+    public static String rewriteImageLine(String line, Map<String, DockerXDigestConfig.DigestItem> imageDigests) {
+        
+        // Only lines holding a registry qualified image (a dot before the last slash) are candidates
+        final int slashIndex = line.lastIndexOf('/');
+        if ( slashIndex == -1 || line.lastIndexOf('.', slashIndex - 1) == -1 ) return line;
+        
+        int nameEnd = line.indexOf("@sha256:", slashIndex);
+        if ( nameEnd == -1 ) nameEnd = line.indexOf(':', slashIndex);
+        if ( nameEnd == -1 ) return line;
+        
+        DockerXDigestConfig.DigestItem digestItem = imageDigests.get(line.substring(slashIndex + 1, nameEnd));
+        if ( digestItem == null ) return line;
+        
+        return line.substring(0, slashIndex + 1) + digestItem.getImageNameDigest();
+    }
+    
+    protected static DockerXDigestConfig.ManifestItem inspectImageManifest(Logger logger, String image) {
+        
+        // Inspect and parse once, reusing the payload when it already is a single image manifest
+        JsonNode inspectNode = DockerXManifestUtil.parseJson(inspectDockerXImage(logger, image));
+        
+        if (inspectNode != null) {
+            
+            if (inspectNode.isObject())
+                return DockerXManifestUtil.parseManifest(image, inspectNode);
+            
+            else if (inspectNode.isArray()) {
+                
+                // List manifests are parsed while imagetools streams its output
+                DockerXManifestUtil.ImagetoolsParser imagetoolsParser = new DockerXManifestUtil.ImagetoolsParser(image);
+                inspectDockerXListManifest(logger, image, imagetoolsParser);
+                
+                DockerXDigestConfig.ManifestItem manifestItem = imagetoolsParser.getManifestItem();
+                if (!manifestItem.isListManifest())
+                    DockerXVerifyUtil.stopGradleException(MESSAGE_DIGEST + image); // Danger Mr. Robinson we should have a list manifest
+                
+                return manifestItem;
+            }
+        }
+        
+        return new DockerXDigestConfig.ManifestItem(image);
+    }
 }
@@ -22,31 +22,68 @@ package io.github.arvinb.dockerx.util;
 import java.text.*;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
 import java.util.stream.*;
 import javax.annotation.*;
 import org.gradle.api.*;
 import org.gradle.api.file.*;
+import org.gradle.api.logging.*;
 import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.service.*;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
 public class DockerXDockerUtil {
     
-    public static void pruneAndClearCache(Project project, String builder) {
+    public static void pruneAndClearCache(Logger logger, DockerXBuilderService builderService, String builder, DockerXPruneConfig.PruneItem pruneItem) {
         
-        try { pruneDockerXImages(project);      } catch (Exception ex) { } // Do nothing...
-        try { pruneDockerSystemImages(project); } catch (Exception ex) { } // Do nothing...
-        try { pruneDockerXVolumes(project);     } catch (Exception ex) { } // Do nothing...
-        try { removeBuilder(project, builder);  } catch (Exception ex) { } // Do nothing...
+        if (pruneItem.getPolicy() == DockerXPruneConfig.PrunePolicy.ALL) {
+            try { pruneDockerXImages(logger);      } catch (Exception ex) { logPruneFailure(logger, ex); }
+            try { pruneDockerSystemImages(logger); } catch (Exception ex) { logPruneFailure(logger, ex); }
+            try { pruneDockerXVolumes(logger);     } catch (Exception ex) { logPruneFailure(logger, ex); }
+            if (!builder.isBlank()) builderService.removeBuilder(builder);
+            return;
+        }
+        
+        // Only prune build cache within a budget or age, otherwise the warm cache is kept
+        List<String> cacheFilters = pruneItem.getCacheFilters();
+        if (!cacheFilters.isEmpty()) {
+            if (!builder.isBlank()) { cacheFilters.add(0, builder); cacheFilters.add(0, CMD_LINE_OPT_BUILDER); }
+            try { pruneDockerXCache(logger, cacheFilters); } catch (Exception ex) { logPruneFailure(logger, ex); }
+        } else
+            logger.lifecycle(MessageFormat.format(MESSAGE_CMD_PRUNE_SKIPPED, CMD_LINE_BUILDX));
+        
+        // Only remove the images this plugin loaded, otherwise prune images selected by label or age
+        if (pruneItem.isOwnedOnly()) {
+            List<String> builtImages = builderService.takeBuiltImages();
+            if (!builtImages.isEmpty()) {
+                try { removeDockerImages(logger, builtImages); } catch (Exception ex) { logPruneFailure(logger, ex); }
+            } else
+                logger.lifecycle(MessageFormat.format(MESSAGE_CMD_PRUNE_SKIPPED, CMD_LINE_IMAGE));
+        } else {
+            List<String> imageFilters = pruneItem.getImageFilters();
+            if (!imageFilters.isEmpty()) {
+                try { pruneDockerImages(logger, imageFilters); } catch (Exception ex) { logPruneFailure(logger, ex); }
+            } else
+                logger.lifecycle(MessageFormat.format(MESSAGE_CMD_PRUNE_SKIPPED, CMD_LINE_IMAGE));
+        }
+        
+        // Only prune volumes selected by label
+        List<String> volumeFilters = pruneItem.getVolumeFilters();
+        if (!volumeFilters.isEmpty()) {
+            try { pruneDockerVolumes(logger, volumeFilters); } catch (Exception ex) { logPruneFailure(logger, ex); }
+        } else
+            logger.lifecycle(MessageFormat.format(MESSAGE_CMD_PRUNE_SKIPPED, CMD_LINE_VOLUME));
     }
     
-    public static boolean removeBuilder(Project project, String builderName) {
+    public static boolean removeBuilder(Logger logger, String builderName) {
         
         try {
             
-            Map<String, Boolean> builderList = getDockerXBuilders(project);
+            Map<String, Boolean> builderList = getDockerXBuilders(logger);
             
             if ( builderList.containsKey(builderName) ) {
-                removeDockerXBuilder(project, builderName);
+                removeDockerXBuilder(logger, builderName);
                 return true;
             }
             
@@ -55,222 +92,409 @@ public class DockerXDockerUtil {
         return false;
     }
     
-    public static void removeListManifest(Project project, String listManifest) {
+    public static void removeListManifest(Logger logger, String listManifest) {
         
         try {
             
-            removeDockerXListManifest(project, listManifest);
+            removeDockerXListManifest(logger, listManifest);
             
         } catch (Exception ex) { } // Do nothing...
     }
     
-    public static boolean createAndUseBuilder(Project project, String builderName, boolean multiArchReset) {
+    public static boolean createAndUseBuilder(Logger logger, String builderName, boolean multiArchReset) {
         
         try {
             
-            Map<String, Boolean> builderList = getDockerXBuilders(project);
+            Map<String, Boolean> builderList = getDockerXBuilders(logger);
             
             if ( builderList.containsKey(builderName) ) {
                 
                 if (!builderList.get(builderName)) // Builder is not in-use
-                    useDockerXBuilder(project, builderName);
+                    useDockerXBuilder(logger, builderName);
                 
             } else { // Simply create and use the builder
                 
                 if ( (DockerXVerifyUtil.isCurrentOS(DockerXVerifyUtil.OS.LINUX)) && (multiArchReset) )
-                    activateMultiArch(project);
+                    activateMultiArch(logger);
                 
-                createDockerXBuilder(project, builderName);
-                useDockerXBuilder(project, builderName);
+                createDockerXBuilder(logger, builderName);
+                useDockerXBuilder(logger, builderName);
             }
             
             return true;
             
         } catch (Exception ex) {
-            removeBuilder(project, builderName);
+            removeBuilder(logger, builderName);
             DockerXVerifyUtil.stopGradleException(ex.getMessage());
         }
         
         return false;
     }
     
-    public static void buildDockerImage(Project project, 
+    public static Map<String, String> buildDockerImage(Logger logger, 
+                                        DockerXBuilderService builderService, 
+                                        DockerXRegistryService registryService, 
                                         List<String> images, 
                                         RegularFile dockerfile, 
                                         DirectoryProperty workingDir, 
+                                        @Nullable File buildContext, 
                                         String builder, 
                                         String provenance, 
                                         List<DockerXDockerConfig.PlatformItem> platforms, 
                                         Map<String, String> buildArgs, 
-                                        Map<String, RegularFileProperty> secrets, 
+                                        Map<String, File> secrets, 
                                         String target, 
+                                        @Nullable DockerXDockerConfig.CacheItem cache, 
                                         boolean pushFlag, 
+                                        boolean platformTags, 
+                                        int parallelism, 
                                         boolean devbuild, 
+                                        boolean keepBuilder, 
+                                        int builderIdleTimeout, 
                                         boolean multiArchReset, 
                                         List<DockerXCredentialConfig.RegistryCredential> registryCredentials) {
         
-        if (images.isEmpty() || platforms.isEmpty()) return; // Nothing to do...
+        Map<String, String> imageDigests = new ConcurrentHashMap<String, String>();
+        if (images.isEmpty() || platforms.isEmpty()) return imageDigests; // Nothing to do...
         
         try {
             
-            if (!builder.isBlank()) { createAndUseBuilder(project, builder, multiArchReset); }
+            if (!builder.isBlank()) { builderService.acquire(builder, multiArchReset, devbuild || keepBuilder, builderIdleTimeout); }
             
             // Get a versioned image from the list
             String versionedImage = (images.stream().filter( aImage -> !aImage.equals(CMD_LINE_LATEST) ).limit(1).collect(Collectors.toList())).get(0);
             
-            List<String> builtDockerImages = new ArrayList<String>();
             List<String> buildArguments = new ArrayList<String>();
+            if (!builder.isBlank()) { buildArguments.add(CMD_LINE_OPT_BUILDER); buildArguments.add(builder); }
             if (dockerfile != null) { buildArguments.add(CMD_LINE_OPT_FILE); buildArguments.add(dockerfile.getAsFile().getPath()); }
             if ((target != null) && (!target.trim().isEmpty())) { buildArguments.add(CMD_LINE_OPT_TARGET); buildArguments.add(target); }
             if (!buildArgs.isEmpty()) { buildArgs.forEach( (key, value) -> { buildArguments.add(CMD_LINE_OPT_BUILD_ARG); buildArguments.add(key + "=" + value); }); }
-            if (!secrets.isEmpty()) { secrets.forEach( (secretId, secret) -> { buildArguments.add(CMD_LINE_OPT_SECRET); buildArguments.add("id=" + secretId + ",src=" + secret.get().getAsFile().getPath()); }); }
+            if (!secrets.isEmpty()) { secrets.forEach( (secretId, secret) -> { buildArguments.add(CMD_LINE_OPT_SECRET); buildArguments.add("id=" + secretId + ",src=" + secret.getPath()); }); }
             if ((provenance != null) && (!provenance.trim().isEmpty())) { buildArguments.add(CMD_LINE_OPT_PROVENANCE + "=" + provenance); }
             if (pushFlag) { buildArguments.add(CMD_LINE_OPT_PUSH); } else { buildArguments.add(CMD_LINE_OPT_LOAD); }
             
-            // Log into registries
-            registryCredentials.forEach( cred -> {
-                project.getLogger().lifecycle(MessageFormat.format(MESSAGE_DOCKER_LOGIN_REG, cred.getRegistry(), cred.getUsername()));
-                loginDockerXAuth(project, cred.getUsername().get(), cred.getPassword().get(), cred.getRegistry().get());
-            });
+            // Log into registries concurrently (once per build), every build waits for all of them
+            DockerXSchedulerService scheduler = registryService.getScheduler();
+            List<CompletableFuture<Void>> logins = new ArrayList<CompletableFuture<Void>>();
+            registryCredentials.forEach( cred -> logins.add(scheduler.submit( () -> {
+                registryService.login(logger, Arrays.asList(cred));
+                return null;
+            })));
+            CompletableFuture<List<Void>> loggedIn = scheduler.allOf(logins);
 
-            // Build Docker Image using Local Daemon
-            platforms.forEach( platform -> {
+            // Build a multi-arch image index in a single invocation (a multi-platform --load needs the containerd image store)
+            boolean singleInvocation = (platforms.size() > 1) && (!platformTags);
+            if (singleInvocation && (!pushFlag) && (!isContainerdImageStore(logger))) {
+                logger.lifecycle(MESSAGE_DOCKER_LOAD_PLATFORMS);
+                singleInvocation = false;
+            }
+            
+            if (singleInvocation) {
                 
                 List<String> platformArguments = new ArrayList<String>(buildArguments);
                 
                 platformArguments.add(CMD_LINE_OPT_PLATFORM);
-                platformArguments.add(platform.toString());
+                platformArguments.add(DockerXDockerConfig.PlatformItem.commaSeparatedList(platforms));
+                if (cache != null) { platformArguments.addAll(cache.getCacheArguments(versionedImage, null)); }
                 
-                if (platforms.size() > 1) {
-                    String platformImage = versionedImage + "-" + platform.shortString();
+                images.forEach( image -> {
                     platformArguments.add(CMD_LINE_OPT_TAG);
-                    platformArguments.add(platformImage);
-                    builtDockerImages.add(platformImage);
-                } else {
-                    images.forEach( image -> {
+                    platformArguments.add(image);
+                });
+                
+                scheduler.await(loggedIn);
+                String digest = registryService.withLogin(logger, registryCredentials, () -> buildDockerXImage(logger, workingDir, buildContext, platformArguments));
+                images.forEach( image -> putDigest(imageDigests, image, digest) );
+                if (!pushFlag) builderService.recordBuiltImages(images);
+                else images.forEach(registryService::evict);
+                return imageDigests; // BuildKit produced the list manifest
+            }
+            
+            // Build Docker Image using Local Daemon (one bounded worker per platform)
+            Semaphore platformPermits = new Semaphore(Math.max(1, parallelism));
+            
+            CompletableFuture<Void> dockerBuild = loggedIn.thenCompose( ignored -> {
+                
+                List<CompletableFuture<List<String>>> platformBuilds = new ArrayList<CompletableFuture<List<String>>>();
+                
+                platforms.forEach( platform -> platformBuilds.add(scheduler.submit( () -> {
+                    
+                    List<String> platformImages = new ArrayList<String>();
+                    List<String> platformArguments = new ArrayList<String>(buildArguments);
+                    
+                    platformArguments.add(CMD_LINE_OPT_PLATFORM);
+                    platformArguments.add(platform.toString());
+                    
+                    if (platforms.size() > 1) {
+                        String platformImage = versionedImage + "-" + platform.shortString();
                         platformArguments.add(CMD_LINE_OPT_TAG);
-                        platformArguments.add(image);
-                        builtDockerImages.add(image);
-                    });
-                }
+                        platformArguments.add(platformImage);
+                        platformImages.add(platformImage);
+                        if (cache != null) { platformArguments.addAll(cache.getCacheArguments(platformImage, platform)); }
+                    } else {
+                        images.forEach( image -> {
+                            platformArguments.add(CMD_LINE_OPT_TAG);
+                            platformArguments.add(image);
+                            platformImages.add(image);
+                        });
+                        if (cache != null) { platformArguments.addAll(cache.getCacheArguments(versionedImage, null)); }
+                    }
+                    
+                    String digest = registryService.withLogin(logger, registryCredentials, () -> buildDockerXImage(logger, workingDir, buildContext, platformArguments));
+                    platformImages.forEach( platformImage -> putDigest(imageDigests, platformImage, digest) );
+                    if (!pushFlag) builderService.recordBuiltImages(platformImages);
+                    return platformImages;
+                    
+                }, platformPermits)));
+                
+                return scheduler.allOf(platformBuilds);
+                
+            }).thenCompose( builtPlatforms -> {
                 
-                buildDockerXImage(project, workingDir, platformArguments);
+                if (!pushFlag || (platforms.size() == 1)) return CompletableFuture.completedFuture(null);
+                
+                // Create and push a List Manifest per image, images are independent of each other
+                List<String> builtDockerImages = builtPlatforms.stream().flatMap(List::stream).collect(Collectors.toList());
+                List<CompletableFuture<Void>> listManifests = new ArrayList<CompletableFuture<Void>>();
+                
+                images.forEach( image -> listManifests.add(scheduler.submit( () -> {
+                    createDockerXListManifest(logger, image, builtDockerImages);
+                    putDigest(imageDigests, image, registryService.withLogin(logger, registryCredentials, () -> pushDockerXListManifest(logger, image)));
+                    return null;
+                })));
+                
+                return scheduler.allOf(listManifests).thenApply( ignored -> null );
             });
             
-            // Create a List Manifest
+            scheduler.await(dockerBuild);
+            
+            // Pushed tags now point to the new images
             if (pushFlag) {
-                if (platforms.size() > 1) {
-                    images.forEach( image -> {
-                        createDockerXListManifest(project, image, builtDockerImages);
-                        pushDockerXListManifest(project, image);
-                    });
-                }
+                images.forEach(registryService::evict);
+                imageDigests.keySet().forEach(registryService::evict);
             }
             
         } catch (Exception ex) {
             DockerXVerifyUtil.stopGradleException(MESSAGE_DOCKER_BUILD + ex.getMessage());
             
         } finally {
-            if (!devbuild) removeBuilder(project, builder);
+            if (!builder.isBlank()) builderService.release(builder);
         }
+        
+        return imageDigests;
+    }
+    
+    public static void storeImageDigests(File digestsFile, Map<String, String> imageDigests) {
+        
+        try {
+            
+            // Sorted and without a timestamp so identical builds produce identical outputs
+            StringBuilder digests = new StringBuilder();
+            new TreeMap<String, String>(imageDigests).forEach( (image, digest) -> digests.append(image).append('=').append(digest).append('\n') );
+            
+            digestsFile.getParentFile().mkdirs();
+            java.nio.file.Files.writeString(digestsFile.toPath(), digests);
+            
+        } catch (IOException ex) {
+            DockerXVerifyUtil.stopGradleException(MESSAGE_BUILD_DIGESTS + ex.getMessage());
+        }
+    }
+    
+    protected static void putDigest(Map<String, String> imageDigests, String image, @Nullable String digest) {
+        if ((digest != null) && (!digest.isBlank())) imageDigests.put(image, digest);
     }
     
     ///
     
-    protected static void activateMultiArch(Project project) {
+    protected static void activateMultiArch(Logger logger) {
         
-        project.getLogger().lifecycle(MESSAGE_CMD_ACTIVATE_MULTIARCH);
-        (new DockerCmdLineUtil(project, CMD_LINE_DOCKER, CMD_LINE_RUN, CMD_LINE_OPT_RM, CMD_LINE_OPT_PRIVILEGED, CMD_LINE_MULTIARCH, CMD_LINE_OPT_RESET, CMD_LINE_OPT_PERSISTENT, CMD_LINE_YES)).execute();
+        logger.lifecycle(MESSAGE_CMD_ACTIVATE_MULTIARCH);
+        (new DockerCmdLineUtil(logger, CMD_LINE_DOCKER, CMD_LINE_RUN, CMD_LINE_OPT_RM, CMD_LINE_OPT_PRIVILEGED, CMD_LINE_MULTIARCH, CMD_LINE_OPT_RESET, CMD_LINE_OPT_PERSISTENT, CMD_LINE_YES)).execute();
     }
     
-    protected static void pruneDockerXImages(Project project) {
+    protected static void pruneDockerXImages(Logger logger) {
         
-        project.getLogger().lifecycle(MESSAGE_CMD_PRUNE_IMAGES);
-        (new DockerCmdLineUtil(project, CMD_LINE_DOCKER, CMD_LINE_BUILDX, CMD_LINE_PRUNE, CMD_LINE_OPT_ALL, CMD_LINE_OPT_FORCE)).execute();
+        logger.lifecycle(MESSAGE_CMD_PRUNE_IMAGES);
+        (new DockerCmdLineUtil(logger, CMD_LINE_DOCKER, CMD_LINE_BUILDX, CMD_LINE_PRUNE, CMD_LINE_OPT_ALL, CMD_LINE_OPT_FORCE)).execute();
     }
     
-    protected static void pruneDockerSystemImages(Project project) {
+    protected static void pruneDockerSystemImages(Logger logger) {
         
-        project.getLogger().lifecycle(MESSAGE_CMD_PRUNE_SYS_IMAGES);
-        (new DockerCmdLineUtil(project, CMD_LINE_DOCKER, CMD_LINE_SYSTEM, CMD_LINE_PRUNE, CMD_LINE_OPT_ALL, CMD_LINE_OPT_FORCE)).execute();
+        logger.lifecycle(MESSAGE_CMD_PRUNE_SYS_IMAGES);
+        (new DockerCmdLineUtil(logger, CMD_LINE_DOCKER, CMD_LINE_SYSTEM, CMD_LINE_PRUNE, CMD_LINE_OPT_ALL, CMD_LINE_OPT_FORCE)).execute();
     }
     
-    protected static void pruneDockerXVolumes(Project project) {
+    protected static void pruneDockerXVolumes(Logger logger) {
         
-        project.getLogger().lifecycle(MESSAGE_CMD_PRUNE_VOLUMES);
-        (new DockerCmdLineUtil(project, CMD_LINE_DOCKER, CMD_LINE_VOLUME, CMD_LINE_PRUNE, CMD_LINE_OPT_FORCE)).execute();
+        logger.lifecycle(MESSAGE_CMD_PRUNE_VOLUMES);
+        (new DockerCmdLineUtil(logger, CMD_LINE_DOCKER, CMD_LINE_VOLUME, CMD_LINE_PRUNE, CMD_LINE_OPT_FORCE)).execute();
     }
     
-    protected static void createDockerXBuilder(Project project, String builderName) {
+    protected static void pruneDockerXCache(Logger logger, List<String> pruneFilters) {
+        
+        logger.lifecycle(MESSAGE_CMD_PRUNE_IMAGES);
         
-        project.getLogger().lifecycle(MESSAGE_CMD_CREATE_BUILDER);
-        (new DockerCmdLineUtil(project, CMD_LINE_DOCKER, CMD_LINE_BUILDX, CMD_LINE_CREATE, CMD_LINE_OPT_NAME, builderName)).execute();
+        List<String> dockerCommand = new ArrayList<String>(pruneFilters);
+        dockerCommand.add(0, CMD_LINE_DOCKER);
+        dockerCommand.add(1, CMD_LINE_BUILDX);
+        dockerCommand.add(2, CMD_LINE_PRUNE);
+        dockerCommand.add(3, CMD_LINE_OPT_FORCE);
+        
+        (new DockerCmdLineUtil( logger, dockerCommand.toArray(new String[0]) )).execute();
     }
     
-    protected static void useDockerXBuilder(Project project, String builderName) {
+    protected static void pruneDockerImages(Logger logger, List<String> pruneFilters) {
+        
+        logger.lifecycle(MESSAGE_CMD_PRUNE_SYS_IMAGES);
+        
+        List<String> dockerCommand = new ArrayList<String>(pruneFilters);
+        dockerCommand.add(0, CMD_LINE_DOCKER);
+        dockerCommand.add(1, CMD_LINE_IMAGE);
+        dockerCommand.add(2, CMD_LINE_PRUNE);
+        dockerCommand.add(3, CMD_LINE_OPT_FORCE);
         
-        project.getLogger().lifecycle(MESSAGE_CMD_USE_BUILDER);
-        (new DockerCmdLineUtil(project, CMD_LINE_DOCKER, CMD_LINE_BUILDX, CMD_LINE_USE, builderName)).execute();
+        (new DockerCmdLineUtil( logger, dockerCommand.toArray(new String[0]) )).execute();
     }
     
-    protected static void removeDockerXBuilder(Project project, String builderName) {
+    protected static void removeDockerImages(Logger logger, List<String> images) {
         
-        project.getLogger().lifecycle(MESSAGE_CMD_REMOVE_BUILDER);
-        (new DockerCmdLineUtil(project, CMD_LINE_DOCKER, CMD_LINE_BUILDX, CMD_LINE_RM, builderName)).execute();
+        logger.lifecycle(MESSAGE_CMD_REMOVE_IMAGES);
+        
+        List<String> dockerCommand = new ArrayList<String>(images);
+        dockerCommand.add(0, CMD_LINE_DOCKER);
+        dockerCommand.add(1, CMD_LINE_IMAGE);
+        dockerCommand.add(2, CMD_LINE_RM);
+        
+        (new DockerCmdLineUtil( logger, dockerCommand.toArray(new String[0]) )).execute();
+    }
+    
+    protected static void pruneDockerVolumes(Logger logger, List<String> pruneFilters) {
+        
+        logger.lifecycle(MESSAGE_CMD_PRUNE_VOLUMES);
+        
+        List<String> dockerCommand = new ArrayList<String>(pruneFilters);
+        dockerCommand.add(0, CMD_LINE_DOCKER);
+        dockerCommand.add(1, CMD_LINE_VOLUME);
+        dockerCommand.add(2, CMD_LINE_PRUNE);
+        dockerCommand.add(3, CMD_LINE_OPT_FORCE);
+        
+        (new DockerCmdLineUtil( logger, dockerCommand.toArray(new String[0]) )).execute();
+    }
+    
+    protected static void logPruneFailure(Logger logger, Exception ex) {
+        
+        logger.warn(MESSAGE_PRUNE_EXEC + ex.getMessage());
     }
     
-    protected static void loginDockerXAuth(Project project, String username, String password, String registry) {
+    protected static void createDockerXBuilder(Logger logger, String builderName) {
         
-        project.getLogger().lifecycle(MESSAGE_CMD_LOGIN_DOCKER_XAUTH);
-        (new DockerCmdLineUtil(project, CMD_LINE_DOCKER, CMD_LINE_LOGIN, CMD_LINE_OPT_U, username, CMD_LINE_OPT_P, password, registry)).execute();
+        logger.lifecycle(MESSAGE_CMD_CREATE_BUILDER);
+        (new DockerCmdLineUtil(logger, CMD_LINE_DOCKER, CMD_LINE_BUILDX, CMD_LINE_CREATE, CMD_LINE_OPT_NAME, builderName)).execute();
     }
     
-    protected static void pushDockerXListManifest(Project project, String versionedImage) {
+    protected static void useDockerXBuilder(Logger logger, String builderName) {
+        
+        logger.lifecycle(MESSAGE_CMD_USE_BUILDER);
+        (new DockerCmdLineUtil(logger, CMD_LINE_DOCKER, CMD_LINE_BUILDX, CMD_LINE_USE, builderName)).execute();
+    }
+    
+    protected static void removeDockerXBuilder(Logger logger, String builderName) {
+        
+        logger.lifecycle(MESSAGE_CMD_REMOVE_BUILDER);
+        (new DockerCmdLineUtil(logger, CMD_LINE_DOCKER, CMD_LINE_BUILDX, CMD_LINE_RM, builderName)).execute();
+    }
+    
+    public static void loginDockerXAuth(Logger logger, String username, String password, String registry) {
+        
+        logger.lifecycle(MESSAGE_CMD_LOGIN_DOCKER_XAUTH);
+        (new DockerCmdLineUtil(logger, CMD_LINE_DOCKER, CMD_LINE_LOGIN, CMD_LINE_OPT_U, username, CMD_LINE_OPT_P, password, registry)).execute();
+    }
+    
+    protected static String pushDockerXListManifest(Logger logger, String versionedImage) {
 
-        project.getLogger().lifecycle(MESSAGE_CMD_PUSH_MANIFEST);
-        (new DockerCmdLineUtil(project, CMD_LINE_DOCKER, CMD_LINE_MANIFEST, CMD_LINE_PUSH, CMD_LINE_OPT_PURGE, versionedImage)).execute();
+        logger.lifecycle(MESSAGE_CMD_PUSH_MANIFEST);
+        String cmdOutput = (new DockerCmdLineUtil(logger, CMD_LINE_DOCKER, CMD_LINE_MANIFEST, CMD_LINE_PUSH, CMD_LINE_OPT_PURGE, versionedImage)).execute().cmdOutput;
+        
+        // docker manifest push prints the digest of the pushed list manifest last
+        return cmdOutput.lines().map(String::trim).filter( line -> line.startsWith(DIGEST_SHA256) ).reduce( (first, last) -> last ).orElse(null);
     }
     
-    protected static void removeDockerXListManifest(Project project, String versionedImage) {
+    protected static void removeDockerXListManifest(Logger logger, String versionedImage) {
 
-        project.getLogger().lifecycle(MESSAGE_CMD_REMOVE_MANIFEST);
-        (new DockerCmdLineUtil(project, CMD_LINE_DOCKER, CMD_LINE_MANIFEST, CMD_LINE_RM, versionedImage)).execute();
+        logger.lifecycle(MESSAGE_CMD_REMOVE_MANIFEST);
+        (new DockerCmdLineUtil(logger, CMD_LINE_DOCKER, CMD_LINE_MANIFEST, CMD_LINE_RM, versionedImage)).execute();
     }
     
-    protected static String inspectDockerXImage(Project project, String image) {
+    protected static String inspectDockerXImage(Logger logger, String image) {
 
-        project.getLogger().lifecycle(MESSAGE_CMD_INSPECT_IMAGE);
-        return (new DockerCmdLineUtil(project, CMD_LINE_DOCKER, CMD_LINE_MANIFEST, CMD_LINE_INSPECT, image, CMD_LINE_OPT_VERBOSE)).execute().cmdOutput;
+        logger.lifecycle(MESSAGE_CMD_INSPECT_IMAGE);
+        return (new DockerCmdLineUtil(logger, CMD_LINE_DOCKER, CMD_LINE_MANIFEST, CMD_LINE_INSPECT, image, CMD_LINE_OPT_VERBOSE)).execute().cmdOutput;
+    }
+    
+    protected static boolean isContainerdImageStore(Logger logger) {
+        
+        logger.lifecycle(MESSAGE_CMD_INSPECT_STORE);
+        
+        try {
+            String driverStatus = (new DockerCmdLineUtil(logger, CMD_LINE_DOCKER, CMD_LINE_INFO, CMD_LINE_OPT_FORMAT, DOCKER_INFO_DRIVER_STATUS)).execute().cmdOutput;
+            return (driverStatus != null) && driverStatus.contains(DOCKER_CONTAINERD_STORE);
+        } catch (Exception ex) {
+            return false; // Unknown image store, assume the classic one
+        }
     }
     
-    protected static String inspectDockerXListManifest(Project project, String image) {
+    protected static String inspectDockerXListManifest(Logger logger, String image) {
         
-        project.getLogger().lifecycle(MESSAGE_CMD_INSPECT_MANIFEST);
-        return (new DockerCmdLineUtil(project, CMD_LINE_DOCKER, CMD_LINE_BUILDX, CMD_LINE_IMAGETOOLS, CMD_LINE_INSPECT, image)).execute().cmdOutput;
+        logger.lifecycle(MESSAGE_CMD_INSPECT_MANIFEST);
+        return (new DockerCmdLineUtil(logger, CMD_LINE_DOCKER, CMD_LINE_BUILDX, CMD_LINE_IMAGETOOLS, CMD_LINE_INSPECT, image)).execute().cmdOutput;
     }
     
-    protected static void buildDockerXImage(Project project, DirectoryProperty workingDir, List<String> dockerXArgs) {
+    protected static void inspectDockerXListManifest(Logger logger, String image, Consumer<String> lineConsumer) {
         
-        project.getLogger().lifecycle(MESSAGE_CMD_BUILD_IMAGE);
-
-        List<String> dockerCommand = new ArrayList<String>(dockerXArgs);
-        dockerCommand.add(0, CMD_LINE_DOCKER);
-        dockerCommand.add(1, CMD_LINE_BUILDX);
-        dockerCommand.add(2, CMD_LINE_BUILD);
-        dockerCommand.add(".");
+        logger.lifecycle(MESSAGE_CMD_INSPECT_MANIFEST);
         
-        (new DockerCmdLineUtil( project, dockerCommand.toArray(new String[0]) )).execute(workingDir.get().getAsFile(), false);
+        // Only stdout is handed to the parser
+        DockerCmdLineUtil inspectManifest = new DockerCmdLineUtil(logger, CMD_LINE_DOCKER, CMD_LINE_BUILDX, CMD_LINE_IMAGETOOLS, CMD_LINE_INSPECT, image);
+        inspectManifest.setMergeErrorStream(false);
+        inspectManifest.execute(null, new DockerXCmdLineUtil.LineSink(lineConsumer));
     }
+    
+    protected static String buildDockerXImage(Logger logger, DirectoryProperty workingDir, @Nullable File buildContext, List<String> dockerXArgs) throws IOException {
+        
+        logger.lifecycle(MESSAGE_CMD_BUILD_IMAGE);
+        
+        // BuildKit records the digest of the image it produced in the metadata file
+        File metadataFile = File.createTempFile(TASK_GROUP, ".json");
 
-    protected static String pushDockerXImage(Project project, String image) {
+        try {
+            
+            List<String> dockerCommand = new ArrayList<String>(dockerXArgs);
+            dockerCommand.add(0, CMD_LINE_DOCKER);
+            dockerCommand.add(1, CMD_LINE_BUILDX);
+            dockerCommand.add(2, CMD_LINE_BUILD);
+            dockerCommand.add(CMD_LINE_OPT_METADATA_FILE);
+            dockerCommand.add(metadataFile.getPath());
+            dockerCommand.add((buildContext != null) ? buildContext.getPath() : ".");
+            
+            (new DockerCmdLineUtil( logger, dockerCommand.toArray(new String[0]) )).execute(workingDir.get().getAsFile(), false);
+            
+            if (metadataFile.length() == 0) return null; // Nothing to do...
+            return DockerXManifestUtil.getObjectMapper().readTree(metadataFile).path(METADATA_IMAGE_DIGEST).asText(null);
+            
+        } finally {
+            metadataFile.delete();
+        }
+    }
+
+    protected static String pushDockerXImage(Logger logger, String image) {
 
-        project.getLogger().lifecycle(MESSAGE_CMD_PUSH_IMAGE);
-        return (new DockerCmdLineUtil(project, CMD_LINE_DOCKER, CMD_LINE_PUSH, CMD_LINE_OPT_ALL_TAGS, image)).execute().cmdOutput;
+        logger.lifecycle(MESSAGE_CMD_PUSH_IMAGE);
+        return (new DockerCmdLineUtil(logger, CMD_LINE_DOCKER, CMD_LINE_PUSH, CMD_LINE_OPT_ALL_TAGS, image)).execute().cmdOutput;
     }
     
-    protected static void createDockerXListManifest(Project project, String versionedImage, List<String> taggedImages) {
+    protected static void createDockerXListManifest(Logger logger, String versionedImage, List<String> taggedImages) {
         
-        project.getLogger().lifecycle(MESSAGE_CMD_CREATE_MANIFEST);
+        logger.lifecycle(MESSAGE_CMD_CREATE_MANIFEST);
 
         List<String> dockerCommand = new ArrayList<String>(taggedImages);
         dockerCommand.add(0, CMD_LINE_DOCKER);
@@ -279,14 +503,14 @@ public class DockerXDockerUtil {
         dockerCommand.add(3, CMD_LINE_OPT_AMEND);
         dockerCommand.add(4, versionedImage);
         
-        (new DockerCmdLineUtil( project, dockerCommand.toArray(new String[0]) )).execute();
+        (new DockerCmdLineUtil( logger, dockerCommand.toArray(new String[0]) )).execute();
     }
     
-    protected static Map<String, Boolean> getDockerXBuilders(Project project) {
+    protected static Map<String, Boolean> getDockerXBuilders(Logger logger) {
         
-        project.getLogger().lifecycle(MESSAGE_CMD_GET_BUILDERS);
+        logger.lifecycle(MESSAGE_CMD_GET_BUILDERS);
 
-        DockerXCmdLineUtil.ProcessResult processResult = (new DockerCmdLineUtil(project, CMD_LINE_DOCKER, CMD_LINE_BUILDX, CMD_LINE_LS)).execute();
+        DockerXCmdLineUtil.ProcessResult processResult = (new DockerCmdLineUtil(logger, CMD_LINE_DOCKER, CMD_LINE_BUILDX, CMD_LINE_LS)).execute();
         Map<String, Boolean> builderList = DockerCmdLineUtil.processBuilderList(processResult);
         
         if (builderList == null) {
@@ -302,20 +526,20 @@ public class DockerXDockerUtil {
         
         /// Constructor
         
-        public DockerCmdLineUtil(Project project, String... args) { super( project, args ); }
+        public DockerCmdLineUtil(Logger logger, String... args)   { super( logger, args );  }
         
         ///
         
         @Override
-        public ProcessResult execute(@Nullable File workingDir, boolean returnOutput) {
+        public ProcessResult execute(@Nullable File workingDir, OutputSink... outputSinks) {
             
             ProcessResult processResult = null;
             
             try {
                 
-                processResult = super.execute(workingDir, returnOutput);
+                processResult = super.execute(workingDir, outputSinks);
                 if (processResult.exitCode != 0) {
-                    DockerXVerifyUtil.stopGradleException(processResult.cmdOutput);
+                    DockerXVerifyUtil.stopGradleException(processResult.getFailureOutput());
                 }
                 
             } catch (Exception ex) {
@@ -325,6 +549,9 @@ public class DockerXDockerUtil {
             return processResult;
         }
         
+        @Override
+        public ProcessResult execute(@Nullable File workingDir, boolean returnOutput) { return execute(workingDir, defaultSinks(returnOutput)); }
+        
         public ProcessResult execute() { return execute(null, true); }
         
         ///
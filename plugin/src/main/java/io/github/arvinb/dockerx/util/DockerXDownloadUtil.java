@@ -19,17 +19,114 @@
 
 package io.github.arvinb.dockerx.util;
 
+import java.io.*;
+import java.net.*;
+import java.net.http.*;
+import java.nio.file.*;
+import java.security.cert.*;
+import java.time.*;
 import java.util.*;
+import java.util.concurrent.*;
+import javax.net.ssl.*;
 import javax.annotation.*;
 import org.gradle.api.*;
+import org.gradle.api.logging.*;
 import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.service.*;
+import static io.github.arvinb.dockerx.DockerXConstants.*;
 
 public class DockerXDownloadUtil {
     
-    public static void downloadArtifacts(Project project, List<DockerXDownloadConfig.DownloadItem> downloadItems, @Nullable String username, @Nullable String password, boolean overwrite, boolean identityToken) {
+    private static HttpClient httpClient;
+    private static HttpClient trustAllHttpClient;
+    
+    public static void downloadArtifacts(Logger logger, DockerXSchedulerService scheduler, List<DockerXDownloadConfig.DownloadItem> downloadItems, @Nullable String username, @Nullable String password, boolean overwrite, boolean identityToken, boolean acceptAnyCertificate, int parallelism) {
+        
+        // Downloads are independent, run them on the shared scheduler bounded by the task parallelism
+        Semaphore downloadPermits = new Semaphore(Math.max(1, parallelism));
+        List<Callable<Void>> downloads = new ArrayList<Callable<Void>>();
+        
+        downloadItems.stream().forEach( downloadItem -> downloads.add( () -> {
+            downloadItem.execute(logger, username, password, overwrite, identityToken, acceptAnyCertificate);
+            return null;
+        }));
+        
+        scheduler.invokeAll(downloads, downloadPermits);
+    }
+    
+    public static void downloadFile(URL downloadURL, File downloadFile, @Nullable String authorization, boolean acceptAnyCertificate) throws Exception {
+        
+        downloadFile.getAbsoluteFile().getParentFile().mkdirs();
+        Path tempFile = Files.createTempFile(downloadFile.getAbsoluteFile().getParentFile().toPath(), downloadFile.getName(), ".download");
+        
+        try {
+            
+            if (downloadURL.getProtocol().equals("file")) {
+                
+                Files.copy(Paths.get(downloadURL.toURI()), tempFile, StandardCopyOption.REPLACE_EXISTING);
+                
+            } else {
+                
+                HttpRequest.Builder request = HttpRequest.newBuilder(downloadURL.toURI())
+                                                         .timeout(Duration.ofSeconds(DOWNLOAD_REQUEST_TIMEOUT))
+                                                         .GET();
+                if (authorization != null) request.header(AUTHORIZATION, authorization);
+                
+                // The artifact streams straight to disk, the request timeout only covers the response headers so the transfer is bounded too
+                CompletableFuture<HttpResponse<Path>> transfer = getHttpClient(acceptAnyCertificate).sendAsync(request.build(), HttpResponse.BodyHandlers.ofFile(tempFile));
+                HttpResponse<Path> response;
+                
+                try {
+                    response = transfer.get(DOWNLOAD_TRANSFER_TIMEOUT, TimeUnit.MINUTES);
+                } catch (TimeoutException ex) {
+                    transfer.cancel(true);
+                    throw new IOException(java.text.MessageFormat.format(MESSAGE_DOWNLOAD_TIMEOUT, DOWNLOAD_TRANSFER_TIMEOUT, downloadURL));
+                } catch (ExecutionException ex) {
+                    throw (ex.getCause() instanceof Exception) ? (Exception) ex.getCause() : ex;
+                }
+                
+                if ((response.statusCode() < 200) || (response.statusCode() > 299))
+                    throw new IOException(MESSAGE_DOWNLOAD_STATUS + downloadURL + " (" + response.statusCode() + ")");
+            }
+            
+            Files.move(tempFile, downloadFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+    
+    ///
+    
+    protected static synchronized HttpClient getHttpClient(boolean acceptAnyCertificate) throws Exception {
+        
+        if (!acceptAnyCertificate) {
+            
+            if (httpClient == null)
+                httpClient = newHttpClientBuilder().build();
+            return httpClient;
+        }
+        
+        if (trustAllHttpClient != null) return trustAllHttpClient;
+        
+        // Only used when acceptAnyCertificate is set, for download sites with self-signed certificates
+        TrustManager[] trustAll = new TrustManager[] { new X509TrustManager() {
+            public void checkClientTrusted(X509Certificate[] chain, String authType) { }
+            public void checkServerTrusted(X509Certificate[] chain, String authType) { }
+            public X509Certificate[] getAcceptedIssuers() { return new X509Certificate[0]; }
+        }};
+        
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, trustAll, new java.security.SecureRandom());
+        
+        trustAllHttpClient = newHttpClientBuilder().sslContext(sslContext).build();
+        return trustAllHttpClient;
+    }
+    
+    private static HttpClient.Builder newHttpClientBuilder() {
         
-        downloadItems.stream().forEach( downloadItem -> {
-            downloadItem.execute(project, username, password, overwrite, identityToken);
-        });
+        return HttpClient.newBuilder()
+                         .followRedirects(HttpClient.Redirect.NORMAL)
+                         .connectTimeout(Duration.ofSeconds(REGISTRY_CONNECT_TIMEOUT));
     }
 }
@@ -23,26 +23,27 @@ import java.io.*;
 import java.util.*;
 import javax.annotation.*;
 import org.gradle.api.*;
+import org.gradle.api.logging.*;
 import io.github.arvinb.dockerx.config.*;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
 public class DockerXExecuteUtil {
     
-    public static void executeActions(Project project, List<DockerXExecuteConfig.ActionItem> actionItems) {
+    public static void executeActions(Logger logger, List<DockerXExecuteConfig.ActionItem> actionItems) {
         
         actionItems.stream().forEach( actionItem -> {
-            execAction(project, actionItem.getActionObj().get().getAsFile(), actionItem.getActionArgs().get(), actionItem.getActionWorkDir().get().getAsFile());
+            execAction(logger, actionItem.getActionObj(), actionItem.getActionArgs(), actionItem.getActionWorkDir());
         });
     }
     
     ///
     
-    protected static void execAction(Project project, File actionObj, List<String> actionArgs, File workingDir) {
+    protected static void execAction(Logger logger, File actionObj, List<String> actionArgs, File workingDir) {
         
         List<String> actionCommand = new ArrayList<String>(actionArgs);
         actionCommand.add(0, actionObj.toString());
         
-        (new ExecuteCmdLineUtil( project, actionCommand.toArray(new String[0]) )).execute(workingDir, true);
+        (new ExecuteCmdLineUtil( logger, actionCommand.toArray(new String[0]) )).execute(workingDir, true);
     }
     
     ///
@@ -51,20 +52,20 @@ public class DockerXExecuteUtil {
         
         /// Constructor
         
-        public ExecuteCmdLineUtil(Project project, String... args) { super( project, args ); }
+        public ExecuteCmdLineUtil(Logger logger, String... args) { super( logger, args ); }
         
         ///
         
         @Override
-        public ProcessResult execute(@Nullable File workingDir, boolean returnOutput) {
+        public ProcessResult execute(@Nullable File workingDir, OutputSink... outputSinks) {
             
             ProcessResult processResult = null;
             
             try {
                 
-                processResult = super.execute(workingDir, returnOutput);
+                processResult = super.execute(workingDir, outputSinks);
                 if (processResult.exitCode != 0) {
-                    DockerXVerifyUtil.stopGradleException(processResult.cmdOutput);
+                    DockerXVerifyUtil.stopGradleException(processResult.getFailureOutput());
                 }
                 
             } catch (Exception ex) {
@@ -74,6 +75,9 @@ public class DockerXExecuteUtil {
             return processResult;
         }
         
+        @Override
+        public ProcessResult execute(@Nullable File workingDir, boolean returnOutput) { return execute(workingDir, defaultSinks(returnOutput)); }
+        
         public ProcessResult execute() { return execute(null, true); }
     }
 }
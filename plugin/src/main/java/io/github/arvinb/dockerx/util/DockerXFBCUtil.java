@@ -0,0 +1,498 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+package io.github.arvinb.dockerx.util;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.text.*;
+import java.util.*;
+import javax.annotation.*;
+import org.gradle.api.logging.*;
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.core.util.*;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.dataformat.yaml.*;
+import static io.github.arvinb.dockerx.DockerXConstants.*;
+
+/**
+ * Generates file-based catalogs (olm.package, olm.channel, olm.bundle) in process, without the opm binary.
+ */
+public class DockerXFBCUtil {
+
+    private static final ObjectMapper YAML_MAPPER = new ObjectMapper(new YAMLFactory().configure(YAMLGenerator.Feature.MINIMIZE_QUOTES, true));
+
+    ///
+
+    public static void generateCatalog(Logger logger,
+                                       File catalogFile,
+                                       String format,
+                                       FBCPackage olmPackage,
+                                       List<String> channelNames,
+                                       String mode,
+                                       List<File> blobFiles) {
+
+        // Without a package no blob would match, an empty catalog must not be cached as a result
+        if (olmPackage.getName() == null || olmPackage.getName().isEmpty())
+            DockerXVerifyUtil.stopGradleException(MESSAGE_FBC_PACKAGE);
+
+        try {
+
+            // Files are read in path order so the same inputs always produce the same catalog
+            List<File> sortedFiles = new ArrayList<File>(new TreeSet<File>(blobFiles));
+            sortedFiles.removeIf( blobFile -> !blobFile.isFile() );
+
+            // First pass only keeps the bundle metadata, the bundle blobs themselves are streamed in the second pass
+            Map<String, FBCBundle> bundles = new LinkedHashMap<String, FBCBundle>();
+            Map<String, FBCChannel> channels = new TreeMap<String, FBCChannel>();
+
+            for (File blobFile : sortedFiles) {
+                forEachBlob(blobFile, olmPackage.getName(), blob -> {
+
+                    String schema = blob.path(FBC_SCHEMA).asText();
+                    if ( schema.equals(OLM_BUNDLE) )
+                        bundles.putIfAbsent(blob.path(FBC_NAME).asText(), FBCBundle.fromBlob(blob));
+                    else if ( schema.equals(OLM_CHANNEL) )
+                        channels.computeIfAbsent(blob.path(FBC_NAME).asText(), name -> new FBCChannel(olmPackage.getName(), name)).addEntries(blob);
+                });
+            }
+
+            // Channel entries are built incrementally, oldest bundle first
+            List<FBCBundle> sortedBundles = new ArrayList<FBCBundle>(bundles.values());
+            Collections.sort(sortedBundles);
+
+            // Existing entries take the versions of their bundles, so new bundles are linked in version order
+            channels.values().forEach( channel -> channel.resolveVersions(bundles) );
+
+            for (String channelName : channelNames) {
+                FBCChannel channel = channels.computeIfAbsent(channelName, name -> new FBCChannel(olmPackage.getName(), name));
+                sortedBundles.forEach( bundle -> channel.addBundle(bundle, mode) );
+            }
+
+            if ( olmPackage.getDefaultChannel() == null && !channelNames.isEmpty() )
+                olmPackage.setDefaultChannel(channelNames.get(0));
+
+            try ( FBCWriter writer = new FBCWriter(catalogFile, format) ) {
+
+                writer.writePackage(olmPackage);
+
+                for (FBCChannel channel : channels.values())
+                    writer.writeChannel(channel);
+
+                Set<String> writtenBundles = new HashSet<String>();
+                for (File blobFile : sortedFiles) {
+                    forEachBlob(blobFile, olmPackage.getName(), blob -> {
+                        if ( blob.path(FBC_SCHEMA).asText().equals(OLM_BUNDLE) && writtenBundles.add(blob.path(FBC_NAME).asText()) )
+                            writer.writeBlob(blob);
+                    });
+                }
+            }
+
+            logger.lifecycle(MessageFormat.format(MESSAGE_FBC_CATALOG, bundles.size(), channels.size(), catalogFile.getPath()));
+
+        } catch (Exception ex) {
+            DockerXVerifyUtil.stopGradleException(MESSAGE_FBC_EXEC + ex.getMessage());
+        }
+    }
+
+    public static void generatePackage(File packageFile, String format, FBCPackage olmPackage) {
+
+        try ( FBCWriter writer = new FBCWriter(packageFile, format) ) {
+            writer.writePackage(olmPackage);
+
+        } catch (Exception ex) {
+            DockerXVerifyUtil.stopGradleException(MESSAGE_FBC_EXEC + ex.getMessage());
+        }
+    }
+
+    ///
+
+    protected static void forEachBlob(File blobFile, String packageName, BlobConsumer blobConsumer) throws IOException {
+
+        // Rendered files hold one or more blobs, YAML documents or concatenated JSON objects
+        ObjectMapper mapper = blobFile.getName().endsWith("." + FORMAT_JSON) ? DockerXManifestUtil.getObjectMapper() : YAML_MAPPER;
+
+        try ( MappingIterator<JsonNode> blobs = mapper.readerFor(JsonNode.class).readValues(blobFile) ) {
+
+            while (blobs.hasNextValue()) {
+
+                JsonNode blob = blobs.nextValue();
+                if ( blob != null && blob.isObject() && packageName.equals(blob.path(FBC_PACKAGE).asText()) )
+                    blobConsumer.accept(blob);
+            }
+        }
+    }
+
+    protected static ObjectMapper getObjectMapper(String format) {
+        return FORMAT_JSON.equals(format) ? DockerXManifestUtil.getObjectMapper() : YAML_MAPPER;
+    }
+
+    protected static int compareVersion(String versionA, String versionB) {
+
+        // Semantic versions, the build metadata is ignored and a pre-release sorts before its release
+        String[] firstVersion = versionA.split("\\+", 2)[0].split("-", 2);
+        String[] secondVersion = versionB.split("\\+", 2)[0].split("-", 2);
+
+        int versionComparison = compareIdentifiers(firstVersion[0].split("\\."), secondVersion[0].split("\\."));
+        if ( versionComparison != 0 ) return versionComparison;
+
+        if ( firstVersion.length == 1 || secondVersion.length == 1 )
+            return secondVersion.length - firstVersion.length;
+
+        return compareIdentifiers(firstVersion[1].split("\\."), secondVersion[1].split("\\."));
+    }
+
+    protected static int compareIdentifiers(String[] identifiersA, String[] identifiersB) {
+
+        for (int index = 0; index < Math.max(identifiersA.length, identifiersB.length); index++) {
+
+            String identifierA = index < identifiersA.length ? identifiersA[index] : "0";
+            String identifierB = index < identifiersB.length ? identifiersB[index] : "0";
+
+            int identifierComparison = (identifierA.matches("\\d+") && identifierB.matches("\\d+"))
+                                     ? new java.math.BigInteger(identifierA).compareTo(new java.math.BigInteger(identifierB))
+                                     : identifierA.compareTo(identifierB);
+
+            if ( identifierComparison != 0 ) return identifierComparison;
+        }
+        return 0;
+    }
+
+    ///
+
+    protected interface BlobConsumer {
+        void accept(JsonNode blob) throws IOException;
+    }
+
+    /**
+     * Internal Class to hold an olm.package blob
+     */
+    public static class FBCPackage {
+
+        private final String name;
+        private String defaultChannel;
+        private String description;
+        private String iconData;
+        private String iconMediaType;
+
+        /// Constructor
+
+        public FBCPackage(String name, @Nullable String defaultChannel) {
+            this.name = name;
+            this.defaultChannel = defaultChannel;
+        }
+
+        ///
+
+        public static FBCPackage of(String name, @Nullable String defaultChannel, @Nullable File readme, @Nullable File icon) throws IOException {
+
+            FBCPackage olmPackage = new FBCPackage(name, defaultChannel);
+
+            if ( readme != null )
+                olmPackage.description = Files.readString(readme.toPath(), StandardCharsets.UTF_8);
+
+            if ( icon != null ) {
+                String mediaType = Files.probeContentType(icon.toPath());
+                olmPackage.iconData = Base64.getEncoder().encodeToString(Files.readAllBytes(icon.toPath()));
+                olmPackage.iconMediaType = (mediaType != null) ? mediaType : MEDIA_TYPE_SVG;
+            }
+
+            return olmPackage;
+        }
+
+        ///
+
+        public String getName()           { return name;           }
+        public String getDefaultChannel() { return defaultChannel; }
+        public String getDescription()    { return description;    }
+        public String getIconData()       { return iconData;       }
+        public String getIconMediaType()  { return iconMediaType;  }
+
+        public void setDefaultChannel(String defaultChannel) { this.defaultChannel = defaultChannel; }
+    }
+
+    /**
+     * Internal Class to hold an olm.channel blob, entries are kept in the order they were added and linked by version
+     */
+    public static class FBCChannel {
+
+        private final String packageName;
+        private final String name;
+        private final Map<String, FBCChannelEntry> entries = new LinkedHashMap<String, FBCChannelEntry>();
+        private FBCChannelEntry head;
+
+        /// Constructor
+
+        public FBCChannel(String packageName, String name) {
+            this.packageName = packageName;
+            this.name = name;
+        }
+
+        ///
+
+        public void addEntries(JsonNode channelBlob) {
+
+            // Entries of an existing channel are kept as is, new bundles are linked into them by version
+            for (JsonNode entryNode : channelBlob.path(FBC_ENTRIES)) {
+
+                FBCChannelEntry entry = new FBCChannelEntry(entryNode.path(FBC_NAME).asText(), null);
+                if ( entryNode.hasNonNull(FBC_REPLACES) ) entry.replaces = entryNode.get(FBC_REPLACES).asText();
+                entryNode.path(FBC_SKIPS).forEach( skip -> entry.skips.add(skip.asText()) );
+
+                entries.putIfAbsent(entry.getName(), entry);
+            }
+
+            // The head is the entry no other entry replaces or skips, the last entry when that is ambiguous
+            Set<String> replacedEntries = new HashSet<String>();
+            entries.values().forEach( entry -> {
+                if ( entry.replaces != null ) replacedEntries.add(entry.replaces);
+                replacedEntries.addAll(entry.skips);
+            });
+
+            List<FBCChannelEntry> heads = new ArrayList<FBCChannelEntry>();
+            entries.values().stream().filter( entry -> !replacedEntries.contains(entry.getName()) ).forEach(heads::add);
+
+            List<FBCChannelEntry> allEntries = new ArrayList<FBCChannelEntry>(entries.values());
+            head = (heads.size() == 1) ? heads.get(0) : (allEntries.isEmpty() ? null : allEntries.get(allEntries.size() - 1));
+        }
+
+        public void resolveVersions(Map<String, FBCBundle> bundles) {
+
+            for (FBCChannelEntry entry : entries.values())
+                if ( entry.version == null && bundles.containsKey(entry.getName()) ) entry.version = bundles.get(entry.getName()).getVersion();
+        }
+
+        public void addBundle(FBCBundle bundle, String mode) {
+
+            if ( entries.containsKey(bundle.getName()) ) return; // Nothing to do...
+
+            FBCChannelEntry entry = new FBCChannelEntry(bundle.getName(), bundle.getVersion());
+
+            // A bundle older than a versioned entry is a backport, it links to the closest older entry instead of the head
+            FBCChannelEntry successor = null;
+            FBCChannelEntry predecessor = null;
+
+            for (FBCChannelEntry channelEntry : entries.values()) {
+
+                if ( channelEntry.getVersion() == null ) continue;
+                int versionComparison = compareVersion(channelEntry.getVersion(), bundle.getVersion());
+
+                if ( versionComparison > 0 && (successor == null || compareVersion(channelEntry.getVersion(), successor.getVersion()) < 0) )
+                    successor = channelEntry;
+                else if ( versionComparison < 0 && (predecessor == null || compareVersion(channelEntry.getVersion(), predecessor.getVersion()) > 0) )
+                    predecessor = channelEntry;
+            }
+
+            if ( successor == null ) predecessor = head;
+
+            if ( predecessor != null ) {
+
+                if ( MODE_SEMVER_SKIPPATCH.equals(mode) && predecessor.getVersion() != null && isSameMinor(predecessor.getVersion(), bundle.getVersion()) ) {
+
+                    // A newer patch skips the older patches of its minor version and replaces what they replaced
+                    entry.replaces = predecessor.replaces;
+                    entry.skips.addAll(predecessor.skips);
+                    entry.skips.add(predecessor.getName());
+
+                } else {
+                    entry.replaces = predecessor.getName();
+                }
+            }
+
+            entries.put(entry.getName(), entry);
+
+            // The newer entry skips the backport, so the channel keeps a single head
+            if ( successor != null ) successor.skips.add(entry.getName());
+            else head = entry;
+        }
+
+        protected static boolean isSameMinor(String versionA, String versionB) {
+
+            String[] firstVersion = versionA.split("[-+]", 2)[0].split("\\.");
+            String[] secondVersion = versionB.split("[-+]", 2)[0].split("\\.");
+            return compareIdentifiers(Arrays.copyOf(firstVersion, 2), Arrays.copyOf(secondVersion, 2)) == 0;
+        }
+
+        ///
+
+        public String getPackageName() { return packageName; }
+        public String getName()        { return name;        }
+
+        public Collection<FBCChannelEntry> getEntries() { return entries.values(); }
+    }
+
+    /**
+     * Internal Class to hold an entry of an olm.channel blob
+     */
+    public static class FBCChannelEntry {
+
+        private final String name;
+        private String version;
+        private String replaces;
+        private final List<String> skips = new ArrayList<String>();
+
+        /// Constructor
+
+        public FBCChannelEntry(String name, @Nullable String version) {
+            this.name = name;
+            this.version = version;
+        }
+
+        ///
+
+        public String getName()        { return name;     }
+        public String getVersion()     { return version;  }
+        public String getReplaces()    { return replaces; }
+        public List<String> getSkips() { return skips;    }
+    }
+
+    /**
+     * Internal Class to hold the metadata of an olm.bundle blob
+     */
+    public static class FBCBundle implements Comparable<FBCBundle> {
+
+        private final String name;
+        private final String version;
+
+        /// Constructor
+
+        public FBCBundle(String name, String version) {
+            this.name = name;
+            this.version = version;
+        }
+
+        ///
+
+        public static FBCBundle fromBlob(JsonNode bundleBlob) {
+
+            // The bundle version is carried by its olm.package property
+            String version = DEFAULT_BUNDLE_VERSION;
+            for (JsonNode property : bundleBlob.path(FBC_PROPERTIES)) {
+                if ( OLM_PACKAGE.equals(property.path(FBC_TYPE).asText()) && property.path(FBC_VALUE).hasNonNull(FBC_VERSION) )
+                    version = property.path(FBC_VALUE).get(FBC_VERSION).asText();
+            }
+
+            return new FBCBundle(bundleBlob.path(FBC_NAME).asText(), version);
+        }
+
+        ///
+
+        public String getName()    { return name;    }
+        public String getVersion() { return version; }
+
+        @Override
+        public int compareTo(FBCBundle bundle) {
+            int versionComparison = compareVersion(this.version, bundle.version);
+            return (versionComparison != 0) ? versionComparison : this.name.compareTo(bundle.name);
+        }
+
+        @Override
+        public String toString() {
+            return this.name + ", " + this.version;
+        }
+    }
+
+    /**
+     * Internal Class to stream blobs into a catalog file, YAML documents or JSON objects
+     */
+    public static class FBCWriter implements Closeable {
+
+        private final ObjectMapper mapper;
+        private final JsonGenerator generator;
+
+        /// Constructor
+
+        public FBCWriter(File catalogFile, String format) throws IOException {
+
+            catalogFile.getAbsoluteFile().getParentFile().mkdirs();
+
+            this.mapper = getObjectMapper(format);
+            this.generator = mapper.getFactory().createGenerator(Files.newBufferedWriter(catalogFile.toPath(), StandardCharsets.UTF_8));
+
+            // JSON blobs are pretty printed one after another, the way opm writes them
+            if ( FORMAT_JSON.equals(format) )
+                generator.setPrettyPrinter(new DefaultPrettyPrinter(Separators.createDefaultInstance().withRootSeparator(NEW_LINE)));
+        }
+
+        ///
+
+        public void writePackage(FBCPackage olmPackage) throws IOException {
+
+            generator.writeStartObject();
+            generator.writeStringField(FBC_SCHEMA, OLM_PACKAGE);
+            generator.writeStringField(FBC_NAME, olmPackage.getName());
+
+            if ( olmPackage.getDefaultChannel() != null )
+                generator.writeStringField(FBC_DEFAULT_CHANNEL, olmPackage.getDefaultChannel());
+
+            if ( olmPackage.getIconData() != null ) {
+                generator.writeObjectFieldStart(FBC_ICON);
+                generator.writeStringField(FBC_ICON_DATA, olmPackage.getIconData());
+                generator.writeStringField(FBC_ICON_MEDIATYPE, olmPackage.getIconMediaType());
+                generator.writeEndObject();
+            }
+
+            if ( olmPackage.getDescription() != null )
+                generator.writeStringField(FBC_DESCRIPTION, olmPackage.getDescription());
+
+            generator.writeEndObject();
+        }
+
+        public void writeChannel(FBCChannel channel) throws IOException {
+
+            generator.writeStartObject();
+            generator.writeStringField(FBC_SCHEMA, OLM_CHANNEL);
+            generator.writeStringField(FBC_PACKAGE, channel.getPackageName());
+            generator.writeStringField(FBC_NAME, channel.getName());
+            generator.writeArrayFieldStart(FBC_ENTRIES);
+
+            for (FBCChannelEntry entry : channel.getEntries()) {
+
+                generator.writeStartObject();
+                generator.writeStringField(FBC_NAME, entry.getName());
+
+                if ( entry.getReplaces() != null )
+                    generator.writeStringField(FBC_REPLACES, entry.getReplaces());
+
+                if ( !entry.getSkips().isEmpty() ) {
+                    generator.writeArrayFieldStart(FBC_SKIPS);
+                    for (String skip : entry.getSkips()) generator.writeString(skip);
+                    generator.writeEndArray();
+                }
+
+                generator.writeEndObject();
+            }
+
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+
+        public void writeBlob(JsonNode blob) throws IOException {
+            mapper.writeTree(generator, blob);
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            if ( generator.getPrettyPrinter() != null ) generator.writeRaw(NEW_LINE);
+            generator.close();
+        }
+    }
+}
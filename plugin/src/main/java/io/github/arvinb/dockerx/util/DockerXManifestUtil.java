@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+package io.github.arvinb.dockerx.util;
+
+import java.util.function.*;
+import com.fasterxml.jackson.databind.*;
+import io.github.arvinb.dockerx.config.*;
+import static io.github.arvinb.dockerx.DockerXConstants.*;
+
+public class DockerXManifestUtil {
+
+    // ObjectMapper is thread safe once configured, a single instance serves every parse
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    public static ObjectMapper getObjectMapper() {
+        return OBJECT_MAPPER;
+    }
+
+    public static JsonNode parseJson(String json) {
+
+        if (json == null || json.isBlank()) return null; // Nothing to do...
+
+        try {
+            return OBJECT_MAPPER.readTree(json);
+
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    ///
+
+    public static DockerXDigestConfig.ManifestItem parseManifest(String image, JsonNode inspectNode) {
+
+        // Single image manifest as printed by docker manifest inspect -v
+        JsonNode descriptor = inspectNode.path(DOCKERX_DESCRIPTOR);
+
+        DockerXDigestConfig.ManifestItem manifestItem = new DockerXDigestConfig.ManifestItem(image);
+        manifestItem.setDigest(descriptor.path(MANIFEST_DIGEST).asText(EMPTY_STRING));
+        manifestItem.setMediaType(descriptor.path(MANIFEST_MEDIA_TYPE).asText(EMPTY_STRING));
+        return manifestItem;
+    }
+
+    public static DockerXDigestConfig.ManifestItem parseIndex(String image, String digest, String mediaType, JsonNode indexNode) {
+
+        // Image index as served by the registry, every entry maps a platform to its digest
+        DockerXDigestConfig.ManifestItem manifestItem = new DockerXDigestConfig.ManifestItem(image);
+        manifestItem.setDigest(digest);
+        manifestItem.setMediaType(mediaType);
+        manifestItem.setListManifest(true);
+
+        indexNode.path(MANIFEST_MANIFESTS).forEach( manifest -> {
+
+            DockerXDockerConfig.PlatformItem platformItem = DockerXDockerConfig.PlatformItem.fromString(getPlatform(manifest.path(MANIFEST_PLATFORM)));
+            if (platformItem != null)
+                manifestItem.getImageDigests().put(manifest.path(MANIFEST_DIGEST).asText(), platformItem);
+        });
+
+        return manifestItem;
+    }
+
+    public static String getPlatform(JsonNode platform) {
+
+        StringBuilder platformString = new StringBuilder(platform.path(MANIFEST_OS).asText()).append("/").append(platform.path(MANIFEST_ARCHITECTURE).asText());
+        if (platform.hasNonNull(MANIFEST_VARIANT)) platformString.append("/").append(platform.path(MANIFEST_VARIANT).asText());
+        return platformString.toString();
+    }
+
+    ///
+
+    /**
+     * Single pass parser for the output of docker buildx imagetools inspect.
+     * Lines are fed one at a time, every manifest Name is paired with the Platform of the same entry.
+     */
+    public static class ImagetoolsParser implements Consumer<String> {
+
+        private final DockerXDigestConfig.ManifestItem manifestItem;
+
+        private boolean inManifests = false;
+        private String entryDigest = null;
+
+        /// Constructor
+
+        public ImagetoolsParser(String image) {
+            this.manifestItem = new DockerXDigestConfig.ManifestItem(image);
+        }
+
+        ///
+
+        @Override
+        public void accept(String line) {
+
+            int keyEnd = line.indexOf(':');
+            if (keyEnd == -1) return; // Nothing to do...
+
+            boolean indented = !line.isEmpty() && Character.isWhitespace(line.charAt(0));
+            String key = line.substring(0, keyEnd).trim();
+            String value = line.substring(keyEnd + 1).trim();
+
+            if (!indented) {
+
+                // Top level fields describe the index itself, entries follow the Manifests header
+                inManifests = key.equals(IMAGETOOLS_MANIFESTS);
+                if (key.equals(DOCKERX_DIGEST)) manifestItem.setDigest(value);
+                else if (key.equals(IMAGETOOLS_MEDIA_TYPE)) manifestItem.setMediaType(value);
+                return;
+            }
+
+            if (!inManifests) return; // Nothing to do...
+
+            if (key.equals(IMAGETOOLS_NAME)) {
+                int digestIndex = value.lastIndexOf('@');
+                entryDigest = (digestIndex != -1) ? value.substring(digestIndex + 1) : null;
+
+            } else if (key.equals(DOCKERX_PLATFORM) && (entryDigest != null)) {
+
+                // Attestation manifests report an unknown platform and are skipped
+                DockerXDockerConfig.PlatformItem platformItem = DockerXDockerConfig.PlatformItem.fromString(value);
+                if (platformItem != null) manifestItem.getImageDigests().put(entryDigest, platformItem);
+                entryDigest = null;
+            }
+        }
+
+        public DockerXDigestConfig.ManifestItem getManifestItem() {
+
+            manifestItem.setListManifest(!manifestItem.getDigest().isBlank());
+            return manifestItem;
+        }
+    }
+}
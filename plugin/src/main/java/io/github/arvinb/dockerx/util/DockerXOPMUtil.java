@@ -22,21 +22,26 @@ package io.github.arvinb.dockerx.util;
 import java.io.*;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.regex.*;
 import java.util.stream.*;
 import javax.annotation.*;
+import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.node.*;
 import org.gradle.api.*;
+import org.gradle.api.logging.*;
 import org.gradle.api.file.*;
 import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.service.*;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
 public class DockerXOPMUtil extends DockerXDockerUtil {
     
-    public static String getOPMVersion(Project project) {
+    public static String getOPMVersion(Logger logger) {
         
         String opmVersion = EMPTY_STRING;
         
-        DockerXCmdLineUtil.ProcessResult processResult = (new OPMCmdLineUtil(project, CMD_LINE_OPM, CMD_LINE_VERSION)).execute();
+        DockerXCmdLineUtil.ProcessResult processResult = (new OPMCmdLineUtil(logger, CMD_LINE_OPM, CMD_LINE_VERSION)).execute();
         Map<String, String> versionList = OPMCmdLineUtil.processVersionList(processResult);
         
         if ((versionList != null) && (!versionList.isEmpty()))
@@ -45,7 +50,8 @@ public class DockerXOPMUtil extends DockerXDockerUtil {
         return opmVersion;
     }
     
-    public static void buildBundleImage(Project project,
+    public static void buildBundleImage(Logger logger,
+                                        DockerXRegistryService registryService,
                                         List<String> bundleImages,
                                         DirectoryProperty bundleDir,
                                         DirectoryProperty manifestsDir,
@@ -77,18 +83,12 @@ public class DockerXOPMUtil extends DockerXDockerUtil {
             opmArguments.add(CMD_LINE_OPT_IMAGE_BUILDER);
             opmArguments.add(imageBuilder);
             
-            buildOPMBundleImage(project, opmArguments, bundleDir.getAsFile().get());
+            buildOPMBundleImage(logger, opmArguments, bundleDir.getAsFile().get());
             
             // Push Bundle Image
             if (pushFlag) {
-                
-                // Log into registries
-                registryCredentials.forEach( cred -> {
-                    project.getLogger().lifecycle(MessageFormat.format(MESSAGE_DOCKER_LOGIN_REG, cred.getRegistry(), cred.getUsername()));
-                    loginDockerXAuth(project, cred.getUsername().get(), cred.getPassword().get(), cred.getRegistry().get());
-                });
-                
-                pushDockerXImage(project, bundleImages.get(0));
+                registryService.withLogin(logger, registryCredentials, () -> { pushDockerXImage(logger, bundleImages.get(0)); return null; });
+                bundleImages.forEach(registryService::evict);
             }
             
         } catch (Exception ex) {
@@ -96,7 +96,7 @@ public class DockerXOPMUtil extends DockerXDockerUtil {
         }
     }
 
-    public static void initOLMPackage(Project project,
+    public static void initOLMPackage(Logger logger,
                                         DirectoryProperty workingDir,
                                         String outputPrefix,
                                         String format,
@@ -109,42 +109,33 @@ public class DockerXOPMUtil extends DockerXDockerUtil {
         
         try {
 
-            // Init OLM Package
-            List<String> opmArguments = new ArrayList<String>();
-
-            opmArguments.add(packageName);
-            if (defaultChannel != null) { opmArguments.add(CMD_LINE_OPT_CHANNEL_DEF); opmArguments.add(defaultChannel);                      }
-            if (catalogReadme != null)  { opmArguments.add(CMD_LINE_OPT_DESCRIPTION); opmArguments.add(catalogReadme.getAsFile().getPath()); }
-            if (catalogIcon != null)    { opmArguments.add(CMD_LINE_OPT_ICON);        opmArguments.add(catalogIcon.getAsFile().getPath());   }
-            opmArguments.add(CMD_LINE_OPT_OUTPUT);
-            opmArguments.add(format);
+            // The olm.package blob is written in process, opm init is not needed
+            DockerXFBCUtil.FBCPackage olmPackage = DockerXFBCUtil.FBCPackage.of(packageName,
+                                                                                defaultChannel,
+                                                                                (catalogReadme != null) ? catalogReadme.getAsFile() : null,
+                                                                                (catalogIcon != null) ? catalogIcon.getAsFile() : null);
 
-            String outputFile = outputPrefix  + "." + format;
-            saveOPMRender(project, workingDir, CMD_LINE_INIT, opmArguments, outputFile);
+            DockerXFBCUtil.generatePackage(new File(workingDir.get().getAsFile(), outputPrefix + "." + format), format, olmPackage);
             
         } catch (Exception ex) {
             DockerXVerifyUtil.stopGradleException(MESSAGE_OPM_INIT + ex.getMessage());
         }
     }
     
-    public static void addRegistryBundlesDb(Project project, 
+    public static void addRegistryBundlesDb(Logger logger, 
+                                            DockerXRegistryService registryService, 
                                             List<String> bundleImages, 
                                             DirectoryProperty bundleDir, 
                                             String containerTool, 
                                             String mode, 
-                                            List<DockerXCredentialConfig.RegistryCredential> registryCredentials) {
+                                            List<DockerXCredentialConfig.RegistryCredential> registryCredentials, 
+                                            DockerXDigestConfig.ResolveItem resolveItem) {
         
         if (bundleImages.isEmpty() || !bundleDir.isPresent()) return; // Nothing to do...
         
         try {
             
-            // Log into registries
-            registryCredentials.forEach( cred -> {
-                project.getLogger().lifecycle(MessageFormat.format(MESSAGE_DOCKER_LOGIN_REG, cred.getRegistry(), cred.getUsername()));
-                loginDockerXAuth(project, cred.getUsername().get(), cred.getPassword().get(), cred.getRegistry().get());
-            });
-            
-            List<String> digestImages = DockerXDigestUtil.convertImageTagsToDigests(project, bundleImages, registryCredentials);
+            List<String> digestImages = DockerXDigestUtil.convertImageTagsToDigests(logger, registryService, bundleImages, registryCredentials, resolveItem);
             
             // Add Bundles into a Registry db
             List<String> opmArguments = new ArrayList<String>();
@@ -156,49 +147,114 @@ public class DockerXOPMUtil extends DockerXDockerUtil {
             opmArguments.add(CMD_LINE_OPT_MODE);
             opmArguments.add(mode);
             
-            addOPMRegistryBundlesDb(project, opmArguments, bundleDir.getAsFile().get());
+            // The digest resolution above shares the build scoped login, so each registry logs in once
+            registryService.withLogin(logger, registryCredentials, () -> { addOPMRegistryBundlesDb(logger, opmArguments, bundleDir.getAsFile().get()); return null; });
             
         } catch (Exception ex) {
             DockerXVerifyUtil.stopGradleException(MESSAGE_OPM_REGISTRY_ADD + ex.getMessage());
         }
     }
 
-    public static void renderBundleImage(Project project,
+    public static void renderBundleImage(Logger logger,
+                                        DockerXRegistryService registryService,
                                         DirectoryProperty workingDir,
                                         List<String> bundleSources,
                                         String outputPrefix,
                                         String outputFormat,
-                                        List<DockerXCredentialConfig.RegistryCredential> registryCredentials) {
+                                        int parallelism,
+                                        File renderManifest,
+                                        List<DockerXCredentialConfig.RegistryCredential> registryCredentials,
+                                        DockerXDigestConfig.ResolveItem resolveItem) {
         
         if (bundleSources.isEmpty() ) return; // Nothing to do...
         
         try {
-
-            // Log into registries
-            registryCredentials.forEach( cred -> {
-                project.getLogger().lifecycle(MessageFormat.format(MESSAGE_DOCKER_LOGIN_REG, cred.getRegistry(), cred.getUsername()));
-                loginDockerXAuth(project, cred.getUsername().get(), cred.getPassword().get(), cred.getRegistry().get());
-            });
             
-            List<String> opmArguments = new ArrayList<String>();
-
-            // Render Bundle Images
-            bundleSources.stream().forEach( bundleSource -> {
-                opmArguments.add(bundleSource);
-                opmArguments.add(CMD_LINE_OPT_OUTPUT);
-                opmArguments.add(outputFormat);
-                String imageTag = bundleSource.substring(bundleSource.lastIndexOf(":") + 1);
-                String outputFile = outputPrefix + "-" + imageTag + "." + outputFormat;
-                saveOPMRender(project, workingDir, CMD_LINE_RENDER, opmArguments, outputFile);
-                opmArguments.clear();
-            });
+            File workingDirectory = workingDir.get().getAsFile();
+            Map<String, String> bundleRenders = getRenderOutputs(bundleSources, outputPrefix, outputFormat);
+            
+            // Bundles are compared by digest, a moved tag renders again while an unchanged one is skipped
+            DockerXSchedulerService scheduler = registryService.getScheduler();
+            Map<String, String> bundleReferences = resolveBundleReferences(logger, registryService, workingDirectory, new ArrayList<String>(bundleRenders.values()), registryCredentials, resolveItem);
+            JsonNode previousEntries = loadRenderManifest(renderManifest);
+            
+            // Renders are independent, run them on the shared scheduler bounded by the render parallelism
+            Map<String, JsonNode> renderEntries = new ConcurrentHashMap<String, JsonNode>();
+            Semaphore renderPermits = new Semaphore(Math.max(1, parallelism));
+            List<Callable<Void>> renders = new ArrayList<Callable<Void>>();
+            
+            for (Map.Entry<String, String> bundleRender : bundleRenders.entrySet()) {
+                
+                String outputFile = bundleRender.getKey();
+                String bundleSource = bundleRender.getValue();
+                String bundleReference = bundleReferences.get(bundleSource);
+                JsonNode previousEntry = previousEntries.get(outputFile);
+                
+                if ( isRenderCurrent(previousEntry, bundleReference, new File(workingDirectory, outputFile)) ) {
+                    logger.info(MessageFormat.format(MESSAGE_OPM_RENDER_CURRENT, outputFile, bundleReference));
+                    renderEntries.put(outputFile, previousEntry);
+                    continue;
+                }
+                
+                renders.add( () -> {
+                    
+                    // Every render gets its own arguments
+                    List<String> opmArguments = new ArrayList<String>();
+                    opmArguments.add(bundleSource);
+                    opmArguments.add(CMD_LINE_OPT_OUTPUT);
+                    opmArguments.add(outputFormat);
+                    
+                    registryService.withLogin(logger, registryCredentials, () -> { saveOPMRender(logger, workingDir, CMD_LINE_RENDER, opmArguments, outputFile); return null; });
+                    renderEntries.put(outputFile, newRenderEntry(bundleSource, bundleReference, new File(workingDirectory, outputFile)));
+                    return null;
+                });
+            }
+            
+            logger.lifecycle(MessageFormat.format(MESSAGE_OPM_RENDER_SUMMARY, renders.size(), bundleRenders.size()));
+            
+            try {
+                scheduler.invokeAll(renders, renderPermits);
+                
+            } finally {
+                
+                // Completed renders are recorded even when another one failed, the next run only retries the rest
+                storeRenderManifest(renderManifest, renderEntries);
+            }
             
         } catch (Exception ex) {
             DockerXVerifyUtil.stopGradleException(MESSAGE_OPM_RENDER_BUNDLE + ex.getMessage());
         }
     }
     
-    public static void validateBundleImage(Project project, 
+    public static Map<String, String> getRenderOutputs(List<String> bundleSources, String outputPrefix, String outputFormat) {
+        
+        // Key == Output File | Value == Bundle Source (the last source of a tag wins, as before)
+        Map<String, String> bundleRenders = new LinkedHashMap<String, String>();
+        
+        for (String bundleSource : bundleSources) {
+            String imageTag = bundleSource.substring(bundleSource.lastIndexOf(":") + 1);
+            String outputFile = outputPrefix + "-" + imageTag + "." + outputFormat;
+            bundleRenders.remove(outputFile);
+            bundleRenders.put(outputFile, bundleSource);
+        }
+        
+        return bundleRenders;
+    }
+    
+    public static File getLocalBundleSource(File workingDirectory, String bundleSource) {
+        
+        // Bundle sources may also be files, directories or a db relative to the working directory
+        File localSource = new File(bundleSource);
+        if ( !localSource.isAbsolute() ) localSource = new File(workingDirectory, bundleSource);
+        return localSource.exists() ? localSource : null;
+    }
+    
+    public static boolean isImmutableBundleSource(File workingDirectory, String bundleSource) {
+        return bundleSource.contains("@" + DIGEST_SHA256) || getLocalBundleSource(workingDirectory, bundleSource) != null;
+    }
+    
+    public static void validateBundleImage(Logger logger, 
+                                           DockerXRegistryService registryService, 
                                            List<String> bundleImages, 
                                            List<DockerXCredentialConfig.RegistryCredential> registryCredentials) {
         
@@ -206,15 +262,9 @@ public class DockerXOPMUtil extends DockerXDockerUtil {
         
         try {
             
-            // Log into registries
-            registryCredentials.forEach( cred -> {
-                project.getLogger().lifecycle(MessageFormat.format(MESSAGE_DOCKER_LOGIN_REG, cred.getRegistry(), cred.getUsername()));
-                loginDockerXAuth(project, cred.getUsername().get(), cred.getPassword().get(), cred.getRegistry().get());
-            });
-            
-            bundleImages.stream().forEach( bundleImage -> {
-                validateOPMBundleImage(project, bundleImage);
-            });
+            for (String bundleImage : bundleImages) {
+                registryService.withLogin(logger, registryCredentials, () -> { validateOPMBundleImage(logger, bundleImage); return null; });
+            }
             
         } catch (Exception ex) {
             DockerXVerifyUtil.stopGradleException(MESSAGE_OPM_VALIDATE + ex.getMessage());
@@ -223,7 +273,7 @@ public class DockerXOPMUtil extends DockerXDockerUtil {
     
     ///
     
-    protected static void buildOPMBundleImage(Project project, List<String> opmArgs, File workingDir) {
+    protected static void buildOPMBundleImage(Logger logger, List<String> opmArgs, File workingDir) {
         
         List<String> opmCommand = new ArrayList<String>(opmArgs);
         opmCommand.add(0, CMD_LINE_OPM);
@@ -231,66 +281,151 @@ public class DockerXOPMUtil extends DockerXDockerUtil {
         opmCommand.add(2, CMD_LINE_BUNDLE);
         opmCommand.add(3, CMD_LINE_BUILD);
         
-        (new OPMCmdLineUtil( project, opmCommand.toArray(new String[0]) )).execute(workingDir, true);
+        (new OPMCmdLineUtil( logger, opmCommand.toArray(new String[0]) )).execute(workingDir, true);
     }
     
-    protected static void addOPMRegistryBundlesDb(Project project, List<String> opmArgs, File workingDir) {
+    protected static void addOPMRegistryBundlesDb(Logger logger, List<String> opmArgs, File workingDir) {
         
         List<String> opmCommand = new ArrayList<String>(opmArgs);
         opmCommand.add(0, CMD_LINE_OPM);
         opmCommand.add(1, CMD_LINE_REGISTRY);
         opmCommand.add(2, CMD_LINE_ADD);
-        (new OPMCmdLineUtil( project, opmCommand.toArray(new String[0]) )).execute(workingDir, true);
+        (new OPMCmdLineUtil( logger, opmCommand.toArray(new String[0]) )).execute(workingDir, false);
     }
 
-    protected static void saveOPMRender(Project project, DirectoryProperty workingDir, String opmAction, List<String> opmArgs, String outputFile) {
+    protected static void saveOPMRender(Logger logger, DirectoryProperty workingDir, String opmAction, List<String> opmArgs, String outputFile) {
 
         List<String> opmCommand = new ArrayList<String>(opmArgs);
         opmCommand.add(0, CMD_LINE_OPM);
         opmCommand.add(1, opmAction);
 
         File file = new File(workingDir.get().getAsFile() + "/" + outputFile); 
-        if (file.exists()) file.delete(); 
-
-        DockerXCmdLineUtil.ProcessResult processResult = (new OPMCmdLineUtil( project, opmCommand.toArray(new String[0]) )).execute(workingDir.get().getAsFile(), true);
         
-        if ( outputFile != null) {
-            List<String> outputOPM = processResult.getOutputLines();
-            try (BufferedWriter outputFileWr = new BufferedWriter(new FileWriter(workingDir.get().getAsFile() + "/" + outputFile, true))) {
-                outputOPM.forEach( outputLine -> {
-                    try {
-                        outputFileWr.write(outputLine);
-                        outputFileWr.newLine();
-                    } catch (Exception ignore) {}
-                });
-            } catch (Exception ex) {
-                DockerXVerifyUtil.stopGradleException(MESSAGE_OPM_STORE_OUTPUT + ex.getMessage());
-            }
+        // Stream the output into a temp file next to the render, only replacing the previous render once opm succeeded
+        File tempFile = null;
+        
+        try {
+            
+            tempFile = File.createTempFile(file.getName(), null, file.getParentFile());
+            // Only stdout is the render, warnings on stderr must not end up in the file
+            OPMCmdLineUtil opmRender = new OPMCmdLineUtil( logger, opmCommand.toArray(new String[0]) );
+            opmRender.setMergeErrorStream(false);
+            opmRender.execute(workingDir.get().getAsFile(), new DockerXCmdLineUtil.FileSink(tempFile));
+            java.nio.file.Files.move(tempFile.toPath(), file.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING, java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+            
+        } catch (IOException ex) {
+            DockerXVerifyUtil.stopGradleException(MESSAGE_OPM_STORE_OUTPUT + ex.getMessage());
+            
+        } finally {
+            if (tempFile != null) tempFile.delete();
+        }
+    }
+    
+    protected static Map<String, String> resolveBundleReferences(Logger logger,
+                                                                 DockerXRegistryService registryService,
+                                                                 File workingDirectory,
+                                                                 List<String> bundleSources,
+                                                                 List<DockerXCredentialConfig.RegistryCredential> registryCredentials,
+                                                                 DockerXDigestConfig.ResolveItem resolveItem) throws Exception {
+        
+        // Key == Bundle Source | Value == Bundle Reference (image@digest or source@content hash)
+        Map<String, String> bundleReferences = new HashMap<String, String>();
+        List<String> bundleImages = new ArrayList<String>();
+        
+        for (String bundleSource : bundleSources) {
+            
+            File localSource = getLocalBundleSource(workingDirectory, bundleSource);
+            
+            if ( localSource != null && localSource.isDirectory() )
+                bundleReferences.put(bundleSource, bundleSource + "@" + DockerXContextUtil.hashContext(registryService.getScheduler(), localSource, null, null));
+            else if ( localSource != null )
+                bundleReferences.put(bundleSource, bundleSource + "@" + DIGEST_SHA256 + DockerXContextUtil.hashFile(localSource.toPath()));
+            else if ( bundleSource.contains("@" + DIGEST_SHA256) )
+                bundleReferences.put(bundleSource, bundleSource);
+            else
+                bundleImages.add(bundleSource);
         }
+        
+        List<String> digestImages = DockerXDigestUtil.convertImageTagsToDigests(logger, registryService, bundleImages, registryCredentials, resolveItem);
+        for (int index = 0; index < bundleImages.size(); index++)
+            bundleReferences.put(bundleImages.get(index), digestImages.get(index));
+        
+        return bundleReferences;
     }
     
-    protected static void validateOPMBundleImage(Project project, String image) {
-        (new OPMCmdLineUtil(project, CMD_LINE_OPM, CMD_LINE_ALPHA, CMD_LINE_BUNDLE, CMD_LINE_VALIDATE, CMD_LINE_OPT_TAG, image, CMD_LINE_OPT_IMAGE_BUILDER, CMD_LINE_DOCKER)).execute();
+    protected static boolean isRenderCurrent(@Nullable JsonNode renderEntry, String bundleReference, File outputFile) throws Exception {
+        
+        if ( renderEntry == null || !outputFile.isFile() ) return false;
+        
+        // A bundle tag that could not be resolved to a digest may have moved, it is always rendered again
+        if ( !bundleReference.contains("@" + DIGEST_SHA256) ) return false;
+        if ( !bundleReference.equals(renderEntry.path(RENDER_REFERENCE).asText()) ) return false;
+        
+        // An output edited or truncated since the last render is rendered again
+        return renderEntry.path(RENDER_OUTPUT_HASH).asText().equals(DIGEST_SHA256 + DockerXContextUtil.hashFile(outputFile.toPath()));
+    }
+    
+    protected static JsonNode newRenderEntry(String bundleSource, String bundleReference, File outputFile) throws Exception {
+        
+        ObjectNode renderEntry = DockerXManifestUtil.getObjectMapper().createObjectNode();
+        renderEntry.put(RENDER_SOURCE, bundleSource);
+        renderEntry.put(RENDER_REFERENCE, bundleReference);
+        renderEntry.put(RENDER_OUTPUT_HASH, DIGEST_SHA256 + DockerXContextUtil.hashFile(outputFile.toPath()));
+        return renderEntry;
+    }
+    
+    protected static JsonNode loadRenderManifest(File renderManifest) {
+        
+        try {
+            
+            if ( renderManifest.isFile() )
+                return DockerXManifestUtil.getObjectMapper().readTree(renderManifest);
+            
+        } catch (IOException ex) {
+            // A corrupt manifest only costs a full render
+        }
+        
+        return DockerXManifestUtil.getObjectMapper().createObjectNode();
+    }
+    
+    protected static void storeRenderManifest(File renderManifest, Map<String, JsonNode> renderEntries) {
+        
+        try {
+            
+            // Sorted so identical renders produce identical manifests, entries of removed bundles are dropped
+            ObjectNode manifest = DockerXManifestUtil.getObjectMapper().createObjectNode();
+            new TreeMap<String, JsonNode>(renderEntries).forEach(manifest::set);
+            
+            renderManifest.getParentFile().mkdirs();
+            DockerXManifestUtil.getObjectMapper().writerWithDefaultPrettyPrinter().writeValue(renderManifest, manifest);
+            
+        } catch (IOException ex) {
+            DockerXVerifyUtil.stopGradleException(MESSAGE_OPM_RENDER_MANIFEST + ex.getMessage());
+        }
+    }
+    
+    protected static void validateOPMBundleImage(Logger logger, String image) {
+        (new OPMCmdLineUtil(logger, CMD_LINE_OPM, CMD_LINE_ALPHA, CMD_LINE_BUNDLE, CMD_LINE_VALIDATE, CMD_LINE_OPT_TAG, image, CMD_LINE_OPT_IMAGE_BUILDER, CMD_LINE_DOCKER)).execute();
     }
 
     public static class OPMCmdLineUtil extends DockerXCmdLineUtil {
         
         /// Constructor
         
-        public OPMCmdLineUtil(Project project, String... args) { super( project, args ); }
+        public OPMCmdLineUtil(Logger logger, String... args) { super( logger, args ); }
         
         ///
         
         @Override
-        public ProcessResult execute(@Nullable File workingDir, boolean returnOutput) {
+        public ProcessResult execute(@Nullable File workingDir, OutputSink... outputSinks) {
             
             ProcessResult processResult = null;
             
             try {
                 
-                processResult = super.execute(workingDir, returnOutput);
+                processResult = super.execute(workingDir, outputSinks);
                 if (processResult.exitCode != 0) {
-                    DockerXVerifyUtil.stopGradleException(processResult.cmdOutput);
+                    DockerXVerifyUtil.stopGradleException(processResult.getFailureOutput());
                 }
                 
             } catch (Exception ex) {
@@ -300,6 +435,9 @@ public class DockerXOPMUtil extends DockerXDockerUtil {
             return processResult;
         }
         
+        @Override
+        public ProcessResult execute(@Nullable File workingDir, boolean returnOutput) { return execute(workingDir, defaultSinks(returnOutput)); }
+        
         public ProcessResult execute() { return execute(null, true); }
         
         ///
@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+package io.github.arvinb.dockerx.util;
+
+import java.net.*;
+import java.net.http.*;
+import java.nio.charset.*;
+import java.security.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.*;
+import com.fasterxml.jackson.databind.*;
+import io.github.arvinb.dockerx.config.*;
+import static io.github.arvinb.dockerx.DockerXConstants.*;
+
+/**
+ * A minimal OCI Distribution client resolving image manifests and digests over pooled HTTP connections.
+ */
+public class DockerXRegistryClient {
+
+    private static final Pattern AUTH_PARAM = Pattern.compile("(\\w+)=\"([^\"]*)\"");
+
+    private final HttpClient httpClient;
+    private final Map<String, DockerXCredentialConfig.RegistryCredential> credentials = new ConcurrentHashMap<String, DockerXCredentialConfig.RegistryCredential>();
+    private final Map<String, String> authorizations = new ConcurrentHashMap<String, String>();
+
+    /// Constructor
+
+    public DockerXRegistryClient(List<DockerXCredentialConfig.RegistryCredential> registryCredentials) {
+
+        this.httpClient = HttpClient.newBuilder()
+                                    .followRedirects(HttpClient.Redirect.NORMAL)
+                                    .connectTimeout(Duration.ofSeconds(REGISTRY_CONNECT_TIMEOUT))
+                                    .build();
+
+        addCredentials(registryCredentials);
+    }
+
+    ///
+
+    public void addCredentials(List<DockerXCredentialConfig.RegistryCredential> registryCredentials) {
+        registryCredentials.forEach( cred -> credentials.put(ImageReference.normalizeRegistry(cred.getRegistry()), cred) );
+    }
+
+    ///
+
+    public DockerXDigestConfig.ManifestItem resolveManifest(String image) throws Exception {
+
+        ImageReference imageRef = ImageReference.parse(image);
+        URI manifestURI = imageRef.getManifestURI();
+
+        // A HEAD request is enough for a single manifest and does not count against pull rate limits
+        HttpResponse<byte[]> headResponse = send(imageRef, manifestURI, "HEAD");
+        String mediaType = headResponse.headers().firstValue(HEADER_CONTENT_TYPE).orElse(EMPTY_STRING);
+        String digest = headResponse.headers().firstValue(HEADER_CONTENT_DIGEST).orElse(EMPTY_STRING);
+
+        if (isIndexMediaType(mediaType) || digest.isEmpty()) {
+
+            // Image indexes are fetched to map every platform to its digest
+            HttpResponse<byte[]> getResponse = send(imageRef, manifestURI, "GET");
+            mediaType = getResponse.headers().firstValue(HEADER_CONTENT_TYPE).orElse(mediaType);
+            digest = getResponse.headers().firstValue(HEADER_CONTENT_DIGEST).orElse(sha256Digest(getResponse.body()));
+
+            if (isIndexMediaType(mediaType))
+                return DockerXManifestUtil.parseIndex(image, digest, mediaType, DockerXManifestUtil.getObjectMapper().readTree(getResponse.body()));
+        }
+
+        DockerXDigestConfig.ManifestItem manifestItem = new DockerXDigestConfig.ManifestItem(image);
+        manifestItem.setDigest(digest);
+        manifestItem.setMediaType(mediaType);
+        return manifestItem;
+    }
+
+    ///
+
+    protected HttpResponse<byte[]> send(ImageReference imageRef, URI uri, String method) throws Exception {
+
+        HttpResponse<byte[]> response = httpClient.send(newRequest(imageRef, uri, method), HttpResponse.BodyHandlers.ofByteArray());
+
+        // Authenticate on challenge and retry once with the new authorization
+        if (response.statusCode() == 401) {
+            authorize(imageRef, response.headers().firstValue(HEADER_WWW_AUTHENTICATE).orElse(EMPTY_STRING));
+            response = httpClient.send(newRequest(imageRef, uri, method), HttpResponse.BodyHandlers.ofByteArray());
+        }
+
+        if (response.statusCode() != 200)
+            throw new java.io.IOException(MESSAGE_REGISTRY_STATUS + method + " " + uri + " (" + response.statusCode() + ")");
+
+        return response;
+    }
+
+    protected HttpRequest newRequest(ImageReference imageRef, URI uri, String method) {
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                                                 .timeout(Duration.ofSeconds(REGISTRY_REQUEST_TIMEOUT))
+                                                 .header(HEADER_ACCEPT, MANIFEST_ACCEPT)
+                                                 .method(method, HttpRequest.BodyPublishers.noBody());
+
+        String authorization = authorizations.get(imageRef.getScopeKey());
+        if (authorization != null) request.header(AUTHORIZATION, authorization);
+
+        return request.build();
+    }
+
+    protected void authorize(ImageReference imageRef, String challenge) throws Exception {
+
+        DockerXCredentialConfig.RegistryCredential cred = credentials.get(imageRef.getRegistry());
+        String basicAuth = (cred == null) ? null : "Basic " + Base64.getEncoder().encodeToString((cred.getUsername() + ":" + cred.getPassword()).getBytes(StandardCharsets.UTF_8));
+
+        if (challenge.regionMatches(true, 0, "Basic", 0, 5)) {
+            if (basicAuth != null) authorizations.put(imageRef.getScopeKey(), basicAuth);
+            return;
+        }
+
+        Map<String, String> params = new HashMap<String, String>();
+        Matcher matcher = AUTH_PARAM.matcher(challenge);
+        while (matcher.find()) params.put(matcher.group(1), matcher.group(2));
+
+        if (!params.containsKey(AUTH_REALM)) return; // Nothing to do...
+
+        StringBuilder tokenURI = new StringBuilder(params.get(AUTH_REALM)).append("?scope=")
+                                     .append(URLEncoder.encode("repository:" + imageRef.getRepository() + ":pull", StandardCharsets.UTF_8));
+        if (params.containsKey(AUTH_SERVICE))
+            tokenURI.append("&service=").append(URLEncoder.encode(params.get(AUTH_SERVICE), StandardCharsets.UTF_8));
+
+        HttpRequest.Builder tokenRequest = HttpRequest.newBuilder(URI.create(tokenURI.toString())).timeout(Duration.ofSeconds(REGISTRY_REQUEST_TIMEOUT)).GET();
+        if (basicAuth != null) tokenRequest.header(AUTHORIZATION, basicAuth);
+
+        HttpResponse<byte[]> tokenResponse = httpClient.send(tokenRequest.build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (tokenResponse.statusCode() != 200)
+            throw new java.io.IOException(MESSAGE_REGISTRY_STATUS + "GET " + tokenURI + " (" + tokenResponse.statusCode() + ")");
+
+        JsonNode tokenNode = DockerXManifestUtil.getObjectMapper().readTree(tokenResponse.body());
+        String token = tokenNode.hasNonNull(AUTH_TOKEN) ? tokenNode.get(AUTH_TOKEN).asText() : tokenNode.path(AUTH_ACCESS_TOKEN).asText();
+
+        authorizations.put(imageRef.getScopeKey(), BEARER + " " + token);
+    }
+
+    ///
+
+    public static boolean isIndexMediaType(String mediaType) {
+        return mediaType.startsWith(MEDIA_TYPE_OCI_INDEX) || mediaType.startsWith(MEDIA_TYPE_DOCKER_LIST);
+    }
+
+    protected static String sha256Digest(byte[] content) throws NoSuchAlgorithmException {
+        return "sha256:" + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    ///
+
+    /**
+     * Internal Class to hold a parsed image reference (registry/repository:tag or @digest)
+     */
+    public static class ImageReference {
+
+        private final String registry;
+        private final String repository;
+        private final String reference;
+
+        /// Constructor
+
+        public ImageReference(String registry, String repository, String reference) {
+            this.registry = registry;
+            this.repository = repository;
+            this.reference = reference;
+        }
+
+        ///
+
+        public static ImageReference parse(String image) {
+
+            String remainder = image;
+            String registry = DOCKER_HUB_REGISTRY;
+
+            int slashIndex = remainder.indexOf('/');
+            if (slashIndex != -1) {
+                String firstPart = remainder.substring(0, slashIndex);
+                if (firstPart.contains(".") || firstPart.contains(":") || firstPart.equals("localhost")) {
+                    registry = normalizeRegistry(firstPart);
+                    remainder = remainder.substring(slashIndex + 1);
+                }
+            }
+
+            String reference = CMD_LINE_LATEST;
+            int digestIndex = remainder.indexOf('@');
+
+            if (digestIndex != -1) {
+                reference = remainder.substring(digestIndex + 1);
+                remainder = remainder.substring(0, digestIndex);
+            }
+
+            // A tag next to a digest is ignored, the digest wins
+            int tagIndex = remainder.lastIndexOf(':');
+            if (tagIndex > remainder.lastIndexOf('/')) {
+                if (digestIndex == -1) reference = remainder.substring(tagIndex + 1);
+                remainder = remainder.substring(0, tagIndex);
+            }
+
+            if (registry.equals(DOCKER_HUB_REGISTRY) && !remainder.contains("/"))
+                remainder = "library/" + remainder;
+
+            return new ImageReference(registry, remainder, reference);
+        }
+
+        public static String normalizeRegistry(String registry) {
+
+            String host = registry.replaceFirst("^https?://", EMPTY_STRING);
+            if (host.contains("/")) host = host.substring(0, host.indexOf('/'));
+            if (host.equals("docker.io") || host.equals("index.docker.io")) host = DOCKER_HUB_REGISTRY;
+            return host;
+        }
+
+        ///
+
+        public URI getManifestURI() {
+            return URI.create("https://" + registry + "/v2/" + repository + "/manifests/" + reference);
+        }
+
+        public String getScopeKey()   { return registry + "/" + repository; }
+        public String getRegistry()   { return registry;   }
+        public String getRepository() { return repository; }
+        public String getReference()  { return reference;  }
+
+        @Override
+        public String toString() {
+            return registry + "/" + repository + (reference.startsWith("sha256:") ? "@" : ":") + reference;
+        }
+    }
+}
@@ -20,93 +20,341 @@
 package io.github.arvinb.dockerx.util;
 
 import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.sql.*;
+import java.text.*;
 import java.util.*;
-import java.util.stream.*;
-import javax.annotation.*;
-import org.gradle.api.*;
+import org.gradle.api.logging.*;
 import org.gradle.api.file.*;
+import org.sqlite.*;
+import io.github.arvinb.dockerx.config.DockerXSQLiteConfig.PreparedItem;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
 public class DockerXSQLiteUtil {
     
-    public static String getSQLiteVersion(Project project) {
+    public static void executeSQLiteStatements(Logger logger, 
+                                               RegularFile database, 
+                                               List<File> scripts,
+                                               List<String> statements,
+                                               List<PreparedItem> preparedItems,
+                                               String journalMode,
+                                               String synchronous) {
+        
+        if ( (scripts.isEmpty() && statements.isEmpty() && preparedItems.isEmpty()) || database == null ) return; // Nothing to do...
         
-        String sqliteVersion = EMPTY_STRING;
+        File databaseFile = database.getAsFile();
         
-        DockerXCmdLineUtil.ProcessResult processResult = (new SQLiteCmdLineUtil(project, CMD_LINE_SQLITE, CMD_LINE_OPT_VERSION)).execute();
+        if ( !databaseFile.exists() || !databaseFile.isFile() ) return; // Nothing to do...
         
-        if (processResult.exitCode == 0) {
+        // Open the datasource once and run everything in a single transaction
+        try ( Connection connection = openConnection(databaseFile, journalMode, synchronous) ) {
             
-            Optional<String> firstLine = processResult.getOutputLines().stream().findFirst();
+            connection.setAutoCommit(false);
             
-            if ( firstLine.isPresent() ) {
+            try {
+                
+                ExecutionReport report = new ExecutionReport(logger);
+                
+                // Scripts are streamed statement by statement, never loaded as a whole
+                for (File script : scripts) {
+                    try ( SQLScriptReader scriptReader = new SQLScriptReader(Files.newBufferedReader(script.toPath(), StandardCharsets.UTF_8)) ) {
+                        String sql;
+                        while ( (sql = scriptReader.nextStatement()) != null )
+                            executeStatement(connection, sql, report);
+                    }
+                }
                 
-                List<String> versionList = Stream.of( firstLine.get().split(" ") ).map(String::trim).collect(Collectors.toList() );
+                for (String sql : statements)
+                    executeStatement(connection, sql, report);
                 
-                if (!versionList.isEmpty())
-                    sqliteVersion = versionList.get(0);
+                for (PreparedItem preparedItem : preparedItems)
+                    executePreparedStatement(connection, preparedItem, report);
+                
+                connection.commit();
+                report.summary(databaseFile);
+                
+            } catch (Exception ex) {
+                connection.rollback();
+                throw ex;
             }
+            
+        } catch (Exception ex) {
+            DockerXVerifyUtil.stopGradleException(MESSAGE_SQLITE_STMT_EXEC + ex.getMessage());
         }
+    }
+    
+    ///
+    
+    protected static Connection openConnection(File databaseFile, String journalMode, String synchronous) throws SQLException {
+        
+        SQLiteConfig sqliteConfig = new SQLiteConfig();
         
-        return sqliteVersion;
+        // Journal mode and synchronous level are left to the db file unless set
+        if ( journalMode != null && !journalMode.isBlank() )
+            sqliteConfig.setJournalMode(SQLiteConfig.JournalMode.valueOf(journalMode.trim().toUpperCase(Locale.ROOT)));
+        
+        if ( synchronous != null && !synchronous.isBlank() )
+            sqliteConfig.setSynchronous(SQLiteConfig.SynchronousMode.valueOf(synchronous.trim().toUpperCase(Locale.ROOT)));
+        
+        // The driver is created directly, DriverManager does not see the plugin class loader
+        return sqliteConfig.createConnection(JDBC_SQLITE + databaseFile.getAbsolutePath());
     }
     
-    public static void executeSQLiteStatements(Project project, 
-                                               RegularFile database, 
-                                               List<String> statements) {
+    protected static void executeStatement(Connection connection, String sql, ExecutionReport report) throws SQLException {
+        
+        long startTime = System.nanoTime();
+        
+        try ( Statement statement = connection.createStatement() ) {
+            
+            // Queries (e.g. a PRAGMA) return a result set and report no rows
+            int rowCount = statement.execute(sql) ? 0 : Math.max(statement.getUpdateCount(), 0);
+            report.add(sql, 1, rowCount, System.nanoTime() - startTime);
+            
+        } catch (SQLException ex) {
+            throw new SQLException(sql + NEW_LINE + ex.getMessage(), ex);
+        }
+    }
+    
+    protected static void executePreparedStatement(Connection connection, PreparedItem preparedItem, ExecutionReport report) throws SQLException, IOException {
         
-        if ( statements.isEmpty() || database == null ) return; // Nothing to do...
+        long startTime = System.nanoTime();
+        String sql = preparedItem.getStatement();
         
-        try {
+        try ( PreparedStatement statement = connection.prepareStatement(sql) ) {
             
-            File databaseFile = database.getAsFile();
+            int parameterCount = statement.getParameterMetaData().getParameterCount();
+            int[] counts = new int[] { 0, 0, 0 }; // Pending, Executed, Rows
             
-            if ( databaseFile.exists() && databaseFile.isFile() )
-                statements.forEach( statement -> {
-                    execSQLiteStatement(project, databaseFile.getPath(), statement);
-                });
+            for (List<Object> parameterSet : preparedItem.getParameterSets())
+                addBatch(statement, parameterCount, parameterSet, counts);
             
-        } catch (Exception ex) {
-            DockerXVerifyUtil.stopGradleException(MESSAGE_SQLITE_STMT_EXEC + ex.getMessage());
+            // Parameter files are streamed line by line, every line is one parameter set
+            if ( preparedItem.getParameterFile() != null ) {
+                try ( BufferedReader reader = Files.newBufferedReader(preparedItem.getParameterFile().toPath(), StandardCharsets.UTF_8) ) {
+                    String line;
+                    while ( (line = reader.readLine()) != null ) {
+                        if ( line.isBlank() || line.trim().startsWith("#") ) continue;
+                        addBatch(statement, parameterCount, parseParameters(line), counts);
+                    }
+                }
+            }
+            
+            executeBatch(statement, counts);
+            report.add(sql, counts[1], counts[2], System.nanoTime() - startTime);
+            
+        } catch (SQLException ex) {
+            throw new SQLException(sql + NEW_LINE + ex.getMessage(), ex);
         }
     }
     
+    protected static List<Object> parseParameters(String line) throws IOException {
+        
+        // CSV fields: comma separated and trimmed, a quoted field keeps commas and whitespace, "" is a literal quote
+        List<Object> parameters = new ArrayList<Object>();
+        int index = 0;
+        
+        while ( true ) {
+            
+            int start = index;
+            while ( index < line.length() && Character.isWhitespace(line.charAt(index)) ) index++;
+            
+            String parameter;
+            if ( index < line.length() && line.charAt(index) == '"' ) {
+                
+                StringBuilder field = new StringBuilder();
+                boolean closed = false;
+                
+                for (index++; index < line.length(); index++) {
+                    char ch = line.charAt(index);
+                    if ( ch != '"' ) { field.append(ch); continue; }
+                    if ( index + 1 < line.length() && line.charAt(index + 1) == '"' ) { field.append('"'); index++; continue; }
+                    closed = true;
+                    index++;
+                    break;
+                }
+                
+                while ( index < line.length() && Character.isWhitespace(line.charAt(index)) ) index++;
+                if ( !closed || (index < line.length() && line.charAt(index) != ',') )
+                    throw new IOException(MessageFormat.format(MESSAGE_SQLITE_PARAMETER_LINE, line));
+                parameter = field.toString();
+                
+            } else {
+                
+                index = line.indexOf(',', start);
+                if ( index == -1 ) index = line.length();
+                parameter = line.substring(start, index).trim();
+            }
+            
+            parameters.add(parameter);
+            if ( index >= line.length() ) return parameters;
+            index++; // Skip the comma
+        }
+    }
+    
+    protected static void addBatch(PreparedStatement statement, int parameterCount, List<Object> parameterSet, int[] counts) throws SQLException {
+        
+        if ( parameterSet.size() != parameterCount )
+            throw new SQLException(MessageFormat.format(MESSAGE_SQLITE_PARAMETERS, parameterCount, parameterSet));
+        
+        for (int index = 0; index < parameterCount; index++)
+            statement.setObject(index + 1, parameterSet.get(index));
+        
+        statement.addBatch();
+        
+        // Large parameter tables are flushed in chunks to bound memory
+        if ( ++counts[0] >= SQLITE_BATCH_SIZE )
+            executeBatch(statement, counts);
+    }
+    
+    protected static void executeBatch(PreparedStatement statement, int[] counts) throws SQLException {
+        
+        if ( counts[0] == 0 ) return; // Nothing to do...
+        
+        for (int updateCount : statement.executeBatch())
+            counts[2] += Math.max(updateCount, 0);
+        
+        counts[1] += counts[0];
+        counts[0] = 0;
+    }
+    
     ///
     
-    protected static void execSQLiteStatement(Project project, String datasource, String statement) {
+    /**
+     * Internal Class to report the row counts and timings of the executed statements
+     */
+    protected static class ExecutionReport {
+        
+        private final Logger logger;
+        private int statementCount = 0;
+        private long rowCount = 0;
+        private long elapsedTime = 0;
         
-        (new SQLiteCmdLineUtil(project, CMD_LINE_SQLITE, datasource, statement)).execute();
+        /// Constructor
+        
+        public ExecutionReport(Logger logger) { this.logger = logger; }
+        
+        ///
+        
+        public void add(String sql, int executions, int rows, long nanos) {
+            
+            statementCount++;
+            rowCount += rows;
+            elapsedTime += nanos;
+            
+            logger.info(MessageFormat.format(MESSAGE_SQLITE_STATEMENT, statementCount, rows, executions, nanos / 1000000.0, abbreviate(sql)));
+        }
+        
+        public void summary(File databaseFile) {
+            logger.lifecycle(MessageFormat.format(MESSAGE_SQLITE_SUMMARY, statementCount, rowCount, elapsedTime / 1000000.0, databaseFile.getPath()));
+        }
+        
+        protected static String abbreviate(String sql) {
+            String line = sql.replaceAll("\\s+", " ").trim();
+            return (line.length() > SQLITE_LOG_LENGTH) ? line.substring(0, SQLITE_LOG_LENGTH) + "..." : line;
+        }
     }
     
     ///
     
-    public static class SQLiteCmdLineUtil extends DockerXCmdLineUtil {
+    /**
+     * Internal Class to read the statements of an SQL script one at a time.
+     * Statements end with a semicolon outside of quotes and comments, trigger bodies end with END;
+     */
+    public static class SQLScriptReader implements Closeable {
+        
+        private final PushbackReader reader;
         
         /// Constructor
         
-        public SQLiteCmdLineUtil(Project project, String... args) { super( project, args ); }
+        public SQLScriptReader(Reader reader) { this.reader = new PushbackReader(reader, 1); }
         
         ///
         
-        @Override
-        public ProcessResult execute(@Nullable File workingDir, boolean returnOutput) {
+        public String nextStatement() throws IOException {
             
-            ProcessResult processResult = null;
+            StringBuilder sql = new StringBuilder();
+            StringBuilder word = new StringBuilder();
+            List<String> leadingWords = new ArrayList<String>();
+            String lastWord = null;
+            int ch;
             
-            try {
+            while ( (ch = reader.read()) != -1 ) {
                 
-                processResult = super.execute(workingDir, returnOutput);
-                if (processResult.exitCode != 0) {
-                    DockerXVerifyUtil.stopGradleException(processResult.cmdOutput);
+                // Keywords are only tracked outside of quotes and comments
+                if ( Character.isLetterOrDigit(ch) || ch == '_' ) {
+                    word.append((char) ch);
+                    sql.append((char) ch);
+                    continue;
                 }
                 
-            } catch (Exception ex) {
-                DockerXVerifyUtil.stopGradleException(MESSAGE_SQLITE_EXEC + ex.getMessage());
+                if ( word.length() > 0 ) {
+                    lastWord = word.toString().toUpperCase(Locale.ROOT);
+                    if ( leadingWords.size() < 3 ) leadingWords.add(lastWord);
+                    word.setLength(0);
+                }
+                
+                if ( ch == '\'' || ch == '"' || ch == '`' || ch == '[' ) {
+                    
+                    int endQuote = (ch == '[') ? ']' : ch;
+                    sql.append((char) ch);
+                    while ( (ch = reader.read()) != -1 ) {
+                        sql.append((char) ch);
+                        if ( ch == endQuote ) break;
+                    }
+                    lastWord = null;
+                    
+                } else if ( ch == '-' && peek() == '-' ) {
+                    
+                    while ( (ch = reader.read()) != -1 && ch != '\n' );
+                    sql.append('\n');
+                    
+                } else if ( ch == '/' && peek() == '*' ) {
+                    
+                    reader.read();
+                    int previous = -1;
+                    while ( (ch = reader.read()) != -1 && !(previous == '*' && ch == '/') ) previous = ch;
+                    sql.append(' ');
+                    
+                } else if ( ch == ';' ) {
+                    
+                    if ( isTrigger(leadingWords) && !"END".equals(lastWord) ) {
+                        sql.append((char) ch);
+                        continue;
+                    }
+                    
+                    String statement = sql.toString().trim();
+                    if ( !statement.isEmpty() ) return statement;
+                    
+                    sql.setLength(0);
+                    leadingWords.clear();
+                    lastWord = null;
+                    
+                } else {
+                    sql.append((char) ch);
+                }
             }
             
-            return processResult;
+            String statement = sql.toString().trim();
+            return statement.isEmpty() ? null : statement;
+        }
+        
+        @Override
+        public void close() throws IOException { reader.close(); }
+        
+        ///
+        
+        protected int peek() throws IOException {
+            int ch = reader.read();
+            if ( ch != -1 ) reader.unread(ch);
+            return ch;
         }
         
-        public ProcessResult execute() { return execute(null, true); }
+        protected static boolean isTrigger(List<String> leadingWords) {
+            
+            // CREATE [TEMP|TEMPORARY] TRIGGER ...
+            if ( leadingWords.isEmpty() || !leadingWords.get(0).equals("CREATE") ) return false;
+            return leadingWords.contains("TRIGGER");
+        }
     }
 }
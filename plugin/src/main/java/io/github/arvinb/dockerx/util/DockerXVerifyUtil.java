@@ -20,6 +20,7 @@
 package io.github.arvinb.dockerx.util;
 
 import org.gradle.api.*;
+import org.gradle.api.logging.*;
 import org.gradle.internal.os.*;
 import static io.github.arvinb.dockerx.DockerXConstants.*;
 
@@ -48,22 +49,14 @@ public class DockerXVerifyUtil {
         }
     }
     
-    public static void verifyOperatorPackageManager(Project project) {
+    public static void verifyOperatorPackageManager(Logger logger) {
         
         // Check the OPM Version
-        if (compareVersion(DockerXOPMUtil.getOPMVersion(project), VERIFY_MIN_OPM_VER) < 0) {
+        if (compareVersion(DockerXOPMUtil.getOPMVersion(logger), VERIFY_MIN_OPM_VER) < 0) {
             stopGradleException(VERIFY_OPM_VERSION);
         }
     }
     
-    public static void verifySQLite(Project project) {
-        
-        // Check the SQLite Version
-        if (compareVersion(DockerXSQLiteUtil.getSQLiteVersion(project), VERIFY_MIN_SQLITE_VER) < 0) {
-            stopGradleException(VERIFY_SQLITE_VERSION);
-        }
-    }
-    
     public static void stopGradleException(String message) {
         throw new GradleException(message);
     }
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+package io.github.arvinb.dockerx.work;
+
+import java.io.*;
+import java.util.*;
+import org.gradle.api.file.*;
+import org.gradle.api.provider.*;
+import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.service.*;
+import io.github.arvinb.dockerx.util.*;
+
+/**
+ * Builds (and pushes) the docker images of a dockerXBuild task
+ */
+public abstract class DockerXBuildAction extends DockerXWorkAction<DockerXBuildAction.Params> {
+
+    public interface Params extends DockerXWorkAction.Params {
+
+        Property<DockerXBuilderService> getBuilderService();
+
+        Property<DockerXRegistryService> getRegistryService();
+
+        ListProperty<String> getImages();
+
+        RegularFileProperty getDockerfile();
+
+        DirectoryProperty getWorkingDirectory();
+
+        Property<Boolean> getSlimContext();
+
+        DirectoryProperty getStagingDirectory();
+
+        DirectoryProperty getExcludedDirectory();
+
+        ListProperty<DockerXDockerConfig.PlatformItem> getPlatformItems();
+
+        MapProperty<String, String> getBuildArgs();
+
+        Property<String> getTarget();
+
+        Property<String> getProvenance();
+
+        Property<Boolean> getPush();
+
+        Property<Boolean> getPlatformTags();
+
+        MapProperty<String, File> getSecrets();
+
+        Property<DockerXDockerConfig.CacheItem> getCacheItem();
+
+        Property<String> getBuilder();
+
+        Property<Integer> getParallelism();
+
+        Property<Boolean> getDevbuild();
+
+        Property<Boolean> getKeepBuilder();
+
+        Property<Integer> getBuilderIdleTimeout();
+
+        Property<Boolean> getMultiArchReset();
+
+        Property<Boolean> getClean();
+
+        Property<DockerXPruneConfig.PruneItem> getPruneItem();
+
+        ListProperty<DockerXCredentialConfig.RegistryCredential> getRegistryCredentials();
+
+        RegularFileProperty getDigestsFile();
+    }
+
+    ///
+
+    @Override
+    protected void executeAction() {
+
+        final Params params = getParameters();
+
+        // Verify the environment
+        DockerXVerifyUtil.verifyDockerEnvironment();
+
+        // Clean the environment
+        if ( params.getClean().get() )
+            DockerXDockerUtil.pruneAndClearCache(getLogger(), params.getBuilderService().get(), params.getBuilder().get(), params.getPruneItem().get());
+
+        // Stage a slim build context so BuildKit only transfers what the build may use
+        File buildContext = null;
+        if ( params.getSlimContext().get() )
+            buildContext = DockerXContextUtil.stageContext(getLogger(), params.getWorkingDirectory().get().getAsFile(), params.getDockerfile().isPresent() ? params.getDockerfile().get().getAsFile() : null, params.getExcludedDirectory().get().getAsFile(), params.getStagingDirectory().get().getAsFile());
+
+        // Build Docker Image
+        Map<String, String> imageDigests =
+        DockerXDockerUtil.buildDockerImage(getLogger(),                                                  // Gradle Logger
+                                           params.getBuilderService().get(),                             // Builder Service
+                                           params.getRegistryService().get(),                            // Registry Service
+                                           params.getImages().get(),                                     // Docker Images
+                                           params.getDockerfile().getOrNull(),                           // Dockerfile
+                                           params.getWorkingDirectory(),                                 // Working Directory
+                                           buildContext,                                                 // Slim Build Context
+                                           params.getBuilder().get(),                                    // Builder Name
+                                           params.getProvenance().getOrNull(),                           // Provenance
+                                           params.getPlatformItems().get(),                              // Platforms
+                                           params.getBuildArgs().get(),                                  // Build Arguments
+                                           params.getSecrets().get(),                                    // Docker Secrets
+                                           params.getTarget().getOrNull(),                               // Docker Target
+                                           params.getCacheItem().getOrNull(),                            // BuildKit Layer Cache
+                                           params.getPush().get(),                                       // Push Flag
+                                           params.getPlatformTags().get(),                               // Platform Tags Flag
+                                           params.getParallelism().get(),                                // Platform Build Parallelism
+                                           params.getDevbuild().get(),                                   // Dev Build Flag
+                                           params.getKeepBuilder().get(),                                // Keep Builder Flag
+                                           params.getBuilderIdleTimeout().get(),                         // Builder Idle Timeout
+                                           params.getMultiArchReset().get(),                             // Multi Arch Reset Flag
+                                           params.getRegistryCredentials().get());                       // Docker Registry Credentials
+
+        // Record the image digests as the task output
+        DockerXDockerUtil.storeImageDigests(params.getDigestsFile().get().getAsFile(), imageDigests);
+    }
+}
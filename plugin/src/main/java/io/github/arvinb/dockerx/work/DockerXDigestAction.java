@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+package io.github.arvinb.dockerx.work;
+
+import org.gradle.api.provider.*;
+import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.service.*;
+import io.github.arvinb.dockerx.util.*;
+
+/**
+ * Resolves image digests and injects them into the target files of a dockerXDigest task
+ */
+public abstract class DockerXDigestAction extends DockerXWorkAction<DockerXDigestAction.Params> {
+
+    public interface Params extends DockerXWorkAction.Params {
+
+        Property<DockerXRegistryService> getRegistryService();
+
+        ListProperty<DockerXDigestConfig.DigestItem> getDigests();
+
+        Property<DockerXDigestConfig.ResolveItem> getResolveItem();
+
+        ListProperty<DockerXCredentialConfig.RegistryCredential> getRegistryCredentials();
+    }
+
+    ///
+
+    @Override
+    protected void executeAction() {
+
+        final Params params = getParameters();
+
+        // Verify the environment
+        DockerXVerifyUtil.verifyDockerEnvironment();
+
+        // Inject Digests into Target File(s)
+        DockerXDigestUtil.injectImageDigests(getLogger(), params.getRegistryService().get(), params.getDigests().get(), params.getRegistryCredentials().get(), params.getResolveItem().get());
+    }
+}
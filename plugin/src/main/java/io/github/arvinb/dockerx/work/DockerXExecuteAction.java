@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+package io.github.arvinb.dockerx.work;
+
+import org.gradle.api.provider.*;
+import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.util.*;
+
+/**
+ * Executes the scripts and tools of a dockerXExecute task
+ */
+public abstract class DockerXExecuteAction extends DockerXWorkAction<DockerXExecuteAction.Params> {
+
+    public interface Params extends DockerXWorkAction.Params {
+
+        ListProperty<DockerXExecuteConfig.ActionItem> getActionItems();
+    }
+
+    ///
+
+    @Override
+    protected void executeAction() {
+
+        DockerXExecuteUtil.executeActions(getLogger(),                                  // Gradle Logger
+                                          getParameters().getActionItems().get());      // Action items
+    }
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+package io.github.arvinb.dockerx.work;
+
+import org.gradle.api.file.*;
+import org.gradle.api.provider.*;
+import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.service.*;
+import io.github.arvinb.dockerx.util.*;
+
+/**
+ * Renders the bundle images of a dockerXOPMRender task into a declarative config file
+ */
+public abstract class DockerXOPMRenderAction extends DockerXWorkAction<DockerXOPMRenderAction.Params> {
+
+    public interface Params extends DockerXWorkAction.Params {
+
+        Property<DockerXBuilderService> getBuilderService();
+
+        Property<DockerXRegistryService> getRegistryService();
+
+        DirectoryProperty getWorkingDirectory();
+
+        ListProperty<String> getBundleSources();
+
+        Property<String> getOutputPrefix();
+
+        Property<String> getOutputFormat();
+
+        Property<Integer> getRenderParallelism();
+
+        Property<Boolean> getClean();
+
+        Property<String> getBuilder();
+
+        Property<DockerXPruneConfig.PruneItem> getPruneItem();
+
+        ListProperty<DockerXCredentialConfig.RegistryCredential> getRegistryCredentials();
+
+        Property<DockerXDigestConfig.ResolveItem> getResolveItem();
+
+        RegularFileProperty getRenderManifest();
+    }
+
+    ///
+
+    @Override
+    protected void executeAction() {
+
+        final Params params = getParameters();
+
+        // Verify the environment
+        DockerXVerifyUtil.verifyOperatorPackageManager(getLogger());
+        DockerXVerifyUtil.verifyDockerEnvironment();
+
+        // Clean the environment
+        if ( params.getClean().get() )
+            DockerXDockerUtil.pruneAndClearCache(getLogger(), params.getBuilderService().get(), params.getBuilder().get(), params.getPruneItem().get());
+
+        // Render bundle image to create operator.yaml
+        DockerXOPMUtil.renderBundleImage(getLogger(),                                                    // Gradle Logger
+                                         params.getRegistryService().get(),                              // Registry service
+                                         params.getWorkingDirectory(),                                   // Working directory
+                                         params.getBundleSources().get(),                                // List of Bundle Sources
+                                         params.getOutputPrefix().get(),                                 // Output file prefix
+                                         params.getOutputFormat().get(),                                 // Output format (json|yaml) (default "yaml")
+                                         params.getRenderParallelism().get(),                            // Concurrent renders
+                                         params.getRenderManifest().get().getAsFile(),                   // Render manifest
+                                         params.getRegistryCredentials().get(),                          // Docker Registry Credentials
+                                         params.getResolveItem().get());                                 // Digest resolution settings
+    }
+}
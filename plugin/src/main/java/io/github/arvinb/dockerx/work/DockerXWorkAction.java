@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+package io.github.arvinb.dockerx.work;
+
+import java.util.*;
+import org.gradle.api.logging.*;
+import org.gradle.api.provider.*;
+import org.gradle.workers.*;
+import io.github.arvinb.dockerx.util.*;
+import static io.github.arvinb.dockerx.DockerXConstants.*;
+
+/**
+ * Base class of the dockerX work actions. The heavy part of a task runs as a work action
+ * with serializable parameters, so Gradle can overlap it with other tasks of the same project.
+ */
+public abstract class DockerXWorkAction<P extends DockerXWorkAction.Params> implements WorkAction<P> {
+
+    private final Logger logger = Logging.getLogger(DockerXWorkAction.class);
+
+    ///
+
+    public interface Params extends WorkParameters {
+
+        /**
+         * Default command timeout in minutes (Default: 0, no timeout)
+         */
+        Property<Integer> getCommandTimeout();
+
+        /**
+         * Command timeouts in minutes by command prefix
+         */
+        MapProperty<String, Integer> getCommandTimeouts();
+    }
+
+    ///
+
+    @Override
+    public void execute() {
+
+        // Worker threads do not inherit the command timeouts of the task thread
+        DockerXCmdLineUtil.withCommandTimeouts(getParameters().getCommandTimeout().getOrElse(DEFAULT_COMMAND_TIMEOUT),
+                                               getParameters().getCommandTimeouts().getOrElse(new HashMap<String, Integer>()),
+                                               this::executeAction);
+    }
+
+    protected abstract void executeAction();
+
+    protected Logger getLogger() {
+        return logger;
+    }
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+
+package io.github.arvinb.dockerx.service;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import org.gradle.api.Project;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import io.github.arvinb.dockerx.config.*;
+import io.github.arvinb.dockerx.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DockerXRegistryServiceTest {
+    
+    private static final String DIGEST = "sha256:1111111111111111111111111111111111111111111111111111111111111111";
+    
+    @TempDir
+    Path cacheDir;
+    
+    @Test
+    void expiredEntryTest() throws Exception {
+        
+        DockerXRegistryService registryService = registryService();
+        DockerXRegistryClient.ImageReference imageRef = DockerXRegistryClient.ImageReference.parse("quay.io/acme/operator:latest");
+        
+        registryService.storeManifest(imageRef, manifestItem(imageRef));
+        assertNotNull(registryService.loadManifest(imageRef, resolveItem(60)));
+        
+        // A time to live of 0 minutes expires the entry right away
+        Thread.sleep(5);
+        assertNull(registryService.loadManifest(imageRef, resolveItem(0)));
+    }
+    
+    @Test
+    void immutableTagTest() throws Exception {
+        
+        DockerXRegistryService registryService = registryService();
+        DockerXRegistryClient.ImageReference imageRef = DockerXRegistryClient.ImageReference.parse("quay.io/acme/operator:v1.0.0");
+        
+        registryService.storeManifest(imageRef, manifestItem(imageRef));
+        Thread.sleep(5);
+        
+        DockerXDigestConfig.ManifestItem manifestItem = registryService.loadManifest(imageRef, resolveItem(0));
+        assertNotNull(manifestItem);
+        assertEquals(DIGEST, manifestItem.getDigest());
+        assertEquals(DockerXDockerConfig.PlatformItem.AMD64, manifestItem.getImageDigests().get(DIGEST));
+    }
+    
+    @Test
+    void imageMismatchTest() throws Exception {
+        
+        DockerXRegistryService registryService = registryService();
+        DockerXRegistryClient.ImageReference imageRef = DockerXRegistryClient.ImageReference.parse("quay.io/acme/operator:v1.0.0");
+        DockerXRegistryClient.ImageReference otherRef = DockerXRegistryClient.ImageReference.parse("quay.io/acme/other:v1.0.0");
+        
+        // An entry found under another image's hash is never used
+        registryService.storeManifest(imageRef, manifestItem(imageRef));
+        Files.copy(registryService.getCacheFile(imageRef).toPath(), registryService.getCacheFile(otherRef).toPath());
+        
+        assertNull(registryService.loadManifest(otherRef, resolveItem(60)));
+        assertNotNull(registryService.loadManifest(imageRef, resolveItem(60)));
+    }
+    
+    ///
+    
+    private DockerXRegistryService registryService() {
+        
+        Project project = ProjectBuilder.builder().withProjectDir(cacheDir.toFile()).build();
+        DirectoryProperty cacheDirectory = project.getObjects().directoryProperty();
+        cacheDirectory.set(cacheDir.resolve("digests").toFile());
+        
+        DockerXRegistryService.Params params = new DockerXRegistryService.Params() {
+            @Override public DirectoryProperty getCacheDir()                         { return cacheDirectory; }
+            @Override public Property<DockerXSchedulerService> getScheduler()        { return null;           }
+        };
+        
+        return new DockerXRegistryService() {
+            @Override public DockerXRegistryService.Params getParameters()           { return params;         }
+        };
+    }
+    
+    private static DockerXDigestConfig.ResolveItem resolveItem(int cacheTtl) {
+        return new DockerXDigestConfig.ResolveItem(1, 1, Arrays.asList("quay.io"), cacheTtl, Arrays.asList("v\\d+\\.\\d+\\.\\d+"));
+    }
+    
+    private static DockerXDigestConfig.ManifestItem manifestItem(DockerXRegistryClient.ImageReference imageRef) {
+        
+        DockerXDigestConfig.ManifestItem manifestItem = new DockerXDigestConfig.ManifestItem(imageRef.toString());
+        manifestItem.setDigest(DIGEST);
+        manifestItem.setMediaType("application/vnd.oci.image.index.v1+json");
+        manifestItem.setListManifest(true);
+        manifestItem.getImageDigests().put(DIGEST, DockerXDockerConfig.PlatformItem.AMD64);
+        return manifestItem;
+    }
+}
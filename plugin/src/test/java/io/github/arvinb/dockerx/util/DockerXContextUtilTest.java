@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+
+package io.github.arvinb.dockerx.util;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+import org.gradle.api.*;
+import org.gradle.api.file.*;
+import org.gradle.testfixtures.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+
+public class DockerXContextUtilTest {
+    
+    @TempDir
+    Path contextDir;
+    
+    @Test
+    void doubleStarTest() throws IOException {
+        
+        DockerXContextUtil.DockerIgnore dockerIgnore = dockerIgnore("**/*.log", "docs/**", "**/tmp/**");
+        
+        assertTrue(dockerIgnore.isIgnored("build.log"));
+        assertTrue(dockerIgnore.isIgnored("a/b/c/build.log"));
+        assertFalse(dockerIgnore.isIgnored("a/b/c/build.txt"));
+        assertTrue(dockerIgnore.isIgnored("docs/guide/index.md"));
+        assertTrue(dockerIgnore.isIgnored("src/tmp/cache/data"));
+        assertFalse(dockerIgnore.isIgnored("src/main/data"));
+    }
+    
+    @Test
+    void exceptionTest() throws IOException {
+        
+        DockerXContextUtil.DockerIgnore dockerIgnore = dockerIgnore("*.md", "!README.md", "build", "!build/keep.jar");
+        
+        assertTrue(dockerIgnore.hasExceptions());
+        assertTrue(dockerIgnore.isIgnored("CHANGES.md"));
+        assertFalse(dockerIgnore.isIgnored("README.md"));
+        assertTrue(dockerIgnore.isIgnored("build/classes/Main.class"));
+        assertFalse(dockerIgnore.isIgnored("build/keep.jar"));
+        
+        // The last matching rule wins
+        assertTrue(dockerIgnore("!README.md", "*.md").isIgnored("README.md"));
+    }
+    
+    @Test
+    void rangeTest() throws IOException {
+        
+        DockerXContextUtil.DockerIgnore dockerIgnore = dockerIgnore("file[!0-9].txt", "log[ab]");
+        
+        assertTrue(dockerIgnore.isIgnored("filea.txt"));
+        assertFalse(dockerIgnore.isIgnored("file1.txt"));
+        assertTrue(dockerIgnore.isIgnored("logb"));
+        assertFalse(dockerIgnore.isIgnored("logc"));
+    }
+    
+    @Test
+    void escapeTest() throws IOException {
+        
+        // A backslash is a path separator on Windows only
+        assumeTrue(File.separatorChar == '/');
+        
+        DockerXContextUtil.DockerIgnore dockerIgnore = dockerIgnore("\\*.txt", "\\[draft\\]");
+        
+        assertTrue(dockerIgnore.isIgnored("*.txt"));
+        assertFalse(dockerIgnore.isIgnored("notes.txt"));
+        assertTrue(dockerIgnore.isIgnored("[draft]"));
+        assertFalse(dockerIgnore.isIgnored("d"));
+    }
+    
+    @Test
+    void dockerfileIgnoreTest() throws IOException {
+        
+        Files.write(contextDir.resolve(".dockerignore"), Arrays.asList("*.txt"));
+        Files.createDirectories(contextDir.resolve("docker"));
+        Files.write(contextDir.resolve("docker/Dockerfile.dockerignore"), Arrays.asList("*.md", "build", "!build/keep.jar"));
+        
+        for (String file : Arrays.asList("notes.txt", "README.md", "docker/Dockerfile", "build/keep.jar", "build/Main.class"))
+            writeFile(file);
+        
+        // The Dockerfile specific ignore file replaces .dockerignore
+        List<String> contextFiles = DockerXContextUtil.collectContext(contextDir.toFile(), contextDir.resolve("docker/Dockerfile").toFile(), null)
+                                                      .stream()
+                                                      .filter( entry -> entry.getType() == DockerXContextUtil.EntryType.FILE )
+                                                      .map( DockerXContextUtil.ContextEntry::getRelativePath )
+                                                      .collect(Collectors.toList());
+        
+        assertTrue(contextFiles.contains("notes.txt"));
+        assertFalse(contextFiles.contains("README.md"));
+        assertTrue(contextFiles.contains("build/keep.jar"));
+        assertFalse(contextFiles.contains("build/Main.class"));
+        
+        // Without a Dockerfile the context .dockerignore applies
+        DockerXContextUtil.DockerIgnore dockerIgnore = new DockerXContextUtil.DockerIgnore(contextDir.toFile(), null);
+        assertTrue(dockerIgnore.isIgnored("notes.txt"));
+        assertFalse(dockerIgnore.isIgnored("README.md"));
+    }
+    
+    @Test
+    void contextSpecTest() throws IOException {
+        
+        Files.write(contextDir.resolve(".dockerignore"), Arrays.asList("*.md", "logs", "build", "!build/keep.jar"));
+        
+        for (String file : Arrays.asList("Dockerfile", "README.md", "src/Main.java", "logs/build.log", "build/keep.jar", "build/Main.class", "build/dockerx/images/build.properties"))
+            writeFile(file);
+        
+        Project project = ProjectBuilder.builder().build();
+        DirectoryProperty contextDirectory = project.getObjects().directoryProperty().fileValue(contextDir.toFile());
+        RegularFileProperty dockerfile = project.getObjects().fileProperty();
+        DirectoryProperty excludedDirectory = project.getObjects().directoryProperty().fileValue(contextDir.resolve("build/dockerx").toFile());
+        
+        ConfigurableFileTree contextTree = project.fileTree(contextDirectory, tree -> {
+            tree.include(new DockerXContextUtil.ContextSpec(contextDirectory, dockerfile, excludedDirectory, false));
+            tree.exclude(new DockerXContextUtil.ContextSpec(contextDirectory, dockerfile, excludedDirectory, true));
+        });
+        
+        Set<String> treeFiles = new TreeSet<String>();
+        contextTree.visit( element -> { if (!element.isDirectory()) treeFiles.add(element.getRelativePath().getPathString()); });
+        
+        // The task input holds the same files as the context BuildKit receives
+        Set<String> contextFiles = DockerXContextUtil.collectContext(contextDir.toFile(), null, excludedDirectory.get().getAsFile())
+                                                     .stream()
+                                                     .filter( entry -> entry.getType() != DockerXContextUtil.EntryType.DIRECTORY )
+                                                     .map( DockerXContextUtil.ContextEntry::getRelativePath )
+                                                     .collect(Collectors.toCollection(TreeSet::new));
+        
+        assertEquals(contextFiles, treeFiles);
+        assertEquals(new TreeSet<String>(Arrays.asList(".dockerignore", "Dockerfile", "build/keep.jar", "src/Main.java")), treeFiles);
+    }
+    
+    ///
+    
+    private DockerXContextUtil.DockerIgnore dockerIgnore(String... rules) throws IOException {
+        
+        Files.write(contextDir.resolve(".dockerignore"), Arrays.asList(rules));
+        return new DockerXContextUtil.DockerIgnore(contextDir.toFile(), null);
+    }
+    
+    private void writeFile(String relativePath) throws IOException {
+        
+        Path file = contextDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.write(file, Arrays.asList(relativePath));
+    }
+}
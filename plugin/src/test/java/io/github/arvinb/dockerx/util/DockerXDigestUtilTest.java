@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+
+package io.github.arvinb.dockerx.util;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import io.github.arvinb.dockerx.config.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+
+public class DockerXDigestUtilTest {
+    
+    private static final String OPERATOR_DIGEST = "sha256:1111111111111111111111111111111111111111111111111111111111111111";
+    private static final String BUNDLE_DIGEST   = "sha256:2222222222222222222222222222222222222222222222222222222222222222";
+    
+    @TempDir
+    Path targetDir;
+    
+    @Test
+    void sharedTargetFileTest() throws IOException {
+        
+        Path valuesFile = writeFile("values.yaml",
+                                    "operator: quay.io/acme/operator:1.0.0",
+                                    "bundle: quay.io/acme/operator-bundle:1.0.0",
+                                    "name: operator");
+        
+        // Several images rewritten in a single pass over the file
+        DockerXDigestUtil.rewriteTargetFiles(Arrays.asList(digestItem("quay.io/acme/operator:1.0.0", OPERATOR_DIGEST, valuesFile),
+                                                           digestItem("quay.io/acme/operator-bundle:1.0.0", BUNDLE_DIGEST, valuesFile)));
+        
+        assertEquals(Arrays.asList("operator: quay.io/acme/operator@" + OPERATOR_DIGEST,
+                                   "bundle: quay.io/acme/operator-bundle@" + BUNDLE_DIGEST,
+                                   "name: operator"), Files.readAllLines(valuesFile));
+    }
+    
+    @Test
+    void symlinkTargetTest() throws IOException {
+        
+        Path valuesFile = writeFile("values.yaml", "image: quay.io/acme/operator:1.0.0");
+        Path valuesLink = Files.createSymbolicLink(targetDir.resolve("values-link.yaml"), valuesFile.getFileName());
+        
+        // The link and its target are grouped as one file, the link is kept
+        DockerXDigestUtil.rewriteTargetFiles(Arrays.asList(digestItem("quay.io/acme/operator:1.0.0", OPERATOR_DIGEST, valuesLink, valuesFile)));
+        
+        assertTrue(Files.isSymbolicLink(valuesLink));
+        assertEquals(Arrays.asList("image: quay.io/acme/operator@" + OPERATOR_DIGEST), Files.readAllLines(valuesFile));
+    }
+    
+    @Test
+    void permissionsTest() throws IOException {
+        
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        
+        Path scriptFile = writeFile("deploy.sh", "docker pull quay.io/acme/operator:1.0.0");
+        Files.setPosixFilePermissions(scriptFile, PosixFilePermissions.fromString("rwxr-xr-x"));
+        
+        DockerXDigestUtil.rewriteTargetFiles(Arrays.asList(digestItem("quay.io/acme/operator:1.0.0", OPERATOR_DIGEST, scriptFile)));
+        
+        assertEquals(Arrays.asList("docker pull quay.io/acme/operator@" + OPERATOR_DIGEST), Files.readAllLines(scriptFile));
+        assertEquals(PosixFilePermissions.fromString("rwxr-xr-x"), Files.getPosixFilePermissions(scriptFile));
+    }
+    
+    @Test
+    void unresolvedImageTest() throws IOException {
+        
+        Path valuesFile = writeFile("values.yaml", "image: quay.io/acme/operator:1.0.0");
+        FileTime modified = Files.getLastModifiedTime(valuesFile);
+        
+        // Without a digest the file is left untouched
+        DockerXDigestUtil.rewriteTargetFiles(Arrays.asList(digestItem("quay.io/acme/operator:1.0.0", "", valuesFile)));
+        
+        assertEquals(Arrays.asList("image: quay.io/acme/operator:1.0.0"), Files.readAllLines(valuesFile));
+        assertEquals(modified, Files.getLastModifiedTime(valuesFile));
+        
+        // Lines of other images are not rewritten
+        Map<String, DockerXDigestConfig.DigestItem> imageDigests = Collections.singletonMap("operator", digestItem("quay.io/acme/operator:1.0.0", OPERATOR_DIGEST));
+        assertEquals("image: quay.io/acme/other:1.0.0", DockerXDigestUtil.rewriteImageLine("image: quay.io/acme/other:1.0.0", imageDigests));
+        assertEquals("name: operator", DockerXDigestUtil.rewriteImageLine("name: operator", imageDigests));
+    }
+    
+    ///
+    
+    private Path writeFile(String fileName, String... lines) throws IOException {
+        return Files.write(targetDir.resolve(fileName), Arrays.asList(lines));
+    }
+    
+    private static DockerXDigestConfig.DigestItem digestItem(String image, String digest, Path... targetFiles) {
+        
+        List<File> files = new ArrayList<File>();
+        for (Path targetFile : targetFiles) { files.add(targetFile.toFile()); }
+        
+        DockerXDigestConfig.ManifestItem manifestItem = new DockerXDigestConfig.ManifestItem(image);
+        manifestItem.setDigest(digest);
+        
+        DockerXDigestConfig.DigestItem digestItem = new DockerXDigestConfig.DigestItem(image, files);
+        digestItem.setImageDigest(manifestItem);
+        return digestItem;
+    }
+}
@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+
+package io.github.arvinb.dockerx.util;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+import org.gradle.api.*;
+import org.gradle.api.logging.*;
+import com.fasterxml.jackson.databind.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import static io.github.arvinb.dockerx.DockerXConstants.*;
+
+public class DockerXFBCUtilTest {
+    
+    private static final String PACKAGE_NAME = "operator";
+    private static final Logger LOGGER = Logging.getLogger(DockerXFBCUtilTest.class);
+    
+    @TempDir
+    Path catalogDir;
+    
+    @Test
+    void compareVersionTest() {
+        
+        assertTrue(DockerXFBCUtil.compareVersion("1.10.0", "1.9.0") > 0);
+        assertTrue(DockerXFBCUtil.compareVersion("1.0.0-alpha", "1.0.0") < 0);
+        assertTrue(DockerXFBCUtil.compareVersion("1.0.0-alpha.1", "1.0.0-alpha.2") < 0);
+        assertEquals(0, DockerXFBCUtil.compareVersion("1.0.0+build.1", "1.0.0+build.2"));
+        assertEquals(0, DockerXFBCUtil.compareVersion("1.0", "1.0.0"));
+    }
+    
+    @Test
+    void replacesTest() {
+        
+        DockerXFBCUtil.FBCChannel channel = channel(DEFAULT_REPLACES, "1.0.0", "1.1.0", "2.0.0");
+        
+        assertNull(entry(channel, "1.0.0").getReplaces());
+        assertEquals(bundleName("1.0.0"), entry(channel, "1.1.0").getReplaces());
+        assertEquals(bundleName("1.1.0"), entry(channel, "2.0.0").getReplaces());
+        assertEquals(Arrays.asList(bundleName("2.0.0")), heads(channel));
+    }
+    
+    @Test
+    void backportTest() {
+        
+        // A backport added after a newer bundle neither replaces it nor becomes the channel head
+        DockerXFBCUtil.FBCChannel channel = channel(DEFAULT_REPLACES, "1.0.0", "2.0.0", "1.5.0");
+        
+        assertEquals(bundleName("1.0.0"), entry(channel, "1.5.0").getReplaces());
+        assertEquals(bundleName("1.0.0"), entry(channel, "2.0.0").getReplaces());
+        assertEquals(Arrays.asList(bundleName("1.5.0")), entry(channel, "2.0.0").getSkips());
+        assertEquals(Arrays.asList(bundleName("2.0.0")), heads(channel));
+        
+        // The next release continues from the head
+        channel.addBundle(bundle("2.1.0"), DEFAULT_REPLACES);
+        assertEquals(bundleName("2.0.0"), entry(channel, "2.1.0").getReplaces());
+        assertEquals(Arrays.asList(bundleName("2.1.0")), heads(channel));
+    }
+    
+    @Test
+    void skipPatchTest() {
+        
+        DockerXFBCUtil.FBCChannel channel = channel(MODE_SEMVER_SKIPPATCH, "1.0.0", "1.0.1", "1.0.2", "1.1.0");
+        
+        assertNull(entry(channel, "1.0.1").getReplaces());
+        assertEquals(Arrays.asList(bundleName("1.0.0")), entry(channel, "1.0.1").getSkips());
+        assertNull(entry(channel, "1.0.2").getReplaces());
+        assertEquals(Arrays.asList(bundleName("1.0.0"), bundleName("1.0.1")), entry(channel, "1.0.2").getSkips());
+        assertEquals(bundleName("1.0.2"), entry(channel, "1.1.0").getReplaces());
+        assertTrue(entry(channel, "1.1.0").getSkips().isEmpty());
+        assertEquals(Arrays.asList(bundleName("1.1.0")), heads(channel));
+    }
+    
+    @Test
+    void existingChannelTest() throws Exception {
+        
+        // The rendered channel holds 1.0.0 and 2.0.0, the backport bundle comes from a later render
+        writeFile("channel.yaml", String.join("\n",
+            "---",
+            "schema: olm.channel",
+            "package: operator",
+            "name: stable",
+            "entries:",
+            "  - name: " + bundleName("1.0.0"),
+            "  - name: " + bundleName("2.0.0"),
+            "    replaces: " + bundleName("1.0.0")));
+        
+        File catalogFile = generateCatalog(FORMAT_JSON, "1.0.0", "2.0.0", "1.5.0");
+        List<JsonNode> blobs = readBlobs(catalogFile);
+        JsonNode channelBlob = blobs.stream().filter( blob -> OLM_CHANNEL.equals(blob.path(FBC_SCHEMA).asText()) ).findFirst().get();
+        
+        List<String> entryNames = new ArrayList<String>();
+        channelBlob.path(FBC_ENTRIES).forEach( entry -> entryNames.add(entry.path(FBC_NAME).asText()) );
+        assertEquals(Arrays.asList(bundleName("1.0.0"), bundleName("2.0.0"), bundleName("1.5.0")), entryNames);
+        
+        JsonNode newerEntry = channelBlob.path(FBC_ENTRIES).get(1);
+        assertEquals(bundleName("1.0.0"), newerEntry.path(FBC_REPLACES).asText());
+        assertEquals(bundleName("1.5.0"), newerEntry.path(FBC_SKIPS).get(0).asText());
+        assertEquals(bundleName("1.0.0"), channelBlob.path(FBC_ENTRIES).get(2).path(FBC_REPLACES).asText());
+    }
+    
+    @Test
+    void jsonWriterTest() throws Exception {
+        
+        File catalogFile = generateCatalog(FORMAT_JSON, "1.0.0", "1.1.0");
+        String catalog = Files.readString(catalogFile.toPath());
+        List<JsonNode> blobs = readBlobs(catalogFile);
+        
+        // Package, channel and bundles, pretty printed one after another
+        assertEquals(Arrays.asList(OLM_PACKAGE, OLM_CHANNEL, OLM_BUNDLE, OLM_BUNDLE), schemas(blobs));
+        assertTrue(catalog.startsWith("{" + NEW_LINE));
+        assertTrue(catalog.contains("}" + NEW_LINE + "{"));
+        assertTrue(catalog.endsWith("}" + NEW_LINE));
+        
+        assertEquals(PACKAGE_NAME, blobs.get(0).path(FBC_NAME).asText());
+        assertEquals("stable", blobs.get(0).path(FBC_DEFAULT_CHANNEL).asText());
+        assertEquals(bundleName("1.0.0"), blobs.get(1).path(FBC_ENTRIES).get(1).path(FBC_REPLACES).asText());
+        
+        // Bundle blobs are copied in file order, the channel carries the version order
+        assertEquals(bundleName("1.1.0"), blobs.get(2).path(FBC_NAME).asText());
+    }
+    
+    @Test
+    void yamlWriterTest() throws Exception {
+        
+        File catalogFile = generateCatalog(DEFAULT_YAML, "1.0.0", "1.1.0");
+        String catalog = Files.readString(catalogFile.toPath());
+        List<JsonNode> blobs = readBlobs(catalogFile);
+        
+        // One YAML document per blob
+        assertEquals(Arrays.asList(OLM_PACKAGE, OLM_CHANNEL, OLM_BUNDLE, OLM_BUNDLE), schemas(blobs));
+        assertEquals(4, catalog.split("(?m)^---").length - 1);
+        assertTrue(catalog.contains("schema: olm.package"));
+        assertTrue(catalog.contains("replaces: " + bundleName("1.0.0")));
+    }
+    
+    @Test
+    void emptyPackageTest() {
+        
+        DockerXFBCUtil.FBCPackage olmPackage = new DockerXFBCUtil.FBCPackage(EMPTY_STRING, null);
+        File catalogFile = catalogDir.resolve("catalog.json").toFile();
+        
+        assertThrows(GradleException.class, () -> DockerXFBCUtil.generateCatalog(LOGGER, catalogFile, FORMAT_JSON, olmPackage, Arrays.asList("stable"), DEFAULT_REPLACES, new ArrayList<File>()));
+        assertFalse(catalogFile.exists());
+    }
+    
+    ///
+    
+    private DockerXFBCUtil.FBCChannel channel(String mode, String... versions) {
+        
+        DockerXFBCUtil.FBCChannel channel = new DockerXFBCUtil.FBCChannel(PACKAGE_NAME, "stable");
+        for (String version : versions) channel.addBundle(bundle(version), mode);
+        return channel;
+    }
+    
+    private DockerXFBCUtil.FBCBundle bundle(String version) {
+        return new DockerXFBCUtil.FBCBundle(bundleName(version), version);
+    }
+    
+    private String bundleName(String version) {
+        return PACKAGE_NAME + ".v" + version;
+    }
+    
+    private DockerXFBCUtil.FBCChannelEntry entry(DockerXFBCUtil.FBCChannel channel, String version) {
+        return channel.getEntries().stream().filter( entry -> entry.getName().equals(bundleName(version)) ).findFirst().get();
+    }
+    
+    private List<String> heads(DockerXFBCUtil.FBCChannel channel) {
+        
+        // Entries no other entry replaces or skips
+        Set<String> replacedEntries = new HashSet<String>();
+        channel.getEntries().forEach( entry -> {
+            if (entry.getReplaces() != null) replacedEntries.add(entry.getReplaces());
+            replacedEntries.addAll(entry.getSkips());
+        });
+        return channel.getEntries().stream().map( DockerXFBCUtil.FBCChannelEntry::getName ).filter( name -> !replacedEntries.contains(name) ).collect(Collectors.toList());
+    }
+    
+    private File generateCatalog(String format, String... versions) throws IOException {
+        
+        // Each bundle is rendered into its own file, the file order does not follow the versions
+        List<File> blobFiles = new ArrayList<File>();
+        try (Stream<Path> files = Files.list(catalogDir)) { files.forEach( file -> blobFiles.add(file.toFile()) ); }
+        
+        for (int index = 0; index < versions.length; index++) {
+            blobFiles.add(writeFile("render-" + (char) ('z' - index) + ".json", String.join("\n",
+                "{",
+                "  \"schema\": \"olm.bundle\",",
+                "  \"name\": \"" + bundleName(versions[index]) + "\",",
+                "  \"package\": \"" + PACKAGE_NAME + "\",",
+                "  \"image\": \"quay.io/acme/operator-bundle:v" + versions[index] + "\",",
+                "  \"properties\": [ { \"type\": \"olm.package\", \"value\": { \"packageName\": \"" + PACKAGE_NAME + "\", \"version\": \"" + versions[index] + "\" } } ]",
+                "}")));
+        }
+        
+        File catalogFile = catalogDir.resolve("catalog/catalog." + format).toFile();
+        DockerXFBCUtil.generateCatalog(LOGGER, catalogFile, format, new DockerXFBCUtil.FBCPackage(PACKAGE_NAME, null), Arrays.asList("stable"), DEFAULT_REPLACES, blobFiles);
+        return catalogFile;
+    }
+    
+    private List<JsonNode> readBlobs(File catalogFile) throws IOException {
+        
+        String format = catalogFile.getName().endsWith("." + FORMAT_JSON) ? FORMAT_JSON : DEFAULT_YAML;
+        try (MappingIterator<JsonNode> blobs = DockerXFBCUtil.getObjectMapper(format).readerFor(JsonNode.class).readValues(catalogFile)) {
+            return blobs.readAll();
+        }
+    }
+    
+    private List<String> schemas(List<JsonNode> blobs) {
+        return blobs.stream().map( blob -> blob.path(FBC_SCHEMA).asText() ).collect(Collectors.toList());
+    }
+    
+    private File writeFile(String fileName, String content) throws IOException {
+        
+        Path file = catalogDir.resolve(fileName);
+        Files.writeString(file, content);
+        return file.toFile();
+    }
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+package io.github.arvinb.dockerx.util;
+
+import org.junit.jupiter.api.Test;
+import io.github.arvinb.dockerx.config.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DockerXManifestUtilTest {
+    
+    private static final String IMAGETOOLS_OUTPUT = String.join("\n",
+        "Name:      myregistry.io/namespace/image:1.0.0",
+        "MediaType: application/vnd.oci.image.index.v1+json",
+        "Digest:    sha256:0000000000000000000000000000000000000000000000000000000000000000",
+        "",
+        "Manifests:",
+        "  Name:        myregistry.io/namespace/image:1.0.0@sha256:1111111111111111111111111111111111111111111111111111111111111111",
+        "  MediaType:   application/vnd.oci.image.manifest.v1+json",
+        "  Platform:    linux/amd64",
+        "",
+        "  Name:        myregistry.io/namespace/image:1.0.0@sha256:2222222222222222222222222222222222222222222222222222222222222222",
+        "  MediaType:   application/vnd.oci.image.manifest.v1+json",
+        "  Platform:    unknown/unknown",
+        "  Annotations:",
+        "    vnd.docker.reference.type: attestation-manifest",
+        "",
+        "  Name:        myregistry.io/namespace/image:1.0.0@sha256:3333333333333333333333333333333333333333333333333333333333333333",
+        "  MediaType:   application/vnd.oci.image.manifest.v1+json",
+        "  Platform:    linux/arm/v7");
+    
+    @Test
+    void imagetoolsParserTest() {
+        
+        DockerXManifestUtil.ImagetoolsParser imagetoolsParser = new DockerXManifestUtil.ImagetoolsParser("myregistry.io/namespace/image:1.0.0");
+        IMAGETOOLS_OUTPUT.lines().forEach(imagetoolsParser);
+        
+        DockerXDigestConfig.ManifestItem manifestItem = imagetoolsParser.getManifestItem();
+        
+        assertTrue(manifestItem.isListManifest());
+        assertEquals("sha256:0000000000000000000000000000000000000000000000000000000000000000", manifestItem.getDigest());
+        assertEquals(2, manifestItem.getImageDigests().size());
+        assertEquals(DockerXDockerConfig.PlatformItem.AMD64, manifestItem.getImageDigests().get("sha256:1111111111111111111111111111111111111111111111111111111111111111"));
+        assertEquals(DockerXDockerConfig.PlatformItem.ARMV7, manifestItem.getImageDigests().get("sha256:3333333333333333333333333333333333333333333333333333333333333333"));
+    }
+}
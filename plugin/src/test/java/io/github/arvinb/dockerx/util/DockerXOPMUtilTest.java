@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+
+package io.github.arvinb.dockerx.util;
+
+import java.io.*;
+import java.nio.file.*;
+import com.fasterxml.jackson.databind.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DockerXOPMUtilTest {
+    
+    private static final String BUNDLE_SOURCE = "quay.io/acme/operator-bundle:v1.0.0";
+    private static final String BUNDLE_DIGEST = BUNDLE_SOURCE + "@sha256:" + "a".repeat(64);
+    
+    @TempDir
+    Path workingDir;
+    
+    @Test
+    void renderCurrentTest() throws Exception {
+        
+        File outputFile = writeRender("render");
+        JsonNode renderEntry = DockerXOPMUtil.newRenderEntry(BUNDLE_SOURCE, BUNDLE_DIGEST, outputFile);
+        
+        assertTrue(DockerXOPMUtil.isRenderCurrent(renderEntry, BUNDLE_DIGEST, outputFile));
+        assertFalse(DockerXOPMUtil.isRenderCurrent(renderEntry, BUNDLE_SOURCE + "@sha256:" + "b".repeat(64), outputFile));
+        assertFalse(DockerXOPMUtil.isRenderCurrent(null, BUNDLE_DIGEST, outputFile));
+    }
+    
+    @Test
+    void unresolvedTagTest() throws Exception {
+        
+        // A tag that could not be resolved is stored as is, it may have moved since the last render
+        File outputFile = writeRender("render");
+        JsonNode renderEntry = DockerXOPMUtil.newRenderEntry(BUNDLE_SOURCE, BUNDLE_SOURCE, outputFile);
+        
+        assertFalse(DockerXOPMUtil.isRenderCurrent(renderEntry, BUNDLE_SOURCE, outputFile));
+    }
+    
+    @Test
+    void editedOutputTest() throws Exception {
+        
+        File outputFile = writeRender("render");
+        JsonNode renderEntry = DockerXOPMUtil.newRenderEntry(BUNDLE_SOURCE, BUNDLE_DIGEST, outputFile);
+        
+        writeRender("edited");
+        assertFalse(DockerXOPMUtil.isRenderCurrent(renderEntry, BUNDLE_DIGEST, outputFile));
+        
+        Files.delete(outputFile.toPath());
+        assertFalse(DockerXOPMUtil.isRenderCurrent(renderEntry, BUNDLE_DIGEST, outputFile));
+    }
+    
+    ///
+    
+    private File writeRender(String content) throws IOException {
+        
+        Path outputFile = workingDir.resolve("bundle.json");
+        Files.writeString(outputFile, content);
+        return outputFile.toFile();
+    }
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+
+package io.github.arvinb.dockerx.util;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DockerXRegistryClientTest {
+    
+    private static final String DIGEST = "sha256:1111111111111111111111111111111111111111111111111111111111111111";
+    
+    // Image, Registry, Repository, Reference
+    private static final String[][] IMAGE_REFERENCES = {
+        { "nginx",                                     "registry-1.docker.io", "library/nginx",       "latest"    },
+        { "nginx:1.25",                                "registry-1.docker.io", "library/nginx",       "1.25"      },
+        { "bitnami/redis:7.2",                         "registry-1.docker.io", "bitnami/redis",       "7.2"       },
+        { "docker.io/nginx:1.25",                      "registry-1.docker.io", "library/nginx",       "1.25"      },
+        { "index.docker.io/library/nginx",             "registry-1.docker.io", "library/nginx",       "latest"    },
+        { "quay.io/acme/operator:v1.0.0",              "quay.io",              "acme/operator",       "v1.0.0"    },
+        { "localhost:5000/app",                        "localhost:5000",       "app",                 "latest"    },
+        { "localhost/team/app:dev",                    "localhost",            "team/app",            "dev"       },
+        { "myregistry.io:8443/ns/image:2.0",           "myregistry.io:8443",   "ns/image",            "2.0"       },
+        { "myregistry.io:8443/ns/image@" + DIGEST,     "myregistry.io:8443",   "ns/image",            DIGEST      },
+        { "quay.io/acme/operator:v1.0.0@" + DIGEST,    "quay.io",              "acme/operator",       DIGEST      },
+        { "nginx:1.25@" + DIGEST,                      "registry-1.docker.io", "library/nginx",       DIGEST      }
+    };
+    
+    // Registry, Normalized Registry
+    private static final String[][] REGISTRIES = {
+        { "docker.io",                    "registry-1.docker.io" },
+        { "index.docker.io",              "registry-1.docker.io" },
+        { "https://index.docker.io/v1/",  "registry-1.docker.io" },
+        { "https://quay.io",              "quay.io"              },
+        { "myregistry.io:8443/path",      "myregistry.io:8443"   },
+        { "localhost:5000",               "localhost:5000"       }
+    };
+    
+    @Test
+    void imageReferenceParseTest() {
+        
+        for (String[] imageReference : IMAGE_REFERENCES) {
+            
+            DockerXRegistryClient.ImageReference imageRef = DockerXRegistryClient.ImageReference.parse(imageReference[0]);
+            
+            assertEquals(imageReference[1], imageRef.getRegistry(), imageReference[0]);
+            assertEquals(imageReference[2], imageRef.getRepository(), imageReference[0]);
+            assertEquals(imageReference[3], imageRef.getReference(), imageReference[0]);
+        }
+    }
+    
+    @Test
+    void manifestURITest() {
+        
+        DockerXRegistryClient.ImageReference imageRef = DockerXRegistryClient.ImageReference.parse("myregistry.io:8443/ns/image:2.0");
+        
+        assertEquals("https://myregistry.io:8443/v2/ns/image/manifests/2.0", imageRef.getManifestURI().toString());
+        assertEquals("myregistry.io:8443/ns/image", imageRef.getScopeKey());
+    }
+    
+    @Test
+    void normalizeRegistryTest() {
+        
+        for (String[] registry : REGISTRIES)
+            assertEquals(registry[1], DockerXRegistryClient.ImageReference.normalizeRegistry(registry[0]), registry[0]);
+    }
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+*******************************************************************************/
+
+
+package io.github.arvinb.dockerx.util;
+
+import java.io.*;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DockerXSQLiteUtilTest {
+    
+    private static final String SQL_SCRIPT = String.join("\n",
+        "-- Schema changes; applied in order",
+        "CREATE TABLE channel (name TEXT, head TEXT); /* inline; comment */",
+        "INSERT INTO channel VALUES ('stable;beta', 'it''s; quoted');",
+        "CREATE TRIGGER channel_head AFTER UPDATE ON channel",
+        "BEGIN",
+        "    UPDATE channel SET head = NEW.head WHERE name = 'stable';",
+        "    DELETE FROM channel WHERE head IS NULL;",
+        "END;",
+        "/* block",
+        "   comment; spanning lines */",
+        "SELECT [odd;name] FROM channel");
+    
+    @Test
+    void sqlScriptReaderTest() throws IOException {
+        
+        List<String> statements = new ArrayList<String>();
+        
+        try ( DockerXSQLiteUtil.SQLScriptReader scriptReader = new DockerXSQLiteUtil.SQLScriptReader(new StringReader(SQL_SCRIPT)) ) {
+            String statement;
+            while ( (statement = scriptReader.nextStatement()) != null )
+                statements.add(statement);
+        }
+        
+        assertEquals(4, statements.size());
+        assertEquals("CREATE TABLE channel (name TEXT, head TEXT)", statements.get(0));
+        assertEquals("INSERT INTO channel VALUES ('stable;beta', 'it''s; quoted')", statements.get(1));
+        assertTrue(statements.get(2).startsWith("CREATE TRIGGER channel_head"));
+        assertTrue(statements.get(2).contains("WHERE name = 'stable';"));
+        assertTrue(statements.get(2).endsWith("END"));
+        assertEquals("SELECT [odd;name] FROM channel", statements.get(3));
+    }
+    
+    @Test
+    void parseParametersTest() throws IOException {
+        
+        assertEquals(Arrays.asList("stable", "my-operator.v1.0.0"), DockerXSQLiteUtil.parseParameters(" stable , my-operator.v1.0.0 "));
+        assertEquals(Arrays.asList("a, b", " c ", "say \"hi\""), DockerXSQLiteUtil.parseParameters("\"a, b\",\" c \",\"say \"\"hi\"\"\""));
+        assertEquals(Arrays.asList("x", "", ""), DockerXSQLiteUtil.parseParameters("x,,"));
+        
+        assertThrows(IOException.class, () -> DockerXSQLiteUtil.parseParameters("\"unterminated, value"));
+        assertThrows(IOException.class, () -> DockerXSQLiteUtil.parseParameters("\"quoted\" trailing, value"));
+    }
+}